@@ -0,0 +1,147 @@
+#!/usr/bin/env python3
+"""Regenerates src/main/resources/vocabulary/clean-en.txt.
+
+Source: word frequencies counted over the English documentation of a Debian 12
+install (man pages outside the localized trees, Perl POD, the Vim help files
+and tutor, and the READMEs and notes under /usr/share/doc, skipping markup,
+source code and change logs), which is the corpus the list was built from.
+Any directory of English text can stand in for it with --corpus.
+
+A word is kept when it:
+  - is three or more letters a-z, or a common two-letter word, appears in at least --min-documents files and
+    in three quarters of the sources (drops the jargon of a single package),
+  - is accepted, lower case, by Vim's English spell dictionary (drops jargon,
+    identifiers and proper names such as "aix", "euc" or "koi"),
+  - is not a placeholder name such as "foo" or a piece of an address such as "com",
+  - is not on the deny list below (threats, insults, slurs, sexual terms and
+    their common stand-ins, such as "kill", "hate", "ugly" or "duck").
+
+The most frequent --size words are written in frequency order. Words within
+edit distance 2 of a dictionary term, or sharing its Double Metaphone code, are
+not removed here: the dictionary is encrypted, so CleanVocabulary drops them
+against each dictionary snapshot when it is published.
+
+Usage: scripts/clean-vocabulary.py [--corpus DIR[:DIR...] ...] [--size N] [--min-documents N] > clean-en.txt
+"""
+import argparse
+import collections
+import gzip
+import os
+import re
+import subprocess
+import sys
+import tempfile
+
+# Each entry is one source; a word must be common to most of them, not the jargon of one
+DEFAULT_CORPUS = [
+    "/usr/share/man/man1:/usr/share/man/man5:/usr/share/man/man7:/usr/share/man/man8",
+    "/usr/share/perl",
+    "/usr/share/vim/vim90/doc:/usr/share/vim/vim90/tutor",
+    "/usr/share/doc",
+]
+# Markup, source code and change logs carry identifiers rather than prose
+SKIPPED = re.compile(r"(changelog|news|\.(html?|css|js|c|h|py|pl|pm|sh|json|xml|svg|png|gif|java))(\.gz)?$",
+                     re.IGNORECASE)
+
+# Never listed, whatever the corpus says: a listed word skips every detection stage
+DENY = set("""
+    abuse abused abuser abusive anal anus arse ass asses bastard bitch bitches bloody bomb bomber bombs boob
+    boobs bullshit butt butts crap cunt damn damned dead deadly death die died dies dick dicks die dildo dumb
+    dying duck ducks fag fat fatso freak fuck gay gun guns hang hanged hanging hangs hate hated hater hates
+    hating hell homo horny hump idiot idiots jerk jerks kill killed killer killers killing kills kinky loser
+    losers moron morons murder murdered murderer naked nazi nazis nigga nigger nude penis piss pissed porn
+    prick pussy queer rape raped rapist retard retarded scum sex sexual sexy shit shoot shooting shot slut
+    stupid suck sucks suicide terror terrorist tits twat ugly vagina violence violent wank weapon whore
+""".split())
+
+# Placeholder names from code examples and pieces of addresses; real words such as "bar" are kept
+NOT_PROSE = {"foo", "baz", "qux", "quux", "foobar", "http", "https", "www", "com", "org", "net", "html"}
+# The spell dictionary accepts most letter pairs as abbreviations, so only these two-letter words are kept
+TWO_LETTER_WORDS = set("am an as at be by do go he if in is it me my no of oh ok on or so to up us we".split())
+
+WORD = re.compile(r"[A-Za-z]+")
+ADDRESS = re.compile(r"\S+@\S+|\b\w+://\S+|\bwww\.\S+")
+ROFF = re.compile(r"^\.\S*|\\f[BIRP]|\\\(..|\\[-&e]", re.MULTILINE)
+
+
+def documents(source):
+    for root in source.split(":"):
+        for directory, _, files in os.walk(root):
+            for name in files:
+                if SKIPPED.search(name):
+                    continue
+                path = os.path.join(directory, name)
+                if os.path.islink(path):
+                    continue
+                try:
+                    opener = gzip.open if name.endswith(".gz") else open
+                    with opener(path, "rt", encoding="utf-8", errors="ignore") as f:
+                        text = f.read()
+                except (OSError, EOFError):
+                    continue
+                yield ADDRESS.sub(" ", ROFF.sub(" ", text))
+
+
+def count(sources):
+    frequency = collections.Counter()
+    document_frequency = collections.Counter()
+    source_frequency = collections.Counter()
+    for source in sources:
+        seen = set()
+        for text in documents(source):
+            # Mixed-case identifiers such as "setLength" are not words
+            words = [w.lower() for w in WORD.findall(text) if w.islower() or w.istitle() or w.isupper() and len(w) > 1]
+            frequency.update(words)
+            document_frequency.update(set(words))
+            seen.update(words)
+        source_frequency.update(seen)
+    return frequency, document_frequency, source_frequency
+
+
+def spelled(words):
+    """The subset of words Vim's English spell dictionary accepts in lower case."""
+    with tempfile.TemporaryDirectory() as tmp:
+        source = os.path.join(tmp, "words")
+        target = os.path.join(tmp, "good")
+        with open(source, "w") as f:
+            f.write("\n".join(words))
+        script = ("set spelllang=en spell | call writefile(filter(readfile('%s'), "
+                  "'spellbadword(v:val)[1] ==# \"\"'), '%s') | qa!" % (source, target))
+        subprocess.run(["vim", "-u", "NONE", "-i", "NONE", "-N", "-n", "-E", "-s",
+                        "-c", "set runtimepath=" + vim_runtime(), "-c", script],
+                       stdin=subprocess.DEVNULL, check=True, env=dict(os.environ, TERM="dumb"))
+        with open(target) as f:
+            return set(f.read().split())
+
+
+def vim_runtime():
+    output = subprocess.run(["vim", "-u", "NONE", "-N", "-E", "-s", "-c", "call writefile([$VIMRUNTIME], '/dev/stdout')",
+                             "-c", "qa!"], stdin=subprocess.DEVNULL, capture_output=True, text=True, check=True)
+    return output.stdout.strip()
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("--corpus", action="append", help="one source: directories joined by ':'")
+    parser.add_argument("--size", type=int, default=3000)
+    parser.add_argument("--min-documents", type=int, default=5)
+    args = parser.parse_args()
+
+    sources = args.corpus or DEFAULT_CORPUS
+    frequency, document_frequency, source_frequency = count(sources)
+    candidates = [w for w, _ in frequency.most_common()
+                  if (len(w) > 2 or w in TWO_LETTER_WORDS) and document_frequency[w] >= args.min_documents
+                  and source_frequency[w] * 4 >= len(sources) * 3 and w not in DENY and w not in NOT_PROSE]
+    good = spelled(candidates)
+    kept = [w for w in candidates if w in good][:args.size]
+
+    print("# Common clean English words, one per line, lower case, most frequent first.")
+    print("# Generated by scripts/clean-vocabulary.py; see that script for the corpus and filters.")
+    print("# Tokens listed here that are not dictionary terms skip the detection cascade.")
+    for word in kept:
+        print(word)
+    print("Kept %d of %d candidate words" % (len(kept), len(candidates)), file=sys.stderr)
+
+
+if __name__ == "__main__":
+    main()
@@ -5,6 +5,7 @@ import com.moderation.sentinel.api.dto.request.TextModerationRequest;
 import com.moderation.sentinel.api.dto.response.ApiResponse;
 import com.moderation.sentinel.model.ApiKey;
 import com.moderation.sentinel.model.ModerationResponse;
+import com.moderation.sentinel.model.ModerationVerdict;
 import com.moderation.sentinel.service.apikey.ApiKeyService;
 import com.moderation.sentinel.service.logging.ModerationLoggingService;
 import com.moderation.sentinel.service.moderation.ModerationService;
@@ -74,8 +75,9 @@ public class ModerationController {
             rateLimitService.recordRequest(apiKeyDetails.getUserId(), apiKeyDetails.getApiKeyId());
 
 
-            // Perform moderation
-            ModerationResponse result = moderationService.analyze(request.getText());
+            // Perform moderation, within the request's time budget or else the key's
+            Long budgetMillis = request.getMaxAnalysisMs() != null ? request.getMaxAnalysisMs() : apiKeyDetails.getAnalysisBudgetMs();
+            ModerationResponse result = moderationService.analyze(request.getText(), budgetMillis);
             
             // Apply custom confidence threshold if provided
             if (request.getConfidenceThreshold() != null) {
@@ -85,7 +87,9 @@ public class ModerationController {
                     isOffensive,
                     result.confidence,
                     result.message,
-                    request.isReturnDetails() ? result.offensiveTerms : Map.of()
+                    request.isReturnDetails() ? result.offensiveTerms : Map.of(),
+                    request.isReturnDetails() ? result.matches : List.of(),
+                    result.degraded
                 );
             }
 
@@ -111,6 +115,66 @@ public class ModerationController {
         }
     }
 
+    /*
+       * /verdict answers only whether the text is flagged at the requested threshold, as /text would flag it;
+       * it stops once the threshold is provably met and returns no terms or matches
+     */
+
+    @PostMapping("/verdict")
+    public ResponseEntity<ApiResponse<ModerationVerdict>> moderateVerdict(
+            @Valid @RequestBody TextModerationRequest request,
+            @RequestHeader("X-API-Key") String apiKey,
+            HttpServletRequest httpRequest) {
+
+        long startTime = System.currentTimeMillis();
+
+        try {
+            if (!apiKeyService.validateApiKey(apiKey)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(ApiResponse.error("Invalid API key", "INVALID_API_KEY"));
+            }
+
+            ApiKey apiKeyDetails = apiKeyService.getByApiKey(apiKey);
+            if (apiKeyDetails == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(ApiResponse.error("API key not found", "API_KEY_NOT_FOUND"));
+            }
+
+            boolean rateLimitExceeded = rateLimitService.isRateLimitExceeded(
+                    apiKeyDetails.getUserId(),
+                    apiKeyDetails.getApiKeyId()
+            );
+
+            if (rateLimitExceeded) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body(ApiResponse.error("Rate limit exceeded", "RATE_LIMIT_EXCEEDED"));
+            }
+
+            rateLimitService.recordRequest(apiKeyDetails.getUserId(), apiKeyDetails.getApiKeyId());
+
+            double threshold = request.getConfidenceThreshold() != null ? request.getConfidenceThreshold() : 0.7;
+            Long budgetMillis = request.getMaxAnalysisMs() != null ? request.getMaxAnalysisMs() : apiKeyDetails.getAnalysisBudgetMs();
+            ModerationVerdict verdict = moderationService.verdict(request.getText(), threshold, budgetMillis);
+
+            long processingTime = System.currentTimeMillis() - startTime;
+            loggingService.logModerationRequest(
+                apiKeyDetails.getUserId(),
+                apiKeyDetails.getApiKeyId(),
+                request.getText(),
+                new ModerationResponse(verdict.isOffensive, verdict.confidence, null, Map.of()),
+                processingTime,
+                getClientIp(httpRequest),
+                httpRequest.getHeader("User-Agent")
+            );
+
+            return ResponseEntity.ok(ApiResponse.success("Text moderated successfully", verdict));
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error("Internal server error", "INTERNAL_ERROR"));
+        }
+    }
+
     /*
        * /batch will process high volume data stream, controlled via Kafka.
        * Kafka Implementation is pending
@@ -144,11 +208,12 @@ public class ModerationController {
                     .body(ApiResponse.error("Rate limit exceeded", "RATE_LIMIT_EXCEEDED"));
             }
             
-            // Process batch
+            // Process batch; the time budget applies to each text
             List<ModerationResponse> results = new ArrayList<>();
+            Long budgetMillis = request.getMaxAnalysisMs() != null ? request.getMaxAnalysisMs() : apiKeyDetails.getAnalysisBudgetMs();
             
             for (String text : request.getTexts()) {
-                ModerationResponse result = moderationService.analyze(text);
+                ModerationResponse result = moderationService.analyze(text, budgetMillis);
 
                 if (request.getConfidenceThreshold() != null) {
                     boolean isOffensive = result.confidence >= request.getConfidenceThreshold() && 
@@ -157,7 +222,9 @@ public class ModerationController {
                         isOffensive,
                         result.confidence,
                         result.message,
-                        request.isReturnDetails() ? result.offensiveTerms : Map.of()
+                        request.isReturnDetails() ? result.offensiveTerms : Map.of(),
+                        request.isReturnDetails() ? result.matches : List.of(),
+                        result.degraded
                     );
                 }
                 
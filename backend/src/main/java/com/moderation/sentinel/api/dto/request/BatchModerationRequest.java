@@ -2,6 +2,7 @@ package com.moderation.sentinel.api.dto.request;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
 import java.util.List;
@@ -18,6 +19,11 @@ public class BatchModerationRequest {
     @JsonProperty("confidence_threshold")
     private Double confidenceThreshold = 0.7;
     
+    // Analysis time budget; overrides the API key's, and is capped by the server
+    @Positive(message = "Analysis budget must be positive")
+    @JsonProperty("max_analysis_ms")
+    private Long maxAnalysisMs;
+    
     public BatchModerationRequest() {}
     
     public BatchModerationRequest(List<String> texts) {
@@ -32,4 +38,7 @@ public class BatchModerationRequest {
     
     public Double getConfidenceThreshold() { return confidenceThreshold; }
     public void setConfidenceThreshold(Double confidenceThreshold) { this.confidenceThreshold = confidenceThreshold; }
+    
+    public Long getMaxAnalysisMs() { return maxAnalysisMs; }
+    public void setMaxAnalysisMs(Long maxAnalysisMs) { this.maxAnalysisMs = maxAnalysisMs; }
 }
\ No newline at end of file
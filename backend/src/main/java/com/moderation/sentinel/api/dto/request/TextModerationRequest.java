@@ -2,6 +2,7 @@ package com.moderation.sentinel.api.dto.request;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
 public class TextModerationRequest {
@@ -16,6 +17,11 @@ public class TextModerationRequest {
     @JsonProperty("confidence_threshold")
     private Double confidenceThreshold = 0.7;
     
+    // Analysis time budget; overrides the API key's, and is capped by the server
+    @Positive(message = "Analysis budget must be positive")
+    @JsonProperty("max_analysis_ms")
+    private Long maxAnalysisMs;
+    
     public TextModerationRequest() {}
     
     public TextModerationRequest(String text) {
@@ -30,4 +36,7 @@ public class TextModerationRequest {
     
     public Double getConfidenceThreshold() { return confidenceThreshold; }
     public void setConfidenceThreshold(Double confidenceThreshold) { this.confidenceThreshold = confidenceThreshold; }
+    
+    public Long getMaxAnalysisMs() { return maxAnalysisMs; }
+    public void setMaxAnalysisMs(Long maxAnalysisMs) { this.maxAnalysisMs = maxAnalysisMs; }
 }
\ No newline at end of file
@@ -50,6 +50,11 @@ public class ApiKey {
     @JsonProperty("usage_count")
     private Long usageCount = 0L;
 
+    // Default analysis time budget for requests made with this key; null uses the server default
+    @Column(name = "analysis_budget_ms")
+    @JsonProperty("analysis_budget_ms")
+    private Long analysisBudgetMs;
+
     // Constructors
     public ApiKey() {}
 
@@ -87,6 +92,9 @@ public class ApiKey {
     public Long getUsageCount() { return usageCount; }
     public void setUsageCount(Long usageCount) { this.usageCount = usageCount; }
 
+    public Long getAnalysisBudgetMs() { return analysisBudgetMs; }
+    public void setAnalysisBudgetMs(Long analysisBudgetMs) { this.analysisBudgetMs = analysisBudgetMs; }
+
     public void incrementUsage() {
         this.usageCount++;
         this.lastUsed = LocalDateTime.now();
@@ -1,5 +1,6 @@
 package com.moderation.sentinel.model;
 
+import java.util.List;
 import java.util.Map;
 
 
@@ -8,17 +9,54 @@ public class ModerationResponse {
     public final double confidence;
     public final String message;
     public final Map<String, Double> offensiveTerms;
+    public final List<TermMatch> matches;
+    // The work budget ran out, so some tokens skipped the costlier stages and a match may be missing
+    public final boolean degraded;
 
     public ModerationResponse(boolean isOffensive, double confidence, String message, Map<String, Double> offensiveTerms) {
+        this(isOffensive, confidence, message, offensiveTerms, List.of());
+    }
+
+    public ModerationResponse(boolean isOffensive, double confidence, String message, Map<String, Double> offensiveTerms,
+                              List<TermMatch> matches) {
+        this(isOffensive, confidence, message, offensiveTerms, matches, false);
+    }
+
+    public ModerationResponse(boolean isOffensive, double confidence, String message, Map<String, Double> offensiveTerms,
+                              List<TermMatch> matches, boolean degraded) {
         this.isOffensive = isOffensive;
         this.confidence = Math.min(1.0, Math.max(0.0, confidence)); // Clamp to [0, 1]
         this.message = message;
         this.offensiveTerms = offensiveTerms;
+        this.matches = matches;
+        this.degraded = degraded;
     }
 
     @Override
     public String toString() {
-        return String.format("Offensive: %b, Confidence: %.2f, Message: %s, Terms: %s",
-                isOffensive, confidence, message, offensiveTerms);
+        return String.format("Offensive: %b, Confidence: %.2f, Message: %s, Terms: %s, Degraded: %b",
+                isOffensive, confidence, message, offensiveTerms, degraded);
+    }
+
+    // A flagged term and the [start, end) range of the original input it was found in
+    public static class TermMatch {
+        public final String term;
+        public final int start;
+        public final int end;
+        public final double confidence;
+        // Obfuscation families undone to match the term, e.g. "leet" or "separator"; empty for direct matches
+        public final List<String> obfuscation;
+
+        public TermMatch(String term, int start, int end, double confidence) {
+            this(term, start, end, confidence, List.of());
+        }
+
+        public TermMatch(String term, int start, int end, double confidence, List<String> obfuscation) {
+            this.term = term;
+            this.start = start;
+            this.end = end;
+            this.confidence = confidence;
+            this.obfuscation = obfuscation;
+        }
     }
 }
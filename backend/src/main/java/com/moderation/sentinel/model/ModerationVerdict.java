@@ -0,0 +1,25 @@
+package com.moderation.sentinel.model;
+
+
+public class ModerationVerdict {
+    public final boolean isOffensive;
+    // The message confidence, as /text reports it; when scoring stopped early, a lower bound on it that met the threshold
+    public final double confidence;
+    // The work budget ran out before the verdict was reached; see ModerationResponse.degraded
+    public final boolean degraded;
+
+    public ModerationVerdict(boolean isOffensive, double confidence) {
+        this(isOffensive, confidence, false);
+    }
+
+    public ModerationVerdict(boolean isOffensive, double confidence, boolean degraded) {
+        this.isOffensive = isOffensive;
+        this.confidence = Math.min(1.0, Math.max(0.0, confidence)); // Clamp to [0, 1]
+        this.degraded = degraded;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Offensive: %b, Confidence: %.2f, Degraded: %b", isOffensive, confidence, degraded);
+    }
+}
@@ -0,0 +1,45 @@
+package com.moderation.sentinel.service.moderation;
+
+import com.moderation.sentinel.util.concurrent.ComputePool;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.logging.Logger;
+
+/**
+ * Compute pools the moderation engine runs its parallel work on. Sizes default to the CPUs the
+ * container's quota allows rather than the host's count, and each pool admits a bounded number of
+ * requests at once; a request past that limit is scored on its own thread instead of queueing.
+ */
+@Component
+public class ModerationExecutors {
+    private static final Logger logger = Logger.getLogger(ModerationExecutors.class.getName());
+
+    private final ComputePool analysisPool;
+
+    @Autowired
+    public ModerationExecutors(MeterRegistry meterRegistry,
+                               @Value("${application.moderation.executors.analysis.threads:0}") int analysisThreads,
+                               @Value("${application.moderation.executors.analysis.max-requests:0}") int analysisMaxRequests,
+                               @Value("${application.moderation.executors.analysis.request-parallelism:0}") int analysisRequestParallelism) {
+        int threads = analysisThreads > 0 ? analysisThreads : ComputePool.availableCpus();
+        this.analysisPool = new ComputePool("analysis", threads,
+            analysisMaxRequests > 0 ? analysisMaxRequests : 2 * threads,
+            analysisRequestParallelism > 0 ? analysisRequestParallelism : threads);
+        analysisPool.bindTo(meterRegistry);
+        logger.info("Analysis pool: " + threads + " threads, " + analysisPool.getRequestParallelism() + " per request");
+    }
+
+    // Token scoring for long inputs
+    public ComputePool analysis() {
+        return analysisPool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        analysisPool.shutdown();
+    }
+}
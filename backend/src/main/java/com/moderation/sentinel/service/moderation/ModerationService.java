@@ -1,218 +1,549 @@
 package com.moderation.sentinel.service.moderation;
 
 import com.moderation.sentinel.model.ModerationResponse;
+import com.moderation.sentinel.model.ModerationVerdict;
+import com.moderation.sentinel.service.moderation.stage.DetectionInput;
+import com.moderation.sentinel.service.moderation.stage.DetectionPipeline;
+import com.moderation.sentinel.service.moderation.stage.StageMatch;
+import com.moderation.sentinel.service.moderation.stage.VariantStage;
+import com.moderation.sentinel.util.algorithm.ahocorasick.AhoCorasick;
+import com.moderation.sentinel.util.algorithm.budget.WorkBudget;
+import com.moderation.sentinel.util.algorithm.filter.StaticStringSet;
 import com.moderation.sentinel.util.algorithm.normalization.TextNormalizer;
-import com.moderation.sentinel.util.algorithm.trie.Trie;
+import com.moderation.sentinel.util.algorithm.trie.DictionarySnapshot;
 import com.moderation.sentinel.util.algorithm.trie.TrieInitializer;
-import com.moderation.sentinel.util.algorithm.levenshtein.LevenshteinDistance;
+import com.moderation.sentinel.util.algorithm.trie.WordDictionary;
 import com.moderation.sentinel.util.algorithm.noise.NoiseDetector;
+import com.moderation.sentinel.util.algorithm.noise.VariantIndex;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import com.moderation.sentinel.util.algorithm.vocabulary.CleanVocabulary;
+import com.moderation.sentinel.util.cache.Fingerprint128;
+import com.moderation.sentinel.util.cache.TinyLfuCache;
+import com.moderation.sentinel.util.cache.TinyLfuCacheMetrics;
+import com.moderation.sentinel.util.concurrent.ComputePool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 @Service
 public class ModerationService {
-    private final Trie offensiveTrie;
-    private final Trie safeTrie;
-    private final Map<String, Double> wordScoreCache = new ConcurrentHashMap<>();
-    
-    // Weight parameters for confidence calculation
-    private static final double EXACT_MATCH_WEIGHT = 1.0;
-    private static final double PHONETIC_MATCH_WEIGHT = 0.85;
-    private static final double OBFUSCATION_MATCH_WEIGHT = 0.90;
-    private static final double LEVENSHTEIN_MATCH_WEIGHT = 0.75;
-    private static final double FUZZY_MATCH_WEIGHT = 0.70;
+    private final TrieInitializer trieInitializer;
+    private final CleanVocabulary cleanVocabulary;
+    private final DetectionPipeline detectionPipeline;
+    private final TinyLfuCache<String, VersionedScore> wordScoreCache;
+    private final TinyLfuCache<MessageKey, MessageResult> messageCache;
+    private final TinyLfuCache<MessageKey, ModerationVerdict> verdictCache;
+    private final AtomicLong wordScoreVersion = new AtomicLong();
+    private final int maxSeparatorGap;
+    private final long defaultBudgetMillis;
+    private final long maxBudgetMillis;
+    private final long budgetUnits;
+    private final Counter degradedAnalyses;
+    private final int parallelMinTokens;
+    private final int parallelChunkTokens;
+    private final ComputePool analysisPool;
+    
+    // Per-token stage weights live with the stages; these apply to whole matches and context
     private static final double CONTEXT_PENALTY = 0.3;
     private static final double OFFENSIVE_THRESHOLD = 0.7;
-    private static final int MAX_LEVENSHTEIN_DISTANCE = 2;
-    private static final int MAX_FUZZY_DISTANCE = 3;
+    private static final int MIN_EMBEDDED_TERM_LENGTH = 4;
+    private static final String[] NEGATION_WORDS = {
+        "not", "never", "without", "except", "but", "neither", "nor", "hardly", "barely"
+    };
+    private static final StaticStringSet NEGATIONS = StaticStringSet.build(List.of(NEGATION_WORDS), ArrayStorage.HEAP);
+    // Negations count from two tokens before to one after
+    private static final int NEGATION_BEFORE = 2;
+    private static final int NEGATION_AFTER = 1;
+    // Context bits per token: its own kind, then whether its window holds a negation
+    static final int SAFE_WORD = 1;
+    static final int NEGATION_WORD = 2;
+    static final int NEGATED = 4;
+    private static final IntPredicate SEPARATOR = c -> Character.isWhitespace(c) || NoiseDetector.isSeparator((char) c);
+    private static final List<String> SPLIT_OBFUSCATION = List.of(VariantIndex.Family.SEPARATOR.label());
+    // Result for known-clean words, which are never reported and so need no token string
+    private static final DetectionResult CLEAN_WORD = new DetectionResult(false, 0.0, null);
 
     @Autowired
-    public ModerationService(TrieInitializer trieInitializer) {
-        this.offensiveTrie = trieInitializer.getOffensiveTrie();
-        this.safeTrie = trieInitializer.getSafeTrie();
+    public ModerationService(TrieInitializer trieInitializer,
+                             CleanVocabulary cleanVocabulary,
+                             DetectionPipeline detectionPipeline,
+                             ModerationExecutors executors,
+                             MeterRegistry meterRegistry,
+                             @Value("${application.cache.word-score.max-bytes:16777216}") long wordScoreCacheBytes,
+                             @Value("${application.cache.message.max-bytes:33554432}") long messageCacheBytes,
+                             @Value("${application.cache.verdict.max-bytes:4194304}") long verdictCacheBytes,
+                             @Value("${application.cache.message.ttl-seconds:600}") long messageCacheTtlSeconds,
+                             @Value("${application.moderation.max-separator-gap:2}") int maxSeparatorGap,
+                             @Value("${application.moderation.budget.default-millis:250}") long defaultBudgetMillis,
+                             @Value("${application.moderation.budget.max-millis:2000}") long maxBudgetMillis,
+                             @Value("${application.moderation.budget.max-units:0}") long budgetUnits,
+                             @Value("${application.moderation.parallel.min-tokens:2000}") int parallelMinTokens,
+                             @Value("${application.moderation.parallel.chunk-tokens:256}") int parallelChunkTokens) {
+        this.trieInitializer = trieInitializer;
+        this.cleanVocabulary = cleanVocabulary;
+        this.detectionPipeline = detectionPipeline;
+        this.maxSeparatorGap = maxSeparatorGap;
+        this.defaultBudgetMillis = defaultBudgetMillis;
+        this.maxBudgetMillis = maxBudgetMillis;
+        this.budgetUnits = budgetUnits;
+        this.parallelMinTokens = parallelMinTokens;
+        this.parallelChunkTokens = Math.max(1, parallelChunkTokens);
+        this.analysisPool = executors.analysis();
+        // Rough retained size per entry: map node, key String and its chars, versioned score
+        this.wordScoreCache = new TinyLfuCache<>("moderation.word-score", wordScoreCacheBytes,
+            (token, score) -> 120 + 2L * token.length());
+        
+        // Keys hold a fingerprint rather than the text; a response's weight grows with its terms and matches
+        this.messageCache = new TinyLfuCache<>("moderation.message", messageCacheBytes,
+            (key, result) -> result.estimatedBytes(), TimeUnit.SECONDS.toNanos(messageCacheTtlSeconds));
+        // A verdict is a fixed-size flag and confidence, so its cache gets a smaller budget of its own
+        this.verdictCache = new TinyLfuCache<>("moderation.verdict", verdictCacheBytes,
+            (key, verdict) -> 160, TimeUnit.SECONDS.toNanos(messageCacheTtlSeconds));
+        
+        new TinyLfuCacheMetrics(wordScoreCache, Tags.empty()).bindTo(meterRegistry);
+        new TinyLfuCacheMetrics(messageCache, Tags.empty()).bindTo(meterRegistry);
+        new TinyLfuCacheMetrics(verdictCache, Tags.empty()).bindTo(meterRegistry);
+        Gauge.builder("moderation.prefilter.false.positive.rate", trieInitializer,
+                initializer -> initializer.getSnapshot().getOffensivePrefilter().getFalsePositiveRate())
+            .description("Configured false-positive rate of the dictionary prefilter")
+            .register(meterRegistry);
+        this.degradedAnalyses = Counter.builder("moderation.analysis.degraded")
+            .description("Analyses that ran out of work budget and returned partial results")
+            .register(meterRegistry);
     }
 
     public ModerationResponse analyze(String input) {
+        return analyze(input, null);
+    }
+    
+    /**
+     * Analyzes {@code input} within a budget of {@code budgetMillis}, or the configured default when
+     * null; the budget is capped at the configured maximum. When it runs out the Levenshtein and fuzzy
+     * stages stop early and the response is marked degraded instead of holding the thread.
+     * A message with the same normalized text as one already analyzed against the same dictionary
+     * version, typed alike up to case, is answered from the message cache without tokenizing it again.
+     * The normalized text keeps single and double spaces apart, so spacing shares an entry only where
+     * normalization caps a longer run. Degraded results are never cached.
+     */
+    public ModerationResponse analyze(String input, Long budgetMillis) {
         if (input == null || input.isBlank()) {
             return new ModerationResponse(false, 0.0, "Empty Input", Map.of());
         }
 
-        AnalysisResult result = performComprehensiveAnalysis(input);
+        // One snapshot per request, so every stage sees the same dictionary version
+        DictionarySnapshot dictionary = trieInitializer.getSnapshot();
+        TextNormalizer.Normalized normalized = TextNormalizer.normalizeWithOffsets(input);
+        MessageKey key = MessageKey.analysis(messageSpelling(input, normalized), dictionary.getVersion());
+        MessageResult cached = messageCache.get(key);
+        if (cached != null) {
+            return cached.toResponse(normalized, false);
+        }
         
+        WorkBudget budget = newBudget(budgetMillis);
+        AnalysisResult result = performComprehensiveAnalysis(input, normalized, dictionary, budget);
         boolean isOffensive = result.maxConfidence >= OFFENSIVE_THRESHOLD && !result.offensiveTerms.isEmpty();
-        String message = generateDetailedMessage(result, isOffensive);
+        MessageResult messageResult = new MessageResult(isOffensive, result.maxConfidence,
+            generateDetailedMessage(result, isOffensive), result.offensiveTerms, result.matches);
+        if (budget.isExhausted()) {
+            degradedAnalyses.increment();
+        } else {
+            messageCache.put(key, messageResult);
+        }
+        return messageResult.toResponse(normalized, budget.isExhausted());
+    }
+    
+    public ModerationVerdict verdict(String input, double threshold) {
+        return verdict(input, threshold, null);
+    }
+    
+    /**
+     * Yes/no answer to whether the message confidence {@link #analyze} computes for {@code input}
+     * reaches {@code threshold}, without the term map, match list or message it builds. Split
+     * spellings and tokens with a dictionary hit are judged first, and known-clean words are never
+     * left pending. Scoring stops as soon as a lower bound on the message confidence meets the
+     * threshold, whatever the remaining tokens turn out to be, so they never reach the phonetic or
+     * fuzzy stages; the verdict then carries that bound. Otherwise every token is scored and the
+     * verdict carries the message confidence itself, so both endpoints flag the same content. The
+     * budget works as in {@link #analyze(String, Long)}.
+     */
+    public ModerationVerdict verdict(String input, double threshold, Long budgetMillis) {
+        if (input == null || input.isBlank()) {
+            return new ModerationVerdict(false, 0.0);
+        }
         
-        return new ModerationResponse(
-            isOffensive, 
-            result.maxConfidence, 
-            message, 
-            result.offensiveTerms
-        );
+        DictionarySnapshot dictionary = trieInitializer.getSnapshot();
+        TextNormalizer.Normalized normalized = TextNormalizer.normalizeWithOffsets(input);
+        MessageKey key = MessageKey.verdict(messageSpelling(input, normalized), dictionary.getVersion(), threshold);
+        ModerationVerdict cached = verdictCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        WorkBudget budget = newBudget(budgetMillis);
+        ModerationVerdict verdict = decideVerdict(input, normalized, threshold, dictionary, budget);
+        if (budget.isExhausted()) {
+            degradedAnalyses.increment();
+        } else {
+            verdictCache.put(key, verdict);
+        }
+        return verdict;
+    }
+    
+    private ModerationVerdict decideVerdict(String input, TextNormalizer.Normalized normalized, double threshold,
+                                           DictionarySnapshot dictionary, WorkBudget budget) {
+        TokenScan scan = scanTokens(input, normalized, dictionary);
+        
+        // Confidences are kept by position and summed in the order analyze sums them; once nothing is
+        // pending the exact sum below decides, so a fully scored verdict reports what analyze reports
+        double[] splitConfidences = new double[scan.splitMatches.size()];
+        double[] tokenConfidences = new double[scan.tokenCount];
+        Set<String> offensiveTerms = new HashSet<>();
+        double totalConfidence = 0.0;
+        int detectionCount = 0;
+        // Known-clean words without a dictionary hit are what analyzeToken rules out first; they add no
+        // detection, so they are skipped instead of being left pending
+        boolean[] knownClean = new boolean[scan.tokenCount];
+        int pending = splitConfidences.length;
+        for (int i = 0; i < scan.tokenCount; i++) {
+            if (scan.inSplitMatch[i]) continue;
+            knownClean[i] = scan.dictionaryHits[i] == null
+                && cleanVocabulary.contains(scan.text, scan.spans[2 * i], scan.spans[2 * i + 1], scan.dictionary);
+            if (!knownClean[i]) pending++;
+        }
+        
+        for (int m = 0; m < splitConfidences.length; m++) {
+            AhoCorasick.Match split = scan.splitMatches.get(m);
+            double confidence = scoreSplitMatch(split, scan.splitTask(split, budget));
+            pending--;
+            if (confidence > 0.0) {
+                splitConfidences[m] = confidence;
+                offensiveTerms.add(scan.text.substring(split.start, split.end));
+                totalConfidence += confidence;
+                detectionCount++;
+                double bound = confidenceLowerBound(totalConfidence, detectionCount, pending, offensiveTerms.size(), scan.tokenCount);
+                if (pending > 0 && bound >= threshold) return new ModerationVerdict(true, bound, budget.isExhausted());
+            }
+        }
+        
+        // Tokens with a dictionary hit first, then the rest
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < scan.tokenCount; i++) {
+                if (scan.inSplitMatch[i] || knownClean[i] || (scan.dictionaryHits[i] != null) != (pass == 0)) continue;
+                DetectionResult result = analyzeToken(scan.task(i, budget));
+                pending--;
+                if (result.isOffensive) {
+                    tokenConfidences[i] = result.confidence;
+                    offensiveTerms.add(result.originalToken);
+                    totalConfidence += result.confidence;
+                    detectionCount++;
+                    double bound = confidenceLowerBound(totalConfidence, detectionCount, pending, offensiveTerms.size(), scan.tokenCount);
+                    if (pending > 0 && bound >= threshold) return new ModerationVerdict(true, bound, budget.isExhausted());
+                }
+            }
+        }
+        
+        double orderedTotal = 0.0;
+        for (double confidence : splitConfidences) orderedTotal += confidence;
+        for (double confidence : tokenConfidences) orderedTotal += confidence;
+        double finalConfidence = detectionCount > 0 ?
+            Math.min(1.0, (orderedTotal / detectionCount) * calculateSeverityMultiplier(offensiveTerms.size(), scan.tokenCount)) : 0.0;
+        return new ModerationVerdict(detectionCount > 0 && finalConfidence >= threshold, finalConfidence,
+            budget.isExhausted());
+    }
+    
+    /**
+     * Least message confidence the unscored candidates can still leave. Each may add a detection at a
+     * confidence as low as zero, which lowers the average at most to the total over every possible
+     * detection, while the distinct terms found so far already fix a floor under the density multiplier.
+     */
+    private double confidenceLowerBound(double totalConfidence, int detectionCount, int pending, int distinctTerms,
+                                        int tokenCount) {
+        double average = totalConfidence / (detectionCount + pending);
+        return Math.min(1.0, average * calculateSeverityMultiplier(distinctTerms, tokenCount));
+    }
+    
+    private WorkBudget newBudget(Long budgetMillis) {
+        long millis = budgetMillis != null && budgetMillis > 0 ? budgetMillis : defaultBudgetMillis;
+        return WorkBudget.of(maxBudgetMillis > 0 ? Math.min(millis, maxBudgetMillis) : millis, budgetUnits);
+    }
+    
+    private TokenScan scanTokens(String input, TextNormalizer.Normalized normalized, DictionarySnapshot dictionary) {
+        String text = normalized.text;
+        int[] spans = TextNormalizer.tokenizeSpans(text);
+        // One scan finds contiguous hits and spellings split across separators
+        List<AhoCorasick.Match> scanned = dictionary.getOffensiveScanner().scan(text, maxSeparatorGap, SEPARATOR);
+        List<AhoCorasick.Match> splitMatches = selectSplitMatches(spans, scanned);
+        boolean[] inSplitMatch = new boolean[spans.length / 2];
+        for (AhoCorasick.Match split : splitMatches) {
+            Arrays.fill(inSplitMatch, tokenAt(spans, split.start), tokenAt(spans, split.end - 1) + 1, true);
+        }
+        return new TokenScan(input, normalized, spans, assignDictionaryHits(spans, scanned), splitMatches, inSplitMatch,
+            contextFeatures(text, spans, dictionary.getSafeDictionary()), dictionary);
     }
     
-    private AnalysisResult performComprehensiveAnalysis(String input) {
-        String normalized = TextNormalizer.normalize(input);
-        List<String> tokens = TextNormalizer.tokenize(normalized);
+    // Match offsets are into the normalized text; MessageResult maps them back to the input
+    private AnalysisResult performComprehensiveAnalysis(String input, TextNormalizer.Normalized normalized,
+                                                        DictionarySnapshot dictionary, WorkBudget budget) {
+        TokenScan scan = scanTokens(input, normalized, dictionary);
+        String text = scan.text;
+        int[] spans = scan.spans;
+        int tokenCount = scan.tokenCount;
         
         Map<String, Double> offensiveTerms = new ConcurrentHashMap<>();
+        List<ModerationResponse.TermMatch> matches = new ArrayList<>();
         double totalConfidence = 0.0;
         int detectionCount = 0;
 
-
-        for (int i = 0; i < tokens.size(); i++) {
-            DetectionTask task = new DetectionTask(tokens.get(i), i, tokens);
-            DetectionResult result = analyzeToken(task);
-            if (result.isOffensive) {
-                offensiveTerms.put(result.originalToken, result.confidence);
-                totalConfidence += result.confidence;
+        for (AhoCorasick.Match split : scan.splitMatches) {
+            double confidence = scoreSplitMatch(split, scan.splitTask(split, budget));
+            if (confidence > 0.0) {
+                offensiveTerms.put(text.substring(split.start, split.end), confidence);
+                matches.add(new ModerationResponse.TermMatch(split.term, split.start, split.end, confidence,
+                    SPLIT_OBFUSCATION));
+                totalConfidence += confidence;
                 detectionCount++;
             }
         }
+
+        // Tokens may be scored in parallel; results are folded in token order either way
+        DetectionResult[] results = tokenCount > 0 && tokenCount >= parallelMinTokens && analysisPool.getRequestParallelism() > 1
+            ? scoreTokensInParallel(scan, budget)
+            : scoreTokens(scan, 0, tokenCount, budget, new DetectionResult[tokenCount]);
+        for (int i = 0; i < tokenCount; i++) {
+            DetectionResult result = results[i];
+            if (result == null || !result.isOffensive) continue;
+            int start = spans[2 * i];
+            int end = spans[2 * i + 1];
+            offensiveTerms.put(result.originalToken, result.confidence);
+            matches.add(new ModerationResponse.TermMatch(result.originalToken, start, end, result.confidence,
+                result.obfuscation));
+            totalConfidence += result.confidence;
+            detectionCount++;
+        }
         
         double finalConfidence = detectionCount > 0 ? 
-            (totalConfidence / detectionCount) * calculateSeverityMultiplier(offensiveTerms.size(), tokens.size()) : 0.0;
+            (totalConfidence / detectionCount) * calculateSeverityMultiplier(offensiveTerms.size(), tokenCount) : 0.0;
             
         return new AnalysisResult(
             Math.min(1.0, finalConfidence),
             finalConfidence,
-            offensiveTerms
+            offensiveTerms,
+            matches
         );
     }
     
-    private DetectionResult analyzeToken(DetectionTask task) {
-        String token = task.token;
-        
-        // This checks cache first
-        if (wordScoreCache.containsKey(token)) {
-            double cachedScore = wordScoreCache.get(token);
-            return new DetectionResult(cachedScore > 0, cachedScore, token);
+    // Scores tokens [from, to) into results; tokens that are pieces of a split spelling were judged as part of it
+    private DetectionResult[] scoreTokens(TokenScan scan, int from, int to, WorkBudget budget, DetectionResult[] results) {
+        for (int i = from; i < to; i++) {
+            if (!scan.inSplitMatch[i]) results[i] = analyzeToken(scan.task(i, budget));
         }
+        return results;
+    }
+    
+    /**
+     * Scores the tokens of a long input in chunks on the analysis pool, at most the pool's
+     * per-request parallelism of them. Context bits were settled over the whole sequence by the scan,
+     * so chunks need no overlap, and each token's result is the one the sequential loop would give.
+     * Each chunk charges its own share of the budget; when the pool is full the whole input is scored
+     * on this thread against the budget itself.
+     */
+    private DetectionResult[] scoreTokensInParallel(TokenScan scan, WorkBudget budget) {
+        int n = scan.tokenCount;
+        int chunks = Math.max(1, Math.min((n + parallelChunkTokens - 1) / parallelChunkTokens,
+            analysisPool.getRequestParallelism()));
+        int chunkTokens = (n + chunks - 1) / chunks;
+        WorkBudget[] shares = new WorkBudget[chunks];
+        for (int c = 0; c < chunks; c++) shares[c] = budget.share(chunks);
         
-        double maxConfidence = 0.0;
-        boolean isOffensive = false;
-        
-        // 1. Safe word bypass
-        if (isSafeWordContext(task)) {
-            wordScoreCache.put(token, 0.0);
-            return new DetectionResult(false, 0.0, token);
-        }
+        DetectionResult[] results = new DetectionResult[n];
+        analysisPool.invoke(new ScoreChunks((from, to, share) -> scoreTokens(scan, from, to, share, results),
+                n, 0, chunks, chunkTokens, shares),
+            () -> {
+                scoreTokens(scan, 0, n, budget, results);
+                return null;
+            });
+        for (WorkBudget share : shares) budget.absorb(share);
+        return results;
+    }
+    
+    // Each token keeps its best contiguous hit (whole-token over embedded, then longest)
+    private AhoCorasick.Match[] assignDictionaryHits(int[] spans, List<AhoCorasick.Match> scanned) {
+        AhoCorasick.Match[] hits = new AhoCorasick.Match[spans.length / 2];
+        if (hits.length == 0) return hits;
         
-        // 2. Exact match against Trie
-        Trie.DetectionResult exactMatch = offensiveTrie.contains(token);
-        if (exactMatch.isOffensive) {
-            maxConfidence = EXACT_MATCH_WEIGHT * exactMatch.confidence;
-            isOffensive = true;
+        for (AhoCorasick.Match match : scanned) {
+            if (isSplit(match)) continue;
+            int i = tokenAt(spans, match.start);
+            if (i < 0 || match.end > spans[2 * i + 1]) continue;
+            
+            int tokenLength = spans[2 * i + 1] - spans[2 * i];
+            boolean wholeToken = match.end - match.start == tokenLength;
+            if (!wholeToken && match.term.length() < MIN_EMBEDDED_TERM_LENGTH) continue;
+            
+            AhoCorasick.Match current = hits[i];
+            if (current == null || wholeToken
+                || (current.term.length() != tokenLength && match.term.length() > current.term.length())) {
+                hits[i] = match;
+            }
         }
-        
-        // 3. Phonetic matching using Soundex
-        if (!isOffensive) {
-            String soundex = TrieInitializer.computeSoundex(token);
-            Trie.DetectionResult phoneticMatch = offensiveTrie.containsPhonetic(soundex);
-            if (phoneticMatch.isOffensive) {
-                double phoneticConfidence = PHONETIC_MATCH_WEIGHT * phoneticMatch.confidence;
-                if (phoneticConfidence > maxConfidence) {
-                    maxConfidence = phoneticConfidence;
-                    isOffensive = true;
-                }
+        return hits;
+    }
+    
+    // Split hits spanning two or more tokens, longest first among overlaps; split hits inside one token are left to stage 4
+    private static List<AhoCorasick.Match> selectSplitMatches(int[] spans, List<AhoCorasick.Match> scanned) {
+        List<AhoCorasick.Match> candidates = new ArrayList<>();
+        for (AhoCorasick.Match match : scanned) {
+            if (isSplit(match) && tokenAt(spans, match.start) != tokenAt(spans, match.end - 1)) {
+                candidates.add(match);
             }
         }
+        if (candidates.isEmpty()) return candidates;
         
-        // 4. Obfuscation detection
-        if (!isOffensive) {
-            String deobfuscated = NoiseDetector.removeObfuscation(token);
-            if (!deobfuscated.equals(token)) {
-                Trie.DetectionResult obfuscatedMatch = offensiveTrie.contains(deobfuscated);
-                if (obfuscatedMatch.isOffensive) {
-                    double obfuscationScore = NoiseDetector.calculateObfuscationScore(token, deobfuscated);
-                    double obfuscationConfidence = OBFUSCATION_MATCH_WEIGHT * obfuscatedMatch.confidence * (1.0 - obfuscationScore * 0.3);
-                    if (obfuscationConfidence > maxConfidence) {
-                        maxConfidence = obfuscationConfidence;
-                        isOffensive = true;
-                    }
-                }
+        candidates.sort(Comparator.<AhoCorasick.Match>comparingInt(match -> match.start)
+            .thenComparingInt(match -> match.start - match.end));
+        List<AhoCorasick.Match> selected = new ArrayList<>();
+        int coveredUntil = -1;
+        for (AhoCorasick.Match match : candidates) {
+            if (match.start >= coveredUntil) {
+                selected.add(match);
+                coveredUntil = match.end;
             }
         }
+        return selected;
+    }
+    
+    private static boolean isSplit(AhoCorasick.Match match) {
+        return match.end - match.start != match.term.length();
+    }
+    
+    private double scoreSplitMatch(AhoCorasick.Match split, DetectionTask task) {
+        double confidence = VariantStage.OBFUSCATION_MATCH_WEIGHT * task.dictionary.getOffensiveDictionary().matchConfidence(split.term);
+        if (confidence <= 0.0 || isSafeWord(task)) return 0.0;
+        return hasNegativeContext(task) ? confidence * (1.0 - CONTEXT_PENALTY) : confidence;
+    }
+    
+    // Index of the last token starting at or before offset, or -1
+    private static int tokenAt(int[] spans, int offset) {
+        int low = 0;
+        int high = spans.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (spans[2 * mid] <= offset) low = mid + 1;
+            else high = mid - 1;
+        }
+        return high;
+    }
+    
+    private DetectionResult analyzeToken(DetectionTask task) {
+        // Known-clean words take no further stage and stay out of the cache
+        if (cleanVocabulary.contains(task.text, task.start, task.end, task.dictionary)) {
+            return CLEAN_WORD;
+        }
         
-        // 5. Levenshtein distance matching
-        if (!isOffensive) {
-            Set<String> offensiveWords = offensiveTrie.getAllWords();
-            List<String> similarWords = LevenshteinDistance.findSimilarWords(token, offensiveWords, 0.7);
-            
-            for (String similarWord : similarWords) {
-                int distance = LevenshteinDistance.computeDistance(token, similarWord, MAX_LEVENSHTEIN_DISTANCE);
-                if (distance <= MAX_LEVENSHTEIN_DISTANCE) {
-                    double similarity = LevenshteinDistance.computeSimilarity(token, similarWord);
-                    double levenshteinConfidence = LEVENSHTEIN_MATCH_WEIGHT * similarity;
-                    if (levenshteinConfidence > maxConfidence) {
-                        maxConfidence = levenshteinConfidence;
-                        isOffensive = true;
-                    }
-                }
-            }
+        // The token is the one String materialised per token, unless normalization rewrote its spelling
+        String token = task.text.substring(task.start, task.end);
+        String rawToken = task.rawToken(token);
+        
+        // Context-free score is cached per spelling and dictionary version; context is applied per occurrence.
+        // The variant stage reads the raw spelling, so a rewritten token is cached under both forms.
+        // Scores cut short by the budget are not cached
+        String cacheKey = rawToken == token ? token : token + '\0' + rawToken;
+        long version = task.dictionary.getVersion();
+        VersionedScore cachedScore = wordScoreCache.get(cacheKey);
+        if (cachedScore == null || cachedScore.version != version) {
+            cachedScore = scoreToken(token, rawToken, task.dictionaryHit, task.dictionary, task.budget);
+            onDictionaryVersion(version);
+            if (!task.budget.isExhausted()) wordScoreCache.put(cacheKey, cachedScore);
         }
+        double score = cachedScore.score;
         
-        // 6. Fuzzy search within Trie
-        if (!isOffensive) {
-            List<Trie.DetectionResult> fuzzyResults = offensiveTrie.fuzzySearch(token, MAX_FUZZY_DISTANCE);
-            for (Trie.DetectionResult fuzzyResult : fuzzyResults) {
-                if (fuzzyResult.isOffensive) {
-                    double fuzzyConfidence = FUZZY_MATCH_WEIGHT * fuzzyResult.confidence;
-                    if (fuzzyConfidence > maxConfidence) {
-                        maxConfidence = fuzzyConfidence;
-                        isOffensive = true;
-                        break;
-                    }
-                }
-            }
+        if (score <= 0.0 || isSafeWord(task)) {
+            return new DetectionResult(false, 0.0, token);
         }
         
         // Context penalty
-        if (isOffensive && hasNegativeContext(task)) {
-            maxConfidence *= (1.0 - CONTEXT_PENALTY);
+        if (hasNegativeContext(task)) {
+            score *= (1.0 - CONTEXT_PENALTY);
         }
         
-        // Result is cached
-        wordScoreCache.put(token, isOffensive ? maxConfidence : 0.0);
-        
-        return new DetectionResult(isOffensive, maxConfidence, token);
+        return new DetectionResult(true, score, token, cachedScore.obfuscation);
     }
     
-    private boolean isSafeWordContext(DetectionTask task) {
-        String token = task.token;
-        List<String> tokens = task.allTokens;
-        int index = task.index;
-
-        if (safeTrie.contains(token).isOffensive) return true;
-
-
-        int contextWindow = 2;
-        for (int i = Math.max(0, index - contextWindow); 
-             i < Math.min(tokens.size(), index + contextWindow + 1); i++) {
-            if (i != index && safeTrie.contains(tokens.get(i)).isOffensive) {
-                return true;
-            }
+    // Runs the detection stages on the token alone; the result must not depend on neighbouring tokens.
+    // The Levenshtein and fuzzy stages charge the budget and stop early once it is spent
+    private VersionedScore scoreToken(String token, String rawToken, AhoCorasick.Match dictionaryHit,
+                                      DictionarySnapshot dictionary, WorkBudget budget) {
+        // Safe words are never scored
+        if (dictionary.getSafeDictionary().matchConfidence(token) > 0.0) {
+            return new VersionedScore(dictionary.getVersion(), 0.0, List.of());
         }
         
-        return false;
+        StageMatch match = detectionPipeline.detect(new DetectionInput(token, rawToken, dictionaryHit, dictionary, budget));
+        return match == null
+            ? new VersionedScore(dictionary.getVersion(), 0.0, List.of())
+            : new VersionedScore(dictionary.getVersion(), match.confidence, match.obfuscation);
     }
     
-    private boolean hasNegativeContext(DetectionTask task) {
-        List<String> negationWords = List.of("not", "never", "without", "except", "but", "neither", "nor", "hardly", "barely");
-        List<String> tokens = task.allTokens;
-        int index = task.index;
+    // Entries scored against an older snapshot are dropped as soon as a newer version is seen
+    private void onDictionaryVersion(long version) {
+        long seen = wordScoreVersion.get();
+        if (version > seen && wordScoreVersion.compareAndSet(seen, version)) {
+            wordScoreCache.clear();
+        }
+    }
+    
+    /**
+     * Context bits for every token in one forward pass. Each token's own kind is looked up once as it
+     * is reached, and a running count over the tokens just behind it settles the negation bit of the
+     * earlier token whose window ends here, so later checks are single array reads.
+     */
+    static byte[] contextFeatures(String text, int[] spans, WordDictionary safeDictionary) {
+        int count = spans.length / 2;
+        byte[] context = new byte[count];
+        int negations = 0;    // negation words among tokens [j - NEGATION_BEFORE - NEGATION_AFTER, j]
         
-        // This checks for Negative Context in the Fixed Window Length(2)
-        for (int i = Math.max(0, index - 2); i < Math.min(tokens.size(), index + 2); i++) {
-            if (negationWords.contains(tokens.get(i).toLowerCase())) {
-                return true;
+        for (int j = 0; j < count + NEGATION_AFTER; j++) {
+            if (j < count) {
+                int start = spans[2 * j];
+                int end = spans[2 * j + 1];
+                if (safeDictionary.matchConfidence(text, start, end) > 0.0) {
+                    context[j] |= SAFE_WORD;
+                }
+                if (NEGATIONS.contains(text, start, end)) {
+                    context[j] |= NEGATION_WORD;
+                    negations++;
+                }
+            }
+            int leavingNegation = j - NEGATION_BEFORE - NEGATION_AFTER - 1;
+            if (leavingNegation >= 0 && (context[leavingNegation] & NEGATION_WORD) != 0) negations--;
+            
+            int negated = j - NEGATION_AFTER;
+            if (negated >= 0 && negated < count && negations > 0) {
+                context[negated] |= NEGATED;
             }
         }
-        
-        return false;
+        return context;
+    }
+    
+    // Only the tokens a safe word covers are cleared; its neighbours are scored as usual
+    private static boolean isSafeWord(DetectionTask task) {
+        return (task.context & SAFE_WORD) != 0;
+    }
+    
+    private static boolean hasNegativeContext(DetectionTask task) {
+        return (task.context & NEGATED) != 0;
     }
     
     private double calculateSeverityMultiplier(int offensiveCount, int totalTokens) {
@@ -232,16 +563,163 @@ public class ModerationService {
         return String.format("Low confidence content flagged (%d terms)", termCount);
     }
     
+    /**
+     * What the message and verdict caches key a message by: its normalized text, followed by the
+     * input itself when normalization changed more than case and whitespace runs. The variant stage
+     * scores tokens as typed, so inputs that normalize alike share an entry only when they were
+     * typed alike.
+     */
+    private static String messageSpelling(String input, TextNormalizer.Normalized normalized) {
+        String text = normalized.text;
+        int i = 0;
+        int j = 0;
+        while (true) {
+            while (i < input.length() && Character.isWhitespace(input.charAt(i))) i++;
+            while (j < text.length() && Character.isWhitespace(text.charAt(j))) j++;
+            if (i == input.length() || j == text.length()) break;
+            if (Character.toLowerCase(input.charAt(i)) != text.charAt(j)) break;
+            i++;
+            j++;
+        }
+        return i == input.length() && j == text.length() ? text : text + '\0' + input;
+    }
+    
+    // Whether input[from, to) lower-cases to token
+    private static boolean sameSpelling(String input, int from, int to, String token) {
+        if (to - from != token.length()) return false;
+        for (int k = 0; k < token.length(); k++) {
+            if (Character.toLowerCase(input.charAt(from + k)) != token.charAt(k)) return false;
+        }
+        return true;
+    }
+    
     // Helper classes
     private static class DetectionTask {
-        final String token;
+        final String input;
+        final TextNormalizer.Normalized normalized;
+        final String text;
+        final int[] spans;
         final int index;
-        final List<String> allTokens;
+        final int start;
+        final int end;
+        final byte context;
+        final AhoCorasick.Match dictionaryHit;
+        final DictionarySnapshot dictionary;
+        final WorkBudget budget;
         
-        DetectionTask(String token, int index, List<String> allTokens) {
-            this.token = token;
+        DetectionTask(String input, TextNormalizer.Normalized normalized, int[] spans, int index, byte context,
+                      AhoCorasick.Match dictionaryHit, DictionarySnapshot dictionary, WorkBudget budget) {
+            this.input = input;
+            this.normalized = normalized;
+            this.text = normalized.text;
+            this.spans = spans;
             this.index = index;
-            this.allTokens = allTokens;
+            this.start = spans[2 * index];
+            this.end = spans[2 * index + 1];
+            this.context = context;
+            this.dictionaryHit = dictionaryHit;
+            this.dictionary = dictionary;
+            this.budget = budget;
+        }
+        
+        // The token's span of the input, or token itself when normalization changed no more than its case
+        String rawToken(String token) {
+            int from = normalized.sourceStart(start, end);
+            int to = normalized.sourceEnd(start, end);
+            return sameSpelling(input, from, to, token) ? token : input.substring(from, to);
+        }
+    }
+    
+    // Normalized text with its token spans and everything the single scan settles for them
+    private static class TokenScan {
+        final String input;
+        final TextNormalizer.Normalized normalized;
+        final String text;
+        final int[] spans;
+        final int tokenCount;
+        final AhoCorasick.Match[] dictionaryHits;
+        final List<AhoCorasick.Match> splitMatches;
+        final boolean[] inSplitMatch;
+        final byte[] context;
+        final DictionarySnapshot dictionary;
+        
+        TokenScan(String input, TextNormalizer.Normalized normalized, int[] spans, AhoCorasick.Match[] dictionaryHits,
+                  List<AhoCorasick.Match> splitMatches, boolean[] inSplitMatch, byte[] context, DictionarySnapshot dictionary) {
+            this.input = input;
+            this.normalized = normalized;
+            this.text = normalized.text;
+            this.spans = spans;
+            this.tokenCount = spans.length / 2;
+            this.dictionaryHits = dictionaryHits;
+            this.splitMatches = splitMatches;
+            this.inSplitMatch = inSplitMatch;
+            this.context = context;
+            this.dictionary = dictionary;
+        }
+        
+        DetectionTask task(int index, WorkBudget budget) {
+            return new DetectionTask(input, normalized, spans, index, context[index], dictionaryHits[index], dictionary,
+                budget);
+        }
+        
+        // A split spelling takes the context of its first token, and is safe when any token it spans is
+        DetectionTask splitTask(AhoCorasick.Match split, WorkBudget budget) {
+            int first = tokenAt(spans, split.start);
+            byte splitContext = context[first];
+            for (int i = first + 1; i <= tokenAt(spans, split.end - 1); i++) {
+                splitContext |= context[i] & SAFE_WORD;
+            }
+            return new DetectionTask(input, normalized, spans, first, splitContext, null, dictionary, budget);
+        }
+    }
+    
+    // Scores tokens [from, to) against the given budget
+    private interface RangeScorer {
+        void score(int from, int to, WorkBudget budget);
+    }
+    
+    // Chunks [from, to) of the token sequence, halved until one chunk is left to score
+    private static class ScoreChunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final transient RangeScorer scorer;
+        private final int tokenCount;
+        private final int from;
+        private final int to;
+        private final int chunkTokens;
+        private final transient WorkBudget[] shares;
+        
+        ScoreChunks(RangeScorer scorer, int tokenCount, int from, int to, int chunkTokens, WorkBudget[] shares) {
+            this.scorer = scorer;
+            this.tokenCount = tokenCount;
+            this.from = from;
+            this.to = to;
+            this.chunkTokens = chunkTokens;
+            this.shares = shares;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int start = from * chunkTokens;
+                scorer.score(start, Math.min(tokenCount, start + chunkTokens), shares[from]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreChunks(scorer, tokenCount, from, mid, chunkTokens, shares),
+                new ScoreChunks(scorer, tokenCount, mid, to, chunkTokens, shares));
+        }
+    }
+    
+    private static class VersionedScore {
+        final long version;
+        final double score;
+        final List<String> obfuscation;
+        
+        VersionedScore(long version, double score, List<String> obfuscation) {
+            this.version = version;
+            this.score = score;
+            this.obfuscation = obfuscation;
         }
     }
     
@@ -249,11 +727,93 @@ public class ModerationService {
         final boolean isOffensive;
         final double confidence;
         final String originalToken;
+        final List<String> obfuscation;
         
         DetectionResult(boolean isOffensive, double confidence, String originalToken) {
+            this(isOffensive, confidence, originalToken, List.of());
+        }
+        
+        DetectionResult(boolean isOffensive, double confidence, String originalToken, List<String> obfuscation) {
             this.isOffensive = isOffensive;
             this.confidence = confidence;
             this.originalToken = originalToken;
+            this.obfuscation = obfuscation;
+        }
+    }
+    
+    /**
+     * Everything {@link #analyze(String, Long)} reports for one normalized text, with match offsets
+     * into that text. Inputs that normalize alike share it and differ only in where the matches fall
+     * in their own characters.
+     */
+    private static class MessageResult {
+        final boolean isOffensive;
+        final double confidence;
+        final String message;
+        final Map<String, Double> offensiveTerms;
+        final List<ModerationResponse.TermMatch> matches;
+        
+        MessageResult(boolean isOffensive, double confidence, String message, Map<String, Double> offensiveTerms,
+                      List<ModerationResponse.TermMatch> matches) {
+            this.isOffensive = isOffensive;
+            this.confidence = confidence;
+            this.message = message;
+            this.offensiveTerms = Collections.unmodifiableMap(offensiveTerms);
+            this.matches = matches;
+        }
+        
+        ModerationResponse toResponse(TextNormalizer.Normalized normalized, boolean degraded) {
+            List<ModerationResponse.TermMatch> sourceMatches = new ArrayList<>(matches.size());
+            for (ModerationResponse.TermMatch match : matches) {
+                sourceMatches.add(new ModerationResponse.TermMatch(match.term,
+                    normalized.sourceStart(match.start, match.end),
+                    normalized.sourceEnd(match.start, match.end),
+                    match.confidence,
+                    match.obfuscation));
+            }
+            return new ModerationResponse(isOffensive, confidence, message, offensiveTerms, sourceMatches, degraded);
+        }
+        
+        // Rough retained size: the result and its message, then a map entry per term and an object per match
+        long estimatedBytes() {
+            long bytes = 200 + 2L * message.length();
+            for (String term : offensiveTerms.keySet()) bytes += 100 + 2L * term.length();
+            return bytes + 120L * matches.size();
+        }
+    }
+    
+    // Fingerprint of a message's spelling, the dictionary version it was judged against, and the call's options
+    private static class MessageKey {
+        private static final long ANALYSIS = -1L;
+        
+        final Fingerprint128 text;
+        final long dictionaryVersion;
+        // ANALYSIS for analyze, else the bits of the verdict threshold
+        final long options;
+        
+        private MessageKey(Fingerprint128 text, long dictionaryVersion, long options) {
+            this.text = text;
+            this.dictionaryVersion = dictionaryVersion;
+            this.options = options;
+        }
+        
+        static MessageKey analysis(String spelling, long dictionaryVersion) {
+            return new MessageKey(Fingerprint128.of(spelling), dictionaryVersion, ANALYSIS);
+        }
+        
+        static MessageKey verdict(String spelling, long dictionaryVersion, double threshold) {
+            return new MessageKey(Fingerprint128.of(spelling), dictionaryVersion, Double.doubleToLongBits(threshold));
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof MessageKey that && text.equals(that.text)
+                && dictionaryVersion == that.dictionaryVersion && options == that.options;
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * (31 * text.hashCode() + Long.hashCode(dictionaryVersion)) + Long.hashCode(options);
         }
     }
     
@@ -261,11 +821,14 @@ public class ModerationService {
         final double maxConfidence;
         final double averageConfidence;
         final Map<String, Double> offensiveTerms;
+        final List<ModerationResponse.TermMatch> matches;
         
-        AnalysisResult(double maxConfidence, double averageConfidence, Map<String, Double> offensiveTerms) {
+        AnalysisResult(double maxConfidence, double averageConfidence, Map<String, Double> offensiveTerms,
+                       List<ModerationResponse.TermMatch> matches) {
             this.maxConfidence = maxConfidence;
             this.averageConfidence = averageConfidence;
             this.offensiveTerms = offensiveTerms;
+            this.matches = matches;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+import com.moderation.sentinel.util.algorithm.ahocorasick.AhoCorasick;
+import com.moderation.sentinel.util.algorithm.budget.WorkBudget;
+import com.moderation.sentinel.util.algorithm.trie.DictionarySnapshot;
+
+/**
+ * A token on its way through the stages, with the scan's dictionary hit for it (or null), the
+ * request's dictionary snapshot and its work budget.
+ */
+public class DetectionInput {
+    public final String token;
+    // The token as it was typed, before normalization; the same String as token when only case changed
+    public final String rawToken;
+    public final AhoCorasick.Match dictionaryHit;
+    public final DictionarySnapshot dictionary;
+    public final WorkBudget budget;
+    // Largest distance the prefilter has ruled out for this token, or -1
+    private int rejectedDistance = -1;
+
+    public DetectionInput(String token, AhoCorasick.Match dictionaryHit, DictionarySnapshot dictionary, WorkBudget budget) {
+        this(token, token, dictionaryHit, dictionary, budget);
+    }
+
+    public DetectionInput(String token, String rawToken, AhoCorasick.Match dictionaryHit, DictionarySnapshot dictionary,
+                          WorkBudget budget) {
+        this.token = token;
+        this.rawToken = rawToken;
+        this.dictionaryHit = dictionaryHit;
+        this.dictionary = dictionary;
+        this.budget = budget;
+    }
+
+    /**
+     * The prefilter's answer to whether a dictionary word may be within {@code distance} edits,
+     * which starts with the token's length against the dictionary's shortest and longest word.
+     * A rejection at one distance also covers every smaller one, so later stages reuse it.
+     */
+    public boolean mayBeWithin(int distance) {
+        if (distance <= rejectedDistance) return false;
+        if (dictionary.getOffensivePrefilter().mayBeWithin(token, distance)) return true;
+        rejectedDistance = distance;
+        return false;
+    }
+}
@@ -0,0 +1,178 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Runs the enabled {@link DetectionStage}s over a token and returns the match of the stage with
+ * the lowest priority value that matches, as a fixed cascade in priority order would.
+ *
+ * Stages run in the order that has cost least per hit so far, measured from sampled latencies
+ * and observed hit rates and re-sorted every few thousand tokens. Once a stage matches, only
+ * stages that take precedence over it still run, so the order changes cost but never a result.
+ * With a minimum hit rate configured, a stage that has fallen below it after enough tokens runs on
+ * only about one in {@value #PROBE_INTERVAL} of the tokens it would otherwise take, so its hit
+ * rate can recover if traffic changes. That trades results for cost and is off by default.
+ */
+@Component
+public class DetectionPipeline {
+    private static final Logger logger = Logger.getLogger(DetectionPipeline.class.getName());
+    private static final int LATENCY_SAMPLE_INTERVAL = 16;
+    private static final int PROBE_INTERVAL = 64;
+    private static final long MIN_RUNS_FOR_HIT_RATE = 10_000;
+
+    private final List<StageRunner> runners = new ArrayList<>();
+    private final long reorderInterval;
+    private final double minHitRate;
+    private final AtomicLong detections = new AtomicLong();
+    private volatile StageRunner[] order;
+
+    @Autowired
+    public DetectionPipeline(List<DetectionStage> stages,
+                             MeterRegistry meterRegistry,
+                             @Value("${application.moderation.stages:dictionary,phonetic,variant,levenshtein,fuzzy}") String enabledStages,
+                             @Value("${application.moderation.stage-reorder-interval:4096}") long reorderInterval,
+                             @Value("${application.moderation.stage-min-hit-rate:0}") double minHitRate) {
+        this.reorderInterval = Math.max(1, reorderInterval);
+        this.minHitRate = minHitRate;
+
+        Map<String, DetectionStage> byName = new HashMap<>();
+        for (DetectionStage stage : stages) byName.put(stage.name(), stage);
+        for (String name : enabledStages.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) continue;
+            DetectionStage stage = byName.get(name);
+            if (stage == null) {
+                logger.warning("Detection stage '" + name + "' is enabled but not defined");
+                continue;
+            }
+            StageRunner runner = new StageRunner(stage);
+            runners.add(runner);
+            runner.bindTo(meterRegistry);
+        }
+        runners.sort(Comparator.comparingInt(runner -> runner.stage.priority()));
+        this.order = runners.toArray(new StageRunner[0]);
+        logger.info("Detection stages enabled: " + stageNames(order));
+    }
+
+    public StageMatch detect(DetectionInput input) {
+        StageMatch best = null;
+        int bestPriority = Integer.MAX_VALUE;
+        for (StageRunner runner : order) {
+            DetectionStage stage = runner.stage;
+            if (stage.priority() >= bestPriority) continue;
+            if (!isActive(runner) || !stage.appliesTo(input)) {
+                runner.skipped.increment();
+                continue;
+            }
+            StageMatch match = runner.run(input);
+            if (match != null) {
+                best = match;
+                bestPriority = stage.priority();
+            }
+        }
+        if (detections.incrementAndGet() % reorderInterval == 0) reorder();
+        return best;
+    }
+
+    /**
+     * Names of the enabled stages in the order they currently run.
+     */
+    public List<String> currentOrder() {
+        return stageNames(order);
+    }
+
+    private boolean isActive(StageRunner runner) {
+        if (minHitRate <= 0.0 || runner.runs() < MIN_RUNS_FOR_HIT_RATE || runner.hitRate() >= minHitRate) return true;
+        return ThreadLocalRandom.current().nextInt(PROBE_INTERVAL) == 0;
+    }
+
+    // Costs are read once before sorting, since the counts keep moving
+    private void reorder() {
+        StageRunner[] sorted = runners.toArray(new StageRunner[0]);
+        double[] costs = new double[sorted.length];
+        for (int i = 0; i < sorted.length; i++) costs[i] = sorted[i].costPerHit();
+        Integer[] indexes = new Integer[sorted.length];
+        for (int i = 0; i < indexes.length; i++) indexes[i] = i;
+        Arrays.sort(indexes, Comparator.comparingDouble(i -> costs[i]));
+        StageRunner[] next = new StageRunner[sorted.length];
+        for (int i = 0; i < next.length; i++) next[i] = sorted[indexes[i]];
+        order = next;
+    }
+
+    private static List<String> stageNames(StageRunner[] runners) {
+        return Arrays.stream(runners).map(runner -> runner.stage.name()).toList();
+    }
+
+    // A stage with its outcome counts and sampled latency
+    private static final class StageRunner {
+        final DetectionStage stage;
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder sampledNanos = new LongAdder();
+        final LongAdder samples = new LongAdder();
+
+        StageRunner(DetectionStage stage) {
+            this.stage = stage;
+        }
+
+        StageMatch run(DetectionInput input) {
+            boolean timed = ThreadLocalRandom.current().nextInt(LATENCY_SAMPLE_INTERVAL) == 0;
+            long start = timed ? System.nanoTime() : 0L;
+            StageMatch match = stage.detect(input);
+            if (timed) {
+                sampledNanos.add(System.nanoTime() - start);
+                samples.increment();
+            }
+            (match != null ? hits : misses).increment();
+            return match;
+        }
+
+        long runs() {
+            return hits.sum() + misses.sum();
+        }
+
+        // Smoothed, so a stage that has not run yet is neither free nor hopeless
+        double hitRate() {
+            return (hits.sum() + 1.0) / (runs() + 2.0);
+        }
+
+        double meanNanos() {
+            long count = samples.sum();
+            return count == 0 ? stage.estimatedCost() : (double) sampledNanos.sum() / count;
+        }
+
+        double costPerHit() {
+            return meanNanos() / hitRate();
+        }
+
+        void bindTo(MeterRegistry meterRegistry) {
+            outcomeCounter("hit", hits, meterRegistry);
+            outcomeCounter("miss", misses, meterRegistry);
+            outcomeCounter("skipped", skipped, meterRegistry);
+            Gauge.builder("moderation.stage.latency", this, StageRunner::meanNanos)
+                .tags("stage", stage.name())
+                .description("Mean sampled time per token the detection stage ran on")
+                .baseUnit("nanoseconds")
+                .register(meterRegistry);
+        }
+
+        private void outcomeCounter(String outcome, LongAdder count, MeterRegistry meterRegistry) {
+            FunctionCounter.builder("moderation.stage.tokens", count, LongAdder::sum)
+                .tags("stage", stage.name(), "outcome", outcome)
+                .description("Tokens a detection stage matched, ran on without a match, or skipped as unable to match")
+                .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+/**
+ * One step of the per-token detection cascade. Stages are Spring beans collected by
+ * {@link DetectionPipeline}; a deployment adds one by declaring a bean and listing its name in
+ * {@code application.moderation.stages}, and removes one by leaving its name out.
+ */
+public interface DetectionStage {
+
+    /**
+     * Name used in configuration and metrics.
+     */
+    String name();
+
+    /**
+     * Precedence among stages that match the same token: the lowest value wins, whichever order
+     * the stages ran in.
+     */
+    int priority();
+
+    /**
+     * Expected nanoseconds per token, used to order the stages until their latency has been measured.
+     */
+    double estimatedCost();
+
+    /**
+     * False when the stage cannot match the token, so skipping it never changes a result.
+     */
+    boolean appliesTo(DetectionInput input);
+
+    /**
+     * The stage's match for the token, or null when it finds none.
+     */
+    StageMatch detect(DetectionInput input);
+}
@@ -0,0 +1,39 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+import com.moderation.sentinel.util.algorithm.trie.Trie;
+import org.springframework.stereotype.Component;
+
+// Whole-token or embedded hit from the single-pass scan
+@Component
+public class DictionaryStage implements DetectionStage {
+    private static final double EXACT_MATCH_WEIGHT = 1.0;
+    private static final double EMBEDDED_MATCH_WEIGHT = 0.8;
+
+    @Override
+    public String name() {
+        return "dictionary";
+    }
+
+    @Override
+    public int priority() {
+        return 100;
+    }
+
+    @Override
+    public double estimatedCost() {
+        return 50;
+    }
+
+    @Override
+    public boolean appliesTo(DetectionInput input) {
+        return input.dictionaryHit != null;
+    }
+
+    @Override
+    public StageMatch detect(DetectionInput input) {
+        Trie.DetectionResult exactMatch = input.dictionary.getOffensiveDictionary().contains(input.dictionaryHit.term);
+        if (!exactMatch.isOffensive) return null;
+        boolean wholeToken = input.dictionaryHit.term.length() == input.token.length();
+        return new StageMatch((wholeToken ? EXACT_MATCH_WEIGHT : EMBEDDED_MATCH_WEIGHT) * exactMatch.confidence);
+    }
+}
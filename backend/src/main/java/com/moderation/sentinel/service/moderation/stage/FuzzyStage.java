@@ -0,0 +1,53 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+import com.moderation.sentinel.util.algorithm.trie.Trie;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Bounded fuzzy walk of the dictionary trie, for tokens the prefilter places within reach of a word
+@Component
+public class FuzzyStage implements DetectionStage {
+    private static final double FUZZY_MATCH_WEIGHT = 0.70;
+    private static final int MAX_FUZZY_DISTANCE = 3;
+    // One edit per this many characters, so short clean words are not a few edits from a term
+    private static final int CHARS_PER_EDIT = 4;
+
+    @Override
+    public String name() {
+        return "fuzzy";
+    }
+
+    @Override
+    public int priority() {
+        return 500;
+    }
+
+    @Override
+    public double estimatedCost() {
+        return 20_000;
+    }
+
+    @Override
+    public boolean appliesTo(DetectionInput input) {
+        int maxDistance = maxDistance(input.token);
+        return maxDistance > 0 && input.mayBeWithin(maxDistance);
+    }
+
+    @Override
+    public StageMatch detect(DetectionInput input) {
+        List<Trie.DetectionResult> fuzzyResults =
+            input.dictionary.getOffensiveDictionary().fuzzySearch(input.token, maxDistance(input.token), input.budget);
+        // Results come best first
+        for (Trie.DetectionResult fuzzyResult : fuzzyResults) {
+            if (fuzzyResult.isOffensive && fuzzyResult.confidence > 0.0) {
+                return new StageMatch(FUZZY_MATCH_WEIGHT * fuzzyResult.confidence);
+            }
+        }
+        return null;
+    }
+
+    static int maxDistance(String token) {
+        return Math.min(MAX_FUZZY_DISTANCE, token.length() / CHARS_PER_EDIT);
+    }
+}
@@ -0,0 +1,50 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+import com.moderation.sentinel.util.algorithm.levenshtein.DeletionIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Edit distance through the deletion index, for tokens the prefilter places within reach of a word
+@Component
+public class LevenshteinStage implements DetectionStage {
+    private static final double LEVENSHTEIN_MATCH_WEIGHT = 0.75;
+    private static final double LEVENSHTEIN_SIMILARITY_THRESHOLD = 0.7;
+    private static final int MAX_LEVENSHTEIN_DISTANCE = 2;
+
+    @Override
+    public String name() {
+        return "levenshtein";
+    }
+
+    @Override
+    public int priority() {
+        return 400;
+    }
+
+    @Override
+    public double estimatedCost() {
+        return 2_000;
+    }
+
+    @Override
+    public boolean appliesTo(DetectionInput input) {
+        return input.mayBeWithin(MAX_LEVENSHTEIN_DISTANCE);
+    }
+
+    @Override
+    public StageMatch detect(DetectionInput input) {
+        String token = input.token;
+        List<DeletionIndex.Candidate> similarWords =
+            input.dictionary.getOffensiveDeletionIndex().lookup(token, MAX_LEVENSHTEIN_DISTANCE, input.budget);
+        
+        double best = 0.0;
+        for (DeletionIndex.Candidate similarWord : similarWords) {
+            double similarity = 1.0 - (double) similarWord.distance / Math.max(token.length(), similarWord.word.length());
+            if (similarity >= LEVENSHTEIN_SIMILARITY_THRESHOLD) {
+                best = Math.max(best, LEVENSHTEIN_MATCH_WEIGHT * similarity);
+            }
+        }
+        return best > 0.0 ? new StageMatch(best) : null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+import org.springframework.stereotype.Component;
+
+// Double Metaphone codes, corroborated by Soundex, for tokens whose codes the prefilter has seen
+@Component
+public class PhoneticStage implements DetectionStage {
+    private static final double PHONETIC_MATCH_WEIGHT = 0.85;
+
+    @Override
+    public String name() {
+        return "phonetic";
+    }
+
+    @Override
+    public int priority() {
+        return 200;
+    }
+
+    @Override
+    public double estimatedCost() {
+        return 200;
+    }
+
+    @Override
+    public boolean appliesTo(DetectionInput input) {
+        return input.dictionary.getOffensivePrefilter().maySoundLike(input.token);
+    }
+
+    @Override
+    public StageMatch detect(DetectionInput input) {
+        double phoneticMatch = input.dictionary.getOffensiveDictionary().phoneticConfidence(input.token);
+        return phoneticMatch > 0.0 ? new StageMatch(PHONETIC_MATCH_WEIGHT * phoneticMatch) : null;
+    }
+}
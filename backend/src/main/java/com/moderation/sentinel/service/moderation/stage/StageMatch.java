@@ -0,0 +1,18 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+import java.util.List;
+
+public class StageMatch {
+    public final double confidence;
+    // Obfuscation families undone to reach the term; empty for direct matches
+    public final List<String> obfuscation;
+
+    public StageMatch(double confidence) {
+        this(confidence, List.of());
+    }
+
+    public StageMatch(double confidence, List<String> obfuscation) {
+        this.confidence = confidence;
+        this.obfuscation = obfuscation;
+    }
+}
@@ -0,0 +1,42 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+import com.moderation.sentinel.util.algorithm.noise.VariantIndex;
+import org.springframework.stereotype.Component;
+
+// Obfuscated spellings through the variant index; a single hash probe, so it applies to every token.
+// It reads the token as typed, since normalization already folds most leet and repeats, and takes
+// precedence over the dictionary so a spelling it can explain is reported as obfuscated
+@Component
+public class VariantStage implements DetectionStage {
+    public static final double OBFUSCATION_MATCH_WEIGHT = 0.90;
+
+    @Override
+    public String name() {
+        return "variant";
+    }
+
+    @Override
+    public int priority() {
+        return 50;
+    }
+
+    @Override
+    public double estimatedCost() {
+        return 150;
+    }
+
+    @Override
+    public boolean appliesTo(DetectionInput input) {
+        return true;
+    }
+
+    @Override
+    public StageMatch detect(DetectionInput input) {
+        VariantIndex.Match variant = input.dictionary.getOffensiveVariantIndex().lookup(input.rawToken);
+        if (variant == null) return null;
+        double matchConfidence = input.dictionary.getOffensiveDictionary().matchConfidence(variant.term);
+        double confidence = OBFUSCATION_MATCH_WEIGHT * matchConfidence * (1.0 - variant.obfuscationScore * 0.3);
+        if (confidence <= 0.0) return null;
+        return new StageMatch(confidence, variant.families.stream().map(VariantIndex.Family::label).toList());
+    }
+}
@@ -0,0 +1,282 @@
+package com.moderation.sentinel.util.algorithm.ahocorasick;
+
+import com.moderation.sentinel.util.algorithm.image.ImageInput;
+import com.moderation.sentinel.util.algorithm.image.ImageOutput;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import com.moderation.sentinel.util.algorithm.storage.StringTable;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable Aho-Corasick automaton over a fixed set of terms.
+ * Goto edges are stored per state as a sorted char slice so a scan is a single
+ * pass over the text with no allocation beyond the reported matches.
+ */
+public class AhoCorasick {
+    private final StringTable terms;
+    private final IntBuffer edgeStart;   // edges of state s live in [edgeStart[s], edgeStart[s + 1])
+    private final CharBuffer edgeChars;
+    private final IntBuffer edgeTargets;
+    private final IntBuffer fail;
+    private final IntBuffer output;      // term index ending exactly at this state, or -1
+    private final IntBuffer outputLink;  // nearest state on the fail chain with an output, or -1
+    private final int maxTermLength;
+    private final AhoCorasick pending;   // terms added since this automaton was built, or null
+
+    private AhoCorasick(StringTable terms, IntBuffer edgeStart, CharBuffer edgeChars, IntBuffer edgeTargets,
+                        IntBuffer fail, IntBuffer output, IntBuffer outputLink, AhoCorasick pending) {
+        this.terms = terms;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.maxTermLength = terms == null ? 0 : maxTermLength(terms);
+        this.pending = pending;
+    }
+
+    public void writeTo(ImageOutput out) throws IOException {
+        out.writeStrings(terms);
+        out.writeIntArray(edgeStart);
+        out.writeCharArray(edgeChars);
+        out.writeIntArray(edgeTargets);
+        out.writeIntArray(fail);
+        out.writeIntArray(output);
+        out.writeIntArray(outputLink);
+    }
+
+    public static AhoCorasick readFrom(ImageInput in, ArrayStorage storage) {
+        return new AhoCorasick(in.readStrings(storage), storage.ints(in.readInts()), storage.chars(in.readChars()),
+            storage.ints(in.readInts()), storage.ints(in.readInts()), storage.ints(in.readInts()),
+            storage.ints(in.readInts()), null);
+    }
+
+    public static AhoCorasick build(Collection<String> words) {
+        return build(words, ArrayStorage.HEAP);
+    }
+
+    public static AhoCorasick build(Collection<String> words, ArrayStorage storage) {
+        List<String> termList = new ArrayList<>();
+        List<TreeMap<Character, Integer>> gotoTable = new ArrayList<>();
+        List<Integer> outputList = new ArrayList<>();
+        gotoTable.add(new TreeMap<>());
+        outputList.add(-1);
+
+        for (String word : words) {
+            if (word == null || word.isEmpty()) continue;
+
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                TreeMap<Character, Integer> edges = gotoTable.get(state);
+                Integer next = edges.get(word.charAt(i));
+                if (next == null) {
+                    next = gotoTable.size();
+                    edges.put(word.charAt(i), next);
+                    gotoTable.add(new TreeMap<>());
+                    outputList.add(-1);
+                }
+                state = next;
+            }
+            if (outputList.get(state) == -1) {
+                outputList.set(state, termList.size());
+                termList.add(word);
+            }
+        }
+
+        int stateCount = gotoTable.size();
+        int edgeCount = 0;
+        for (TreeMap<Character, Integer> edges : gotoTable) edgeCount += edges.size();
+
+        int[] edgeStart = new int[stateCount + 1];
+        char[] edgeChars = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] output = new int[stateCount];
+        int pos = 0;
+        for (int s = 0; s < stateCount; s++) {
+            edgeStart[s] = pos;
+            for (Map.Entry<Character, Integer> edge : gotoTable.get(s).entrySet()) {
+                edgeChars[pos] = edge.getKey();
+                edgeTargets[pos] = edge.getValue();
+                pos++;
+            }
+            output[s] = outputList.get(s);
+        }
+        edgeStart[stateCount] = pos;
+
+        // Breadth-first failure links
+        int[] fail = new int[stateCount];
+        int[] outputLink = new int[stateCount];
+        Arrays.fill(outputLink, -1);
+        int[] queue = new int[stateCount];
+        int head = 0, tail = 0;
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            queue[tail++] = edgeTargets[e];
+        }
+
+        // Heap view of the goto function while failure links are computed
+        AhoCorasick gotoOnly = new AhoCorasick(null, IntBuffer.wrap(edgeStart), CharBuffer.wrap(edgeChars),
+                IntBuffer.wrap(edgeTargets), null, null, null, null);
+
+        while (head < tail) {
+            int state = queue[head++];
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                int child = edgeTargets[e];
+                char c = edgeChars[e];
+
+                int f = fail[state];
+                int next;
+                while ((next = gotoOnly.step(f, c)) == -1 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next == -1 ? 0 : next;
+                outputLink[child] = output[fail[child]] != -1 ? fail[child] : outputLink[fail[child]];
+                queue[tail++] = child;
+            }
+        }
+
+        return new AhoCorasick(storage.strings(termList.toArray(new String[0])), storage.ints(edgeStart),
+                storage.chars(edgeChars), storage.ints(edgeTargets), storage.ints(fail), storage.ints(output),
+                storage.ints(outputLink), null);
+    }
+
+    /**
+     * Returns this automaton with {@code pending}, an automaton over terms added since it was built,
+     * scanning alongside it. The arrays of both are shared rather than copied.
+     */
+    public AhoCorasick withPending(AhoCorasick pending) {
+        return new AhoCorasick(terms, edgeStart, edgeChars, edgeTargets, fail, output, outputLink, pending);
+    }
+
+    public List<Match> scan(CharSequence text) {
+        List<Match> matches = scanTerms(text);
+        return pending == null ? matches : merge(matches, pending.scan(text));
+    }
+
+    private List<Match> scanTerms(CharSequence text) {
+        List<Match> matches = new ArrayList<>();
+        if (text == null || terms.size() == 0) return matches;
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = step(state, c)) == -1 && state != 0) {
+                state = fail.get(state);
+            }
+            state = next == -1 ? 0 : next;
+
+            for (int s = output.get(state) != -1 ? state : outputLink.get(state); s != -1; s = outputLink.get(s)) {
+                String term = terms.get(output.get(s));
+                matches.add(new Match(i + 1 - term.length(), i + 1, term));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * {@link #scan(CharSequence)} that also steps over runs of up to {@code maxGap} separator chars
+     * without leaving the current state, so split spellings such as {@code "f u c k"} or
+     * {@code "f.u-c k"} are found in the same single pass. A separator is still followed when the
+     * automaton has an edge for it, so terms that contain one keep matching.
+     * A match that skipped a separator spans more text than its term and is only reported when it
+     * starts and ends on separator boundaries, so a term is never assembled from the tail of one
+     * word and the head of the next.
+     */
+    public List<Match> scan(CharSequence text, int maxGap, IntPredicate isSeparator) {
+        List<Match> matches = scanTerms(text, maxGap, isSeparator);
+        return pending == null ? matches : merge(matches, pending.scan(text, maxGap, isSeparator));
+    }
+
+    private List<Match> scanTerms(CharSequence text, int maxGap, IntPredicate isSeparator) {
+        List<Match> matches = new ArrayList<>();
+        if (text == null || terms.size() == 0) return matches;
+
+        // Text positions of the last chars fed to the automaton, enough to locate the start of any term
+        int[] consumed = new int[maxTermLength];
+        int consumedCount = 0;
+        int gap = 0;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isSeparator.test(c) && step(state, c) == -1) {
+                if (++gap > maxGap) state = 0;
+                continue;
+            }
+            gap = 0;
+
+            int next;
+            while ((next = step(state, c)) == -1 && state != 0) {
+                state = fail.get(state);
+            }
+            state = next == -1 ? 0 : next;
+            consumed[consumedCount++ % consumed.length] = i;
+
+            for (int s = output.get(state) != -1 ? state : outputLink.get(state); s != -1; s = outputLink.get(s)) {
+                String term = terms.get(output.get(s));
+                int start = consumed[(consumedCount - term.length()) % consumed.length];
+                if (i + 1 - start == term.length()
+                        || (isBoundary(text, start - 1, isSeparator) && isBoundary(text, i + 1, isSeparator))) {
+                    matches.add(new Match(start, i + 1, term));
+                }
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return terms.size() + (pending == null ? 0 : pending.size());
+    }
+
+    // Keeps the order of a single scan: by end, and longest term first among matches ending together
+    private static List<Match> merge(List<Match> matches, List<Match> pendingMatches) {
+        if (pendingMatches.isEmpty()) return matches;
+        matches.addAll(pendingMatches);
+        matches.sort(Comparator.<Match>comparingInt(match -> match.end).thenComparingInt(match -> -match.term.length()));
+        return matches;
+    }
+
+    private static int maxTermLength(StringTable terms) {
+        int max = 1;
+        for (int t = 0; t < terms.size(); t++) max = Math.max(max, terms.length(t));
+        return max;
+    }
+
+    private static boolean isBoundary(CharSequence text, int index, IntPredicate isSeparator) {
+        return index < 0 || index >= text.length() || isSeparator.test(text.charAt(index));
+    }
+
+    private int step(int state, char c) {
+        int lo = edgeStart.get(state);
+        int hi = edgeStart.get(state + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char midChar = edgeChars.get(mid);
+            if (midChar < c) lo = mid + 1;
+            else if (midChar > c) hi = mid - 1;
+            else return edgeTargets.get(mid);
+        }
+        return -1;
+    }
+
+    public static class Match {
+        public final int start;
+        public final int end;
+        public final String term;
+
+        public Match(int start, int end, String term) {
+            this.start = start;
+            this.end = end;
+            this.term = term;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[%d, %d)", term, start, end);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.moderation.sentinel.util.algorithm.budget;
+
+/**
+ * Cooperative limit on the work one analysis may do: a wall-clock deadline and a number of work
+ * units, where a unit is roughly one edit-distance cell. Expensive loops charge units as they go
+ * and stop when {@link #charge(long)} refuses; from then on every charge is refused, so later
+ * stages skip as well and the result is partial. The clock is read once every
+ * {@value #CLOCK_INTERVAL} charges. A budget belongs to one analysis on one thread; work split
+ * across threads takes a {@link #share(int)} per piece and is {@link #absorb(WorkBudget) absorbed}
+ * back once joined.
+ */
+public final class WorkBudget {
+    private static final int CLOCK_INTERVAL = 256;
+    private static final WorkBudget UNLIMITED = new WorkBudget(false, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final boolean limited;
+    private final long deadlineNanos;
+    private final long maxUnits;
+    private long usedUnits;
+    private int charges;
+    private boolean exhausted;
+
+    private WorkBudget(boolean limited, long deadlineNanos, long maxUnits) {
+        this.limited = limited;
+        this.deadlineNanos = deadlineNanos;
+        this.maxUnits = maxUnits;
+    }
+
+    /**
+     * Budget that never runs out; shared, since it keeps no count.
+     */
+    public static WorkBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Budget ending {@code maxMillis} from now or after {@code maxUnits} units, whichever comes
+     * first; a limit of zero or less does not apply.
+     */
+    public static WorkBudget of(long maxMillis, long maxUnits) {
+        if (maxMillis <= 0 && maxUnits <= 0) return UNLIMITED;
+        long deadline = maxMillis > 0 ? System.nanoTime() + maxMillis * 1_000_000L : Long.MAX_VALUE;
+        return new WorkBudget(true, deadline, maxUnits > 0 ? maxUnits : Long.MAX_VALUE);
+    }
+
+    /**
+     * Takes {@code units} from the budget, or returns false if it is spent. The caller is expected
+     * to stop the work it was about to do.
+     */
+    public boolean charge(long units) {
+        if (!limited) return true;
+        if (exhausted) return false;
+        usedUnits += units;
+        if (usedUnits > maxUnits || (++charges % CLOCK_INTERVAL == 0 && System.nanoTime() - deadlineNanos > 0)) {
+            exhausted = true;
+        }
+        return !exhausted;
+    }
+
+    /**
+     * Budget for one of {@code parts} pieces of work run in parallel: the same deadline and an even
+     * share of the units left. Only the thread running the piece may charge it.
+     */
+    public WorkBudget share(int parts) {
+        if (!limited) return this;
+        if (exhausted) return new WorkBudget(true, deadlineNanos, 0);
+        long units = maxUnits == Long.MAX_VALUE ? maxUnits : Math.max(0, maxUnits - usedUnits) / Math.max(1, parts);
+        return new WorkBudget(true, deadlineNanos, units);
+    }
+
+    /**
+     * Adds the units a {@link #share(int)} used to this budget; a share that ran out leaves this
+     * budget exhausted too.
+     */
+    public void absorb(WorkBudget share) {
+        if (!limited || share == this) return;
+        usedUnits += share.usedUnits;
+        if (share.exhausted) exhausted = true;
+    }
+
+    /**
+     * True once a charge has been refused, meaning some work was skipped.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    public long getUsedUnits() {
+        return usedUnits;
+    }
+}
@@ -0,0 +1,172 @@
+package com.moderation.sentinel.util.algorithm.filter;
+
+import com.moderation.sentinel.util.algorithm.image.ImageInput;
+import com.moderation.sentinel.util.algorithm.image.ImageOutput;
+import com.moderation.sentinel.util.algorithm.phonetic.DoubleMetaphone;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.LongPredicate;
+
+/**
+ * Negative pre-check for the phonetic and approximate dictionary lookups. One {@link XorFilter}
+ * holds the hash of every string reachable from a dictionary word by deleting up to
+ * {@code maxDistance} chars, plus each word's Double Metaphone codes.
+ *
+ * If a token is within edit distance k of a word, deleting at most k chars from each of them
+ * leaves a common string, so some deletion variant of the token is in the filter. When none is,
+ * no word is within distance k. The filter has no false negatives, so a rejection is always right;
+ * a false positive only means the full lookup runs when it was not needed.
+ * A word of length n adds about n^k / k! keys, so the filter is built for the largest distance
+ * the fuzzy stages use and no more. A token makes about as many probes as a word adds keys, so the
+ * fingerprints are sized for the false-positive rate per token rather than per probe.
+ */
+public class DictionaryPrefilter {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    // Phonetic keys are tagged; collisions with deletion hashes are possible but only add false positives
+    private static final long METAPHONE_TAG = 2L << 40;
+
+    private final XorFilter filter;
+    private final double falsePositiveRate;
+    private final int maxDistance;
+    private final int minWordLength;
+    private final int maxWordLength;
+    private final LongPredicate contains;
+    private final DictionaryPrefilter pending;   // words added since this filter was built, or null
+
+    private DictionaryPrefilter(XorFilter filter, double falsePositiveRate, int maxDistance, int minWordLength,
+                                int maxWordLength, DictionaryPrefilter pending) {
+        this.filter = filter;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxDistance = maxDistance;
+        this.minWordLength = minWordLength;
+        this.maxWordLength = maxWordLength;
+        this.contains = filter::mayContain;
+        this.pending = pending;
+    }
+
+    /**
+     * Builds a filter that wrongly passes at most about {@code falsePositiveRate} of the tokens that
+     * are neither near nor phonetically equal to any of {@code words}.
+     */
+    public static DictionaryPrefilter build(Collection<String> words, int maxDistance, double falsePositiveRate,
+                                            ArrayStorage storage) {
+        KeyBuffer keys = new KeyBuffer();
+        int minWordLength = Integer.MAX_VALUE;
+        int maxWordLength = 0;
+
+        for (String word : words) {
+            minWordLength = Math.min(minWordLength, word.length());
+            maxWordLength = Math.max(maxWordLength, word.length());
+            forEachDeletion(word, 0, FNV_OFFSET, maxDistance, keys);
+
+            int metaphone = DoubleMetaphone.encode(word);
+            int primary = DoubleMetaphone.primary(metaphone);
+            int alternate = DoubleMetaphone.alternate(metaphone);
+            if (primary != DoubleMetaphone.NONE) keys.add(METAPHONE_TAG | primary);
+            if (alternate != DoubleMetaphone.NONE) keys.add(METAPHONE_TAG | alternate);
+        }
+
+        if (maxWordLength == 0) minWordLength = 0;
+        double probesPerToken = Math.max(1.0, (double) keys.count / Math.max(1, words.size()));
+        int fingerprintBits = XorFilter.bitsFor(falsePositiveRate / probesPerToken);
+        XorFilter filter = XorFilter.build(keys.toArray(), fingerprintBits, storage);
+        return new DictionaryPrefilter(filter, falsePositiveRate, maxDistance, minWordLength, maxWordLength, null);
+    }
+
+    /**
+     * Returns this filter with {@code pending}, a filter over words added since it was built, passing
+     * whatever either of them passes. The fingerprints of both are shared rather than copied.
+     */
+    public DictionaryPrefilter withPending(DictionaryPrefilter pending) {
+        return new DictionaryPrefilter(filter, falsePositiveRate, maxDistance, minWordLength, maxWordLength, pending);
+    }
+
+    public void writeTo(ImageOutput out) throws IOException {
+        out.writeLong(Double.doubleToLongBits(falsePositiveRate));
+        out.writeInt(maxDistance);
+        out.writeInt(minWordLength);
+        out.writeInt(maxWordLength);
+        filter.writeTo(out);
+    }
+
+    public static DictionaryPrefilter readFrom(ImageInput in, ArrayStorage storage) {
+        double falsePositiveRate = Double.longBitsToDouble(in.readLong());
+        int maxDistance = in.readInt();
+        int minWordLength = in.readInt();
+        int maxWordLength = in.readInt();
+        return new DictionaryPrefilter(XorFilter.readFrom(in, storage), falsePositiveRate, maxDistance, minWordLength,
+            maxWordLength, null);
+    }
+
+    /**
+     * False when no dictionary word can be within {@code distance} edits of {@code token}. Always true
+     * for distances beyond the one the filter was built for.
+     */
+    public boolean mayBeWithin(CharSequence token, int distance) {
+        if (distance > maxDistance) return true;
+        if (pending != null && pending.mayBeWithin(token, distance)) return true;
+        if (maxWordLength == 0) return false;
+        int length = token.length();
+        if (length > maxWordLength + distance || length + distance < minWordLength) return false;
+        return forEachDeletion(token, 0, FNV_OFFSET, distance, contains);
+    }
+
+    /**
+     * False when neither Double Metaphone code of {@code token} belongs to a dictionary word. A
+     * phonetic match needs a Metaphone code in common, so Soundex codes are not kept.
+     */
+    public boolean maySoundLike(CharSequence token) {
+        if (pending != null && pending.maySoundLike(token)) return true;
+        int metaphone = DoubleMetaphone.encode(token);
+        int primary = DoubleMetaphone.primary(metaphone);
+        int alternate = DoubleMetaphone.alternate(metaphone);
+        if (primary != DoubleMetaphone.NONE && filter.mayContain(METAPHONE_TAG | primary)) return true;
+        return alternate != primary && alternate != DoubleMetaphone.NONE && filter.mayContain(METAPHONE_TAG | alternate);
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public int getFingerprintBits() {
+        return filter.getFingerprintBits();
+    }
+
+    /**
+     * Passes the hash of every string left by deleting up to {@code remaining} chars at or after
+     * {@code from} to {@code action}, where {@code hash} already covers the kept chars before
+     * {@code from}; stops at the first hash the action accepts.
+     */
+    private static boolean forEachDeletion(CharSequence text, int from, long hash, int remaining, LongPredicate action) {
+        for (int i = from; i < text.length(); i++) {
+            if (remaining > 0 && forEachDeletion(text, i + 1, hash, remaining - 1, action)) return true;
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return action.test(hash);
+    }
+
+    // Collects every key it is shown and never stops the enumeration
+    private static final class KeyBuffer implements LongPredicate {
+        private long[] keys = new long[1024];
+        private int count;
+
+        @Override
+        public boolean test(long key) {
+            add(key);
+            return false;
+        }
+
+        void add(long key) {
+            if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+            keys[count++] = key;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(keys, count);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.moderation.sentinel.util.algorithm.filter;
+
+import java.util.Arrays;
+
+/**
+ * Peeling of the random 3-uniform hypergraph that {@link XorFilter} and {@link MinimalPerfectHash}
+ * are built on. Every key is an edge joining one slot in each of three equal segments; peeling
+ * repeatedly removes an edge that is the only one left on some slot, and records that slot as the
+ * edge's own. With about 1.23 slots per key this succeeds for almost every seed.
+ */
+final class Hypergraph {
+    private static final int MAX_ATTEMPTS = 100;
+
+    final long seed;
+    final int segmentLength;
+    // Mixed key hashes in peeling order, and the slot each one was peeled from
+    final long[] hashes;
+    final int[] slots;
+
+    private Hypergraph(long seed, int segmentLength, long[] hashes, int[] slots) {
+        this.seed = seed;
+        this.segmentLength = segmentLength;
+        this.hashes = hashes;
+        this.slots = slots;
+    }
+
+    /**
+     * Peels the graph over {@code keys}, which must be distinct.
+     */
+    static Hypergraph peel(long[] keys) {
+        int n = keys.length;
+        int segmentLength = Math.max(1, (32 + (int) Math.ceil(1.23 * n)) / 3);
+        int capacity = 3 * segmentLength;
+        long[] stackHashes = new long[n];
+        int[] stackSlots = new int[n];
+        int[] counts = new int[capacity];
+        long[] xors = new long[capacity];
+        int[] queue = new int[capacity];
+
+        // Peeling fails with small probability for a given seed; another seed almost always succeeds
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long seed = mix(0x9E3779B97F4A7C15L * (attempt + 1));
+            Arrays.fill(counts, 0);
+            Arrays.fill(xors, 0L);
+            for (long key : keys) {
+                long h = mix(key + seed);
+                for (int j = 0; j < 3; j++) {
+                    int slot = slot(h, j, segmentLength);
+                    counts[slot]++;
+                    xors[slot] ^= h;
+                }
+            }
+
+            int head = 0, tail = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                if (counts[slot] == 1) queue[tail++] = slot;
+            }
+            int peeled = 0;
+            while (head < tail) {
+                int slot = queue[head++];
+                if (counts[slot] != 1) continue;
+                long h = xors[slot];
+                stackHashes[peeled] = h;
+                stackSlots[peeled] = slot;
+                peeled++;
+                for (int j = 0; j < 3; j++) {
+                    int other = slot(h, j, segmentLength);
+                    counts[other]--;
+                    xors[other] ^= h;
+                    if (counts[other] == 1) queue[tail++] = other;
+                }
+            }
+            if (peeled == n) return new Hypergraph(seed, segmentLength, stackHashes, stackSlots);
+        }
+        throw new IllegalStateException("Could not peel a hypergraph over " + n + " keys");
+    }
+
+    static long[] distinct(long[] keys) {
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[n++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    static int slot(long h, int segment, int segmentLength) {
+        long r = Long.rotateLeft(h, 21 * segment) & 0xFFFFFFFFL;
+        return (int) ((r * segmentLength) >>> 32) + segment * segmentLength;
+    }
+
+    static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+        x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return x ^ (x >>> 33);
+    }
+}
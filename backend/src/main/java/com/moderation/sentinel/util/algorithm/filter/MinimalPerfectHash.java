@@ -0,0 +1,104 @@
+package com.moderation.sentinel.util.algorithm.filter;
+
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Minimal perfect hash of a static set of 64-bit keys (Botelho, Pagh and Ziviani's BDZ scheme).
+ * Each key's three slots hold 2-bit values whose sum mod 3 picks the slot the key owns; the owned
+ * slots are then ranked, so the n keys map one-to-one onto [0, n). Slots nobody owns hold 3.
+ * That takes about 2.5 bits per key plus a rank count per 32 slots. A key outside the set maps to
+ * -1 or to an arbitrary index, so callers verify membership themselves.
+ */
+public class MinimalPerfectHash {
+    private static final int UNOWNED = 3;
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    private final long seed;
+    private final int segmentLength;
+    private final int size;
+    private final LongBuffer values;   // 2 bits per slot, 32 slots per long
+    private final IntBuffer ranks;     // owned slots before each long of values
+
+    private MinimalPerfectHash(long seed, int segmentLength, int size, LongBuffer values, IntBuffer ranks) {
+        this.seed = seed;
+        this.segmentLength = segmentLength;
+        this.size = size;
+        this.values = values;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Builds the hash over {@code keys}, which must be distinct.
+     */
+    public static MinimalPerfectHash build(long[] keys, ArrayStorage storage) {
+        Hypergraph graph = Hypergraph.peel(keys);
+        int segmentLength = graph.segmentLength;
+        int capacity = 3 * segmentLength;
+        byte[] slotValues = new byte[capacity];
+        Arrays.fill(slotValues, (byte) UNOWNED);
+
+        // In reverse peeling order a key's other two slots already have their final values
+        for (int i = graph.hashes.length - 1; i >= 0; i--) {
+            long h = graph.hashes[i];
+            int owned = graph.slots[i];
+            int sum = 0;
+            int segment = 0;
+            for (int j = 0; j < 3; j++) {
+                int slot = Hypergraph.slot(h, j, segmentLength);
+                if (slot == owned) segment = j;
+                else sum += slotValues[slot];
+            }
+            slotValues[owned] = (byte) (((segment - sum) % 3 + 3) % 3);
+        }
+
+        long[] packed = new long[(capacity + 31) / 32];
+        Arrays.fill(packed, -1L);
+        for (int slot = 0; slot < capacity; slot++) {
+            int shift = 2 * (slot & 31);
+            packed[slot >>> 5] &= ~(3L << shift);
+            packed[slot >>> 5] |= (long) slotValues[slot] << shift;
+        }
+        int[] ranks = new int[packed.length];
+        for (int w = 1; w < packed.length; w++) {
+            ranks[w] = ranks[w - 1] + owned(packed[w - 1]);
+        }
+        return new MinimalPerfectHash(graph.seed, segmentLength, keys.length, storage.longs(packed), storage.ints(ranks));
+    }
+
+    /**
+     * Index in [0, size) of {@code key}, unique among the keys the hash was built over. Other keys
+     * get -1 when they land on a slot no key owns.
+     */
+    public int indexOf(long key) {
+        long h = Hypergraph.mix(key + seed);
+        int s0 = Hypergraph.slot(h, 0, segmentLength);
+        int s1 = Hypergraph.slot(h, 1, segmentLength);
+        int s2 = Hypergraph.slot(h, 2, segmentLength);
+        int segment = (value(s0) + value(s1) + value(s2)) % 3;
+        int slot = segment == 0 ? s0 : segment == 1 ? s1 : s2;
+        if (((values.get(slot >>> 5) >>> (2 * (slot & 31))) & 3) == UNOWNED) return -1;
+
+        // Mark the slots from this one up as unowned so only the ones below it are counted
+        long below = values.get(slot >>> 5) | (-1L << (2 * (slot & 31)));
+        return ranks.get(slot >>> 5) + owned(below);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Unowned slots hold 3, which counts as 0 in the sum
+    private int value(int slot) {
+        int v = (int) (values.get(slot >>> 5) >>> (2 * (slot & 31))) & 3;
+        return v == UNOWNED ? 0 : v;
+    }
+
+    // Slots in a packed long whose value is not 3
+    private static int owned(long word) {
+        return 32 - Long.bitCount(word & (word >>> 1) & LOW_BITS);
+    }
+}
@@ -0,0 +1,64 @@
+package com.moderation.sentinel.util.algorithm.filter;
+
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+
+import java.nio.IntBuffer;
+import java.util.Collection;
+
+/**
+ * Read-only set of strings stored as a {@link MinimalPerfectHash} plus a 32-bit fingerprint per
+ * string, about 4.3 bytes per entry however long the strings are. A string outside the set is
+ * reported as a member with probability 2^-32. Lookups hash the chars in place and do not allocate.
+ */
+public class StaticStringSet {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long FINGERPRINT_SALT = 0x632BE59BD9B4E019L;
+
+    private final MinimalPerfectHash hash;
+    private final IntBuffer fingerprints;
+
+    private StaticStringSet(MinimalPerfectHash hash, IntBuffer fingerprints) {
+        this.hash = hash;
+        this.fingerprints = fingerprints;
+    }
+
+    public static StaticStringSet build(Collection<String> strings, ArrayStorage storage) {
+        long[] keys = new long[strings.size()];
+        int count = 0;
+        for (String string : strings) keys[count++] = key(string, 0, string.length());
+        keys = Hypergraph.distinct(keys);
+
+        MinimalPerfectHash hash = MinimalPerfectHash.build(keys, storage);
+        int[] fingerprints = new int[keys.length];
+        for (long key : keys) fingerprints[hash.indexOf(key)] = fingerprint(key);
+        return new StaticStringSet(hash, storage.ints(fingerprints));
+    }
+
+    public boolean contains(CharSequence string) {
+        return contains(string, 0, string.length());
+    }
+
+    /**
+     * Whether the span {@code [start, end)} of {@code text} is in the set.
+     */
+    public boolean contains(CharSequence text, int start, int end) {
+        long key = key(text, start, end);
+        int index = hash.indexOf(key);
+        return index >= 0 && fingerprints.get(index) == fingerprint(key);
+    }
+
+    public int size() {
+        return hash.size();
+    }
+
+    private static long key(CharSequence text, int start, int end) {
+        long h = FNV_OFFSET;
+        for (int i = start; i < end; i++) h = (h ^ text.charAt(i)) * FNV_PRIME;
+        return h;
+    }
+
+    private static int fingerprint(long key) {
+        return (int) (Hypergraph.mix(key ^ FINGERPRINT_SALT) >>> 32);
+    }
+}
@@ -0,0 +1,125 @@
+package com.moderation.sentinel.util.algorithm.filter;
+
+import com.moderation.sentinel.util.algorithm.image.ImageInput;
+import com.moderation.sentinel.util.algorithm.image.ImageOutput;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+
+/**
+ * Static approximate set of 64-bit keys (Graf and Lemire's xor filter).
+ * Each key hashes to one slot in each of three segments, and the fingerprints in those slots xor
+ * to the key's own fingerprint. A key that was added is always reported; any other key is reported
+ * with probability 2^-b for b-bit fingerprints. Fingerprints are bit-packed, so the filter takes
+ * about 1.23 * b bits per key for any b from 1 to 32.
+ */
+public class XorFilter {
+    private final int fingerprintBits;
+    private final long seed;
+    private final int segmentLength;
+    private final LongBuffer fingerprints;
+
+    private XorFilter(int fingerprintBits, long seed, int segmentLength, LongBuffer fingerprints) {
+        this.fingerprintBits = fingerprintBits;
+        this.seed = seed;
+        this.segmentLength = segmentLength;
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Fingerprint width that keeps the false-positive rate at or below {@code rate}.
+     */
+    public static int bitsFor(double rate) {
+        if (!(rate > 0.0) || rate >= 1.0) {
+            throw new IllegalArgumentException("False-positive rate must be in (0, 1): " + rate);
+        }
+        return Math.max(1, Math.min(32, (int) Math.ceil(-Math.log(rate) / Math.log(2))));
+    }
+
+    public static XorFilter build(long[] keys, int fingerprintBits, ArrayStorage storage) {
+        if (fingerprintBits < 1 || fingerprintBits > 32) {
+            throw new IllegalArgumentException("Fingerprint bits must be in [1, 32]: " + fingerprintBits);
+        }
+        Hypergraph graph = Hypergraph.peel(Hypergraph.distinct(keys));
+        int segmentLength = graph.segmentLength;
+        long[] packed = new long[(int) ((3L * segmentLength * fingerprintBits + 63) / 64) + 1];
+
+        // Assign in reverse peeling order so each slot is the last of its key's three to be written
+        for (int i = graph.hashes.length - 1; i >= 0; i--) {
+            long h = graph.hashes[i];
+            int value = fingerprint(h, fingerprintBits);
+            for (int j = 0; j < 3; j++) {
+                value ^= get(packed, Hypergraph.slot(h, j, segmentLength), fingerprintBits);
+            }
+            set(packed, graph.slots[i], fingerprintBits, value);
+        }
+        return new XorFilter(fingerprintBits, graph.seed, segmentLength, storage.longs(packed));
+    }
+
+    public void writeTo(ImageOutput out) throws IOException {
+        out.writeInt(fingerprintBits);
+        out.writeLong(seed);
+        out.writeInt(segmentLength);
+        out.writeLongArray(fingerprints);
+    }
+
+    public static XorFilter readFrom(ImageInput in, ArrayStorage storage) {
+        int fingerprintBits = in.readInt();
+        long seed = in.readLong();
+        int segmentLength = in.readInt();
+        return new XorFilter(fingerprintBits, seed, segmentLength, storage.longs(in.readLongs()));
+    }
+
+    public boolean mayContain(long key) {
+        long h = Hypergraph.mix(key + seed);
+        int value = fingerprint(h, fingerprintBits);
+        for (int j = 0; j < 3; j++) {
+            value ^= get(fingerprints, Hypergraph.slot(h, j, segmentLength), fingerprintBits);
+        }
+        return value == 0;
+    }
+
+    public int getFingerprintBits() {
+        return fingerprintBits;
+    }
+
+    public double falsePositiveRate() {
+        return Math.pow(2, -fingerprintBits);
+    }
+
+    private static int fingerprint(long h, int bits) {
+        return (int) (h ^ (h >>> 32)) & mask(bits);
+    }
+
+    private static int mask(int bits) {
+        return bits == 32 ? -1 : (1 << bits) - 1;
+    }
+
+    private static int get(long[] packed, int slot, int bits) {
+        long bit = (long) slot * bits;
+        int word = (int) (bit >>> 6);
+        int offset = (int) (bit & 63);
+        long value = packed[word] >>> offset;
+        if (offset + bits > 64) value |= packed[word + 1] << (64 - offset);
+        return (int) value & mask(bits);
+    }
+
+    private static int get(LongBuffer packed, int slot, int bits) {
+        long bit = (long) slot * bits;
+        int word = (int) (bit >>> 6);
+        int offset = (int) (bit & 63);
+        long value = packed.get(word) >>> offset;
+        if (offset + bits > 64) value |= packed.get(word + 1) << (64 - offset);
+        return (int) value & mask(bits);
+    }
+
+    private static void set(long[] packed, int slot, int bits, int value) {
+        long bit = (long) slot * bits;
+        int word = (int) (bit >>> 6);
+        int offset = (int) (bit & 63);
+        long v = value & (mask(bits) & 0xFFFFFFFFL);
+        packed[word] |= v << offset;
+        if (offset + bits > 64) packed[word + 1] |= v >>> (64 - offset);
+    }
+}
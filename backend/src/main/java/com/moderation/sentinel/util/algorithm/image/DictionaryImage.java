@@ -0,0 +1,129 @@
+package com.moderation.sentinel.util.algorithm.image;
+
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import com.moderation.sentinel.util.algorithm.trie.DictionarySnapshot;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Precompiled binary image of a {@link DictionarySnapshot}, so an instance can start without
+ * rebuilding the tries and indexes from the wordlist.
+ *
+ * Layout: a clear-text header (magic, format version, block size, payload length, nonce salt)
+ * followed by the serialized snapshot cut into blocks of {@link #BLOCK_SIZE} bytes. Each block is
+ * sealed with AES-GCM under the nonce (salt, block index) and the header as associated data, so
+ * blocks are decrypted one at a time straight out of the memory-mapped file and a truncated,
+ * reordered or modified image fails to load.
+ */
+public final class DictionaryImage {
+    public static final int FORMAT_VERSION = 5;
+
+    private static final long MAGIC = 0x53454e54444943L;   // "SENTDIC"
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int TAG_BITS = 128;
+    private static final int SALT_BYTES = 8;
+    private static final int HEADER_BYTES = Long.BYTES + 3 * Integer.BYTES + SALT_BYTES;
+
+    private DictionaryImage() {
+    }
+
+    public static void write(DictionarySnapshot snapshot, Path path, SecretKey key)
+        throws IOException, GeneralSecurityException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(1 << 20);
+        ImageOutput out = new ImageOutput(payload);
+        snapshot.writeTo(out);
+        out.flush();
+        byte[] plain = payload.toByteArray();
+
+        byte[] salt = new byte[SALT_BYTES];
+        new SecureRandom().nextBytes(salt);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+            .putLong(MAGIC)
+            .putInt(FORMAT_VERSION)
+            .putInt(BLOCK_SIZE)
+            .putInt(plain.length)
+            .put(salt);
+        byte[] headerBytes = header.array();
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(headerBytes));
+            for (int block = 0, offset = 0; offset < plain.length; block++, offset += BLOCK_SIZE) {
+                cipher.init(Cipher.ENCRYPT_MODE, key, nonce(salt, block));
+                cipher.updateAAD(headerBytes);
+                byte[] sealed = cipher.doFinal(plain, offset, Math.min(BLOCK_SIZE, plain.length - offset));
+                channel.write(ByteBuffer.wrap(sealed));
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static DictionarySnapshot read(Path path, SecretKey key) throws IOException, GeneralSecurityException {
+        return read(path, key, ArrayStorage.HEAP);
+    }
+
+    /**
+     * Reads the image into structures whose arrays live in {@code storage}. The blocks are decrypted
+     * straight into one region of the storage, so with mapped storage the structures read their
+     * arrays where they were decrypted and nothing is copied onto the heap.
+     */
+    public static DictionarySnapshot read(Path path, SecretKey key, ArrayStorage storage)
+        throws IOException, GeneralSecurityException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.remaining() < HEADER_BYTES || mapped.getLong() != MAGIC) {
+                throw new IllegalStateException(path + " is not a dictionary image");
+            }
+            int formatVersion = mapped.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported dictionary image format " + formatVersion);
+            }
+            int blockSize = mapped.getInt();
+            int payloadLength = mapped.getInt();
+            byte[] salt = new byte[SALT_BYTES];
+            mapped.get(salt);
+            byte[] headerBytes = new byte[HEADER_BYTES];
+            mapped.get(0, headerBytes);
+
+            int tagBytes = TAG_BITS / 8;
+            int blockCount = (int) (((long) payloadLength + blockSize - 1) / blockSize);
+            if (blockSize <= 0 || payloadLength < 0
+                || mapped.remaining() != (long) payloadLength + (long) blockCount * tagBytes) {
+                throw new IllegalStateException("Truncated dictionary image " + path);
+            }
+
+            ByteBuffer plain = storage.newBytes(payloadLength);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            for (int block = 0; block < blockCount; block++) {
+                int sealedLength = Math.min(blockSize, payloadLength - block * blockSize) + tagBytes;
+                ByteBuffer sealed = mapped.slice(mapped.position(), sealedLength);
+                mapped.position(mapped.position() + sealedLength);
+
+                cipher.init(Cipher.DECRYPT_MODE, key, nonce(salt, block));
+                cipher.updateAAD(headerBytes);
+                cipher.doFinal(sealed, plain);
+            }
+            plain.flip();
+            return DictionarySnapshot.readFrom(new ImageInput(plain), storage);
+        }
+    }
+
+    private static GCMParameterSpec nonce(byte[] salt, int block) {
+        byte[] iv = ByteBuffer.allocate(SALT_BYTES + Integer.BYTES).put(salt).putInt(block).array();
+        return new GCMParameterSpec(TAG_BITS, iv);
+    }
+}
@@ -0,0 +1,61 @@
+package com.moderation.sentinel.util.algorithm.image;
+
+import com.moderation.sentinel.util.algorithm.trie.DictionarySnapshot;
+import com.moderation.sentinel.util.algorithm.trie.TrieInitializer;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline build step that compiles the encrypted wordlist into a {@link DictionaryImage}.
+ * Run with {@code mvn -Pdictionary-image package}; the key and IV are read from the
+ * {@code application.aes-secret-key} and {@code application.init-vector} system properties,
+ * or the matching {@code APPLICATION_AESSECRETKEY} and {@code APPLICATION_INITVECTOR} variables.
+ *
+ * The bundled {@code safe_words.txt} and an optional extra allow-list are compiled in as safe words.
+ *
+ * Usage: {@code DictionaryImageCompiler <wordlist.dat> <image> [safe-words.txt]}
+ */
+public final class DictionaryImageCompiler {
+
+    private DictionaryImageCompiler() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: DictionaryImageCompiler <wordlist.dat> <image> [safe-words.txt]");
+            System.exit(2);
+        }
+
+        String secretKey = setting("application.aes-secret-key", "APPLICATION_AESSECRETKEY");
+        String initVector = setting("application.init-vector", "APPLICATION_INITVECTOR");
+
+        Map<String, List<String>> terms;
+        try (InputStream in = Files.newInputStream(Path.of(args[0]))) {
+            terms = TrieInitializer.readEncryptedWordlist(in, secretKey, initVector);
+        }
+        terms.put("safe", TrieInitializer.readSafeWords(args.length == 3 ? args[2] : null));
+
+        long start = System.nanoTime();
+        DictionarySnapshot snapshot = DictionarySnapshot.build(1, terms.get("offensive"), terms.get("safe"));
+        Path image = Path.of(args[1]);
+        DictionaryImage.write(snapshot, image, new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES"));
+
+        System.out.printf("Compiled %d terms into %s (%d bytes, format %d) in %d ms%n",
+            terms.get("offensive").size(), image, Files.size(image), DictionaryImage.FORMAT_VERSION,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static String setting(String property, String environmentVariable) {
+        String value = System.getProperty(property, System.getenv(environmentVariable));
+        if (value == null || value.isEmpty()) {
+            throw new IllegalStateException("Set -D" + property + " or " + environmentVariable);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+package com.moderation.sentinel.util.algorithm.image;
+
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import com.moderation.sentinel.util.algorithm.storage.StringTable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Reader for the sections written by {@link ImageOutput}. Arrays are returned as views of the
+ * buffer rather than copied, so an image decrypted into a region of an {@link ArrayStorage}
+ * is read in place; see {@link ArrayStorage#ints(IntBuffer)}.
+ */
+public class ImageInput {
+    private static final int ALIGNMENT = Long.BYTES;
+
+    private final ByteBuffer buffer;
+
+    public ImageInput(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int readInt() {
+        return buffer.getInt();
+    }
+
+    public long readLong() {
+        return buffer.getLong();
+    }
+
+    public IntBuffer readInts() {
+        return view(readLength(Integer.BYTES) * Integer.BYTES).asIntBuffer();
+    }
+
+    public LongBuffer readLongs() {
+        return view(readLength(Long.BYTES) * Long.BYTES).asLongBuffer();
+    }
+
+    public CharBuffer readChars() {
+        return view(readLength(Character.BYTES) * Character.BYTES).asCharBuffer();
+    }
+
+    // For the few small arrays that structures keep on the heap regardless of storage
+    public char[] readCharArray() {
+        CharBuffer view = readChars();
+        char[] values = new char[view.limit()];
+        view.get(0, values);
+        return values;
+    }
+
+    public StringTable readStrings(ArrayStorage storage) {
+        IntBuffer offsets = readInts();
+        return storage.strings(readChars(), offsets);
+    }
+
+    private int readLength(int elementBytes) {
+        int length = buffer.getInt();
+        buffer.position(Math.min(buffer.limit(), (buffer.position() + ALIGNMENT - 1) & -ALIGNMENT));
+        if (length < 0 || (long) length * elementBytes > buffer.remaining()) {
+            throw new IllegalStateException("Corrupt dictionary image: array of " + length + " elements");
+        }
+        return length;
+    }
+
+    private ByteBuffer view(int bytes) {
+        ByteBuffer view = buffer.slice(buffer.position(), bytes).order(buffer.order());
+        buffer.position(buffer.position() + bytes);
+        return view;
+    }
+}
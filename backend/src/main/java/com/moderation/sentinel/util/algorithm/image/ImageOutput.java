@@ -0,0 +1,76 @@
+package com.moderation.sentinel.util.algorithm.image;
+
+import com.moderation.sentinel.util.algorithm.storage.StringTable;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Little-endian writer for the sections of a {@link DictionaryImage}. Arrays are written as a
+ * length, padding up to the next multiple of eight bytes and then their elements, so
+ * {@link ImageInput} can hand them out as aligned views of the decrypted image.
+ */
+public class ImageOutput {
+    private static final int ALIGNMENT = Long.BYTES;
+
+    private final DataOutputStream out;
+
+    public ImageOutput(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    public void writeInt(int value) throws IOException {
+        out.writeInt(Integer.reverseBytes(value));
+    }
+
+    public void writeLong(long value) throws IOException {
+        out.writeLong(Long.reverseBytes(value));
+    }
+
+    public void writeIntArray(int[] values) throws IOException {
+        writeIntArray(IntBuffer.wrap(values));
+    }
+
+    public void writeIntArray(IntBuffer values) throws IOException {
+        writeLength(values.limit());
+        for (int i = 0; i < values.limit(); i++) writeInt(values.get(i));
+    }
+
+    public void writeLongArray(LongBuffer values) throws IOException {
+        writeLength(values.limit());
+        for (int i = 0; i < values.limit(); i++) writeLong(values.get(i));
+    }
+
+    public void writeCharArray(char[] values) throws IOException {
+        writeCharArray(CharBuffer.wrap(values));
+    }
+
+    public void writeCharArray(CharBuffer values) throws IOException {
+        writeLength(values.limit());
+        for (int i = 0; i < values.limit(); i++) out.writeChar(Character.reverseBytes(values.get(i)));
+    }
+
+    // Offsets first, then all the chars back to back, as a StringTable keeps them off the heap
+    public void writeStrings(StringTable values) throws IOException {
+        int[] offsets = new int[values.size() + 1];
+        for (int i = 0; i < values.size(); i++) offsets[i + 1] = offsets[i] + values.length(i);
+        writeIntArray(offsets);
+        writeLength(offsets[values.size()]);
+        for (int i = 0; i < values.size(); i++) {
+            for (int k = 0; k < values.length(i); k++) out.writeChar(Character.reverseBytes(values.charAt(i, k)));
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeLength(int length) throws IOException {
+        writeInt(length);
+        while (out.size() % ALIGNMENT != 0) out.writeByte(0);
+    }
+}
@@ -0,0 +1,249 @@
+package com.moderation.sentinel.util.algorithm.levenshtein;
+
+import com.moderation.sentinel.util.algorithm.budget.WorkBudget;
+import com.moderation.sentinel.util.algorithm.image.ImageInput;
+import com.moderation.sentinel.util.algorithm.image.ImageOutput;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import com.moderation.sentinel.util.algorithm.storage.StringTable;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.*;
+
+/**
+ * SymSpell-style symmetric deletion index.
+ * Every dictionary word is indexed under the hashes of all strings obtained by deleting up to
+ * {@code maxDistance} characters from its prefix. A query generates the same deletions of its own
+ * prefix, so words within the distance are found through a few open-addressing probes and verified
+ * against the query's compiled bit-parallel matcher.
+ */
+public class DeletionIndex {
+    private static final int PREFIX_LENGTH = 7;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final StringTable words;
+    private final int maxDistance;
+    private final LongBuffer tableHashes;  // open-addressing table of distinct deletion hashes
+    private final IntBuffer tableKeys;     // key index for each slot, or -1 when empty
+    private final IntBuffer offsets;       // postings of key k live in [offsets[k], offsets[k + 1])
+    private final IntBuffer postings;
+    private final DeletionIndex pending;   // words added since this index was built, or null
+
+    private DeletionIndex(StringTable words, int maxDistance, LongBuffer tableHashes, IntBuffer tableKeys,
+                          IntBuffer offsets, IntBuffer postings, DeletionIndex pending) {
+        this.words = words;
+        this.maxDistance = maxDistance;
+        this.tableHashes = tableHashes;
+        this.tableKeys = tableKeys;
+        this.offsets = offsets;
+        this.postings = postings;
+        this.pending = pending;
+    }
+
+    // The hash table is written as it is so a loaded index reads it in place instead of rebuilding it
+    public void writeTo(ImageOutput out) throws IOException {
+        out.writeStrings(words);
+        out.writeInt(maxDistance);
+        out.writeLongArray(tableHashes);
+        out.writeIntArray(tableKeys);
+        out.writeIntArray(offsets);
+        out.writeIntArray(postings);
+    }
+
+    public static DeletionIndex readFrom(ImageInput in, ArrayStorage storage) {
+        StringTable words = in.readStrings(storage);
+        int maxDistance = in.readInt();
+        return new DeletionIndex(words, maxDistance, storage.longs(in.readLongs()), storage.ints(in.readInts()),
+            storage.ints(in.readInts()), storage.ints(in.readInts()), null);
+    }
+
+    public static DeletionIndex build(Collection<String> dictionary, int maxDistance) {
+        return build(dictionary, maxDistance, ArrayStorage.HEAP);
+    }
+
+    public static DeletionIndex build(Collection<String> dictionary, int maxDistance, ArrayStorage storage) {
+        String[] words = dictionary.stream()
+            .filter(word -> word != null && !word.isEmpty())
+            .distinct()
+            .toArray(String[]::new);
+
+        long[] pairHashes = new long[16];
+        int[] pairWords = new int[16];
+        int pairCount = 0;
+        long[] scratch = new long[1 << PREFIX_LENGTH];
+
+        for (int id = 0; id < words.length; id++) {
+            int variants = deletionHashes(words[id], maxDistance, scratch);
+            for (int v = 0; v < variants; v++) {
+                if (pairCount == pairHashes.length) {
+                    pairHashes = Arrays.copyOf(pairHashes, pairCount * 2);
+                    pairWords = Arrays.copyOf(pairWords, pairCount * 2);
+                }
+                pairHashes[pairCount] = scratch[v];
+                pairWords[pairCount] = id;
+                pairCount++;
+            }
+        }
+
+        long[] sorted = Arrays.copyOf(pairHashes, pairCount);
+        Arrays.sort(sorted);
+        int keyCount = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[keyCount++] = sorted[i];
+        }
+        long[] keys = Arrays.copyOf(sorted, keyCount);
+
+        int[] offsets = new int[keyCount + 1];
+        for (int i = 0; i < pairCount; i++) {
+            offsets[Arrays.binarySearch(keys, pairHashes[i]) + 1]++;
+        }
+        for (int k = 0; k < keyCount; k++) {
+            offsets[k + 1] += offsets[k];
+        }
+
+        int[] postings = new int[pairCount];
+        int[] fill = Arrays.copyOf(offsets, keyCount);
+        for (int i = 0; i < pairCount; i++) {
+            postings[fill[Arrays.binarySearch(keys, pairHashes[i])]++] = pairWords[i];
+        }
+
+        // Sorted keys are only needed while building; lookups go through a hash table
+        return withTable(words, maxDistance, keys, offsets, postings, storage);
+    }
+
+    private static DeletionIndex withTable(String[] words, int maxDistance, long[] keys, int[] offsets, int[] postings,
+                                           ArrayStorage storage) {
+        int keyCount = keys.length;
+        int capacity = Integer.highestOneBit(Math.max(1, keyCount * 4 / 3)) << 1;
+        long[] tableHashes = new long[capacity];
+        int[] tableKeys = new int[capacity];
+        Arrays.fill(tableKeys, -1);
+        for (int k = 0; k < keyCount; k++) {
+            int slot = slotOf(keys[k], capacity);
+            while (tableKeys[slot] != -1) slot = (slot + 1) & (capacity - 1);
+            tableHashes[slot] = keys[k];
+            tableKeys[slot] = k;
+        }
+
+        return new DeletionIndex(storage.strings(words), maxDistance, storage.longs(tableHashes), storage.ints(tableKeys),
+            storage.ints(offsets), storage.ints(postings), null);
+    }
+
+    /**
+     * Returns this index with {@code pending}, an index over words added since it was built, answering
+     * alongside it. The arrays of both are shared rather than copied.
+     */
+    public DeletionIndex withPending(DeletionIndex pending) {
+        return new DeletionIndex(words, maxDistance, tableHashes, tableKeys, offsets, postings, pending);
+    }
+
+    /**
+     * Returns every indexed word within {@code distance} edits of {@code query}, closest first.
+     * Distances above the one the index was built for are clamped to it.
+     */
+    public List<Candidate> lookup(String query, int distance) {
+        return lookup(query, distance, WorkBudget.unlimited());
+    }
+
+    /**
+     * {@link #lookup(String, int)} that charges {@code budget} for each candidate it verifies and
+     * returns the candidates verified so far once the budget is spent.
+     */
+    public List<Candidate> lookup(String query, int distance, WorkBudget budget) {
+        List<Candidate> results = new ArrayList<>();
+        if (query == null || query.isEmpty()) return results;
+
+        collect(query, distance, budget, results);
+        if (pending != null) pending.collect(query, distance, budget, results);
+        results.sort(Comparator.comparingInt(candidate -> candidate.distance));
+        return results;
+    }
+
+    public int size() {
+        return words.size() + (pending == null ? 0 : pending.size());
+    }
+
+    private void collect(String query, int distance, WorkBudget budget, List<Candidate> results) {
+        if (words.size() == 0) return;
+
+        int bound = Math.min(distance, maxDistance);
+        long[] scratch = new long[1 << PREFIX_LENGTH];
+        int variants = deletionHashes(query, bound, scratch);
+
+        int[] candidates = new int[16];
+        int candidateCount = 0;
+        for (int v = 0; v < variants; v++) {
+            int k = find(scratch[v]);
+            if (k < 0) continue;
+            for (int p = offsets.get(k); p < offsets.get(k + 1); p++) {
+                if (candidateCount == candidates.length) candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                candidates[candidateCount++] = postings.get(p);
+            }
+        }
+
+        Arrays.sort(candidates, 0, candidateCount);
+        LevenshteinDistance.Query compiled = LevenshteinDistance.compile(query);
+        for (int i = 0; i < candidateCount; i++) {
+            if (i > 0 && candidates[i] == candidates[i - 1]) continue;
+            int word = candidates[i];
+            if (Math.abs(words.length(word) - query.length()) > bound) continue;
+            if (!budget.charge((long) (2 * bound + 1) * query.length())) break;
+
+            int d = compiled.distance(words.view(word), bound);
+            if (d <= bound) results.add(new Candidate(words.get(word), d));
+        }
+    }
+
+    private int find(long hash) {
+        int mask = tableKeys.limit() - 1;
+        for (int slot = slotOf(hash, tableKeys.limit()); tableKeys.get(slot) != -1; slot = (slot + 1) & mask) {
+            if (tableHashes.get(slot) == hash) return tableKeys.get(slot);
+        }
+        return -1;
+    }
+
+    private static int slotOf(long hash, int capacity) {
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+
+    // Writes the distinct hashes of all deletions of up to maxDeletes chars from the word's prefix
+    private static int deletionHashes(String word, int maxDeletes, long[] out) {
+        int length = Math.min(word.length(), PREFIX_LENGTH);
+        int count = 0;
+
+        for (int mask = 0; mask < (1 << length); mask++) {
+            if (Integer.bitCount(mask) > maxDeletes) continue;
+
+            long hash = FNV_OFFSET;
+            for (int i = 0; i < length; i++) {
+                if ((mask & (1 << i)) != 0) continue;
+                hash = (hash ^ word.charAt(i)) * FNV_PRIME;
+            }
+            out[count++] = hash;
+        }
+
+        Arrays.sort(out, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || out[i] != out[i - 1]) out[distinct++] = out[i];
+        }
+        return distinct;
+    }
+
+    public static class Candidate {
+        public final String word;
+        public final int distance;
+
+        public Candidate(String word, int distance) {
+            this.word = word;
+            this.distance = distance;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (distance %d)", word, distance);
+        }
+    }
+}
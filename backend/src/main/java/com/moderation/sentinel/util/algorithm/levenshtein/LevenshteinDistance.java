@@ -1,98 +1,237 @@
 package com.moderation.sentinel.util.algorithm.levenshtein;
 
-import java.util.*;
-
 public class LevenshteinDistance {
     private static final int MAX_DISTANCE_THRESHOLD = 3;
     private static final double SIMILARITY_THRESHOLD = 0.7;
-    
+    private static final int WORD_BITS = 64;
+
+    private static final ThreadLocal<Query> SCRATCH = ThreadLocal.withInitial(Query::new);
+
     // Early termination threshold
     public static int computeDistance(String s1, String s2, int maxDistance) {
         if (s1 == null || s2 == null) return Integer.MAX_VALUE;
         if (s1.equals(s2)) return 0;
-        
+
         int len1 = s1.length();
         int len2 = s2.length();
-        
+
         if (Math.abs(len1 - len2) > maxDistance) return maxDistance + 1;
-        
+
+        // The shorter string becomes the bit-vector pattern
+        String pattern = len1 <= len2 ? s1 : s2;
+        String text = len1 <= len2 ? s2 : s1;
+        if (pattern.length() <= WORD_BITS) {
+            return SCRATCH.get().reset(pattern).distance(text, maxDistance);
+        }
+        return computeDistanceDp(s1, s2, maxDistance);
+    }
+
+    private static int computeDistanceDp(CharSequence s1, CharSequence s2, int maxDistance) {
+        int len1 = s1.length();
+        int len2 = s2.length();
+
         int[] prev = new int[len2 + 1];
         int[] curr = new int[len2 + 1];
 
         for (int j = 0; j <= len2; j++) {
             prev[j] = j;
         }
-        
+
         for (int i = 1; i <= len1; i++) {
             curr[0] = i;
             int minInRow = i;
-            
+
             for (int j = 1; j <= len2; j++) {
                 int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
-                
+
                 curr[j] = Math.min(
                     Math.min(curr[j - 1] + 1, prev[j] + 1),
                     prev[j - 1] + cost
                 );
-                
+
                 minInRow = Math.min(minInRow, curr[j]);
             }
-            
+
             if (minInRow > maxDistance) return maxDistance + 1;
-            
+
             // Swap arrays
             int[] temp = prev;
             prev = curr;
             curr = temp;
         }
-        
-        return prev[len2];
+
+        return prev[len2] > maxDistance ? maxDistance + 1 : prev[len2];
     }
-    
+
     public static double computeSimilarity(String s1, String s2) {
         int distance = computeDistance(s1, s2, MAX_DISTANCE_THRESHOLD);
         int maxLen = Math.max(s1.length(), s2.length());
         return maxLen == 0 ? 1.0 : 1.0 - (double) distance / maxLen;
     }
-    
+
     // Damerau-Levenshtein (Transposition Errors)
     public static int computeDamerauDistance(String s1, String s2) {
+        return computeDamerauDistance(s1, s2, Integer.MAX_VALUE - 1);
+    }
+
+    public static int computeDamerauDistance(String s1, String s2, int maxDistance) {
+        if (Math.abs(s1.length() - s2.length()) > maxDistance) return maxDistance + 1;
+
+        String pattern = s1.length() <= s2.length() ? s1 : s2;
+        String text = s1.length() <= s2.length() ? s2 : s1;
+        if (pattern.length() <= WORD_BITS) {
+            return SCRATCH.get().reset(pattern).damerauDistance(text, maxDistance);
+        }
+
+        int distance = computeDamerauDistanceDp(s1, s2);
+        return distance > maxDistance ? maxDistance + 1 : distance;
+    }
+
+    private static int computeDamerauDistanceDp(CharSequence s1, CharSequence s2) {
         int len1 = s1.length();
         int len2 = s2.length();
-        
+
         int[][] matrix = new int[len1 + 1][len2 + 1];
-        
+
         for (int i = 0; i <= len1; i++) matrix[i][0] = i;
         for (int j = 0; j <= len2; j++) matrix[0][j] = j;
-        
+
         for (int i = 1; i <= len1; i++) {
             for (int j = 1; j <= len2; j++) {
                 int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
-                
+
                 matrix[i][j] = Math.min(
                     Math.min(matrix[i - 1][j] + 1, matrix[i][j - 1] + 1),
                     matrix[i - 1][j - 1] + cost
                 );
-                
-                if (i > 1 && j > 1 && 
-                    s1.charAt(i - 1) == s2.charAt(j - 2) && 
+
+                if (i > 1 && j > 1 &&
+                    s1.charAt(i - 1) == s2.charAt(j - 2) &&
                     s1.charAt(i - 2) == s2.charAt(j - 1)) {
                     matrix[i][j] = Math.min(matrix[i][j], matrix[i - 2][j - 2] + cost);
                 }
             }
         }
-        
+
         return matrix[len1][len2];
     }
-    
-    public static List<String> findSimilarWords(String target, Set<String> wordSet, double threshold) {
-        return wordSet.parallelStream()
-            .filter(word -> computeSimilarity(target, word) >= threshold)
-            .sorted((w1, w2) -> Double.compare(
-                computeSimilarity(target, w2), 
-                computeSimilarity(target, w1)
-            ))
-            .limit(10)
-            .toList();
+
+    /**
+     * Precompiles {@code query} so it can be compared against many candidates without
+     * rebuilding its match masks.
+     */
+    public static Query compile(CharSequence query) {
+        return new Query().reset(query);
+    }
+
+    /**
+     * Bit-parallel edit distance (Myers 1999, Hyyrö 2001) for a pattern of up to 64 chars.
+     * Column j of the DP matrix is held as vertical +1/-1 delta vectors in two longs, so each
+     * text character costs a constant number of word operations and no allocation.
+     * Longer patterns fall back to the row-based DP.
+     */
+    public static class Query {
+        private final long[] asciiMasks = new long[128];
+        private final char[] otherChars = new char[WORD_BITS];
+        private final long[] otherMasks = new long[WORD_BITS];
+        private int otherCount;
+        private CharSequence pattern = "";
+
+        private Query reset(CharSequence query) {
+            for (int i = 0; i < pattern.length() && i < WORD_BITS; i++) {
+                char c = pattern.charAt(i);
+                if (c < 128) asciiMasks[c] = 0;
+            }
+            otherCount = 0;
+            pattern = query;
+            if (query.length() > WORD_BITS) return this;
+
+            for (int i = 0; i < query.length(); i++) {
+                char c = query.charAt(i);
+                if (c < 128) {
+                    asciiMasks[c] |= 1L << i;
+                    continue;
+                }
+                int k = 0;
+                while (k < otherCount && otherChars[k] != c) k++;
+                if (k == otherCount) {
+                    otherChars[k] = c;
+                    otherMasks[k] = 0;
+                    otherCount++;
+                }
+                otherMasks[k] |= 1L << i;
+            }
+            return this;
+        }
+
+        public int length() {
+            return pattern.length();
+        }
+
+        /**
+         * Levenshtein distance to {@code text}, or {@code maxDistance + 1} once it is known to exceed it.
+         */
+        public int distance(CharSequence text, int maxDistance) {
+            return run(text, maxDistance, false);
+        }
+
+        /**
+         * Restricted Damerau-Levenshtein (optimal string alignment) distance to {@code text},
+         * or {@code maxDistance + 1} once it is known to exceed it.
+         */
+        public int damerauDistance(CharSequence text, int maxDistance) {
+            return run(text, maxDistance, true);
+        }
+
+        private int run(CharSequence text, int maxDistance, boolean transpositions) {
+            int m = pattern.length();
+            int n = text.length();
+            if (Math.abs(m - n) > maxDistance) return maxDistance + 1;
+            if (m == 0) return n;
+            if (m > WORD_BITS) {
+                int distance = transpositions
+                    ? computeDamerauDistanceDp(pattern, text)
+                    : computeDistanceDp(pattern, text, maxDistance);
+                return distance > maxDistance ? maxDistance + 1 : distance;
+            }
+
+            long highBit = 1L << (m - 1);
+            long vp = m == WORD_BITS ? -1L : (1L << m) - 1;
+            long vn = 0;
+            long d0 = 0;
+            long prevEq = 0;
+            int score = m;
+
+            for (int j = 0; j < n; j++) {
+                long eq = mask(text.charAt(j));
+                long tr = transpositions ? (((~d0) & eq) << 1) & prevEq : 0;
+
+                d0 = (((eq & vp) + vp) ^ vp) | eq | vn | tr;
+                long hp = vn | ~(d0 | vp);
+                long hn = vp & d0;
+
+                if ((hp & highBit) != 0) score++;
+                else if ((hn & highBit) != 0) score--;
+
+                // The score can drop by at most one per remaining column
+                if (score - (n - j - 1) > maxDistance) return maxDistance + 1;
+
+                hp = (hp << 1) | 1;
+                hn = hn << 1;
+                vp = hn | ~(d0 | hp);
+                vn = hp & d0;
+                prevEq = eq;
+            }
+
+            return score > maxDistance ? maxDistance + 1 : score;
+        }
+
+        private long mask(char c) {
+            if (c < 128) return asciiMasks[c];
+            for (int k = 0; k < otherCount; k++) {
+                if (otherChars[k] == c) return otherMasks[k];
+            }
+            return 0;
+        }
     }
-}
\ No newline at end of file
+}
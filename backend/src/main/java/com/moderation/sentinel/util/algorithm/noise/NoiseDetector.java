@@ -1,7 +1,6 @@
 package com.moderation.sentinel.util.algorithm.noise;
 
-import java.util.*;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 public class NoiseDetector {
     private static final Set<Character> COMMON_SEPARATORS = Set.of(
@@ -10,148 +9,28 @@ public class NoiseDetector {
         '<', '>', '?', ':', ';', '"', '\'', ',', ' '
     );
     
-    private static final Pattern LEET_SPEAK = Pattern.compile("[0-9@#$%^&*()_+\\-=\\[\\]{}|;':\",./<>?]");
-    private static final Pattern REPEATED_CHARS = Pattern.compile("(.)\\1{2,}");
-    private static final Pattern UNICODE_VARIATION = Pattern.compile("[\\u0080-\\uFFFF]");
+    // ASCII lookup tables compiled from the sets above
+    private static final boolean[] SEPARATOR_TABLE = new boolean[128];
+    static final char[] LEET_TABLE = new char[128];
     
-    public static String removeObfuscation(String input) {
-        if (input == null || input.isEmpty()) return input;
-        
-        String result = input.toLowerCase();
-        
-        // Common separators
-        result = removeSeparators(result);
-        
-        // Repeated characters
-        result = normalizeRepeatedChars(result);
-        
-        // Leet speak
-        result = convertLeetSpeak(result);
-        
-        // Unicode variations
-        result = normalizeUnicode(result);
-        
-        // Character insertion patterns
-        result = removeCharacterInsertion(result);
-        
-        return result;
-    }
-    
-    private static String removeSeparators(String input) {
-        StringBuilder result = new StringBuilder();
-        for (char c : input.toCharArray()) {
-            if (!COMMON_SEPARATORS.contains(c)) {
-                result.append(c);
-            }
-        }
-        return result.toString();
+    static {
+        for (char c : COMMON_SEPARATORS) SEPARATOR_TABLE[c] = true;
+        for (char c = 0; c < 128; c++) LEET_TABLE[c] = c;
+        LEET_TABLE['0'] = 'o'; LEET_TABLE['1'] = 'i'; LEET_TABLE['3'] = 'e'; LEET_TABLE['4'] = 'a';
+        LEET_TABLE['5'] = 's'; LEET_TABLE['7'] = 't'; LEET_TABLE['8'] = 'b'; LEET_TABLE['@'] = 'a';
+        LEET_TABLE['$'] = 's'; LEET_TABLE['!'] = 'i';
     }
     
-    private static String normalizeRepeatedChars(String input) {
-        return REPEATED_CHARS.matcher(input).replaceAll("$1$1");
-    }
-    
-    private static String convertLeetSpeak(String input) {
-        Map<String, String> leetMap = Map.of(
-            "0", "o", "1", "i", "3", "e", "4", "a", "5", "s",
-            "7", "t", "8", "b", "@", "a", "$", "s", "!", "i"
-        );
-        
-        String result = input;
-        for (Map.Entry<String, String> entry : leetMap.entrySet()) {
-            result = result.replace(entry.getKey(), entry.getValue());
-        }
-        return result;
-    }
-    
-    private static String normalizeUnicode(String input) {
-        return java.text.Normalizer.normalize(input, java.text.Normalizer.Form.NFKD)
-            .replaceAll("\\p{M}", "");
-    }
-    
-    // Char Insertion Obfuscation
-    private static String removeCharacterInsertion(String input) {
-        if (input.length() < 3) return input;
-        
-        StringBuilder pattern1 = new StringBuilder();
-        StringBuilder pattern2 = new StringBuilder();
-        
-        for (int i = 0; i < input.length(); i++) {
-            if (i % 2 == 0) pattern1.append(input.charAt(i));
-            else pattern2.append(input.charAt(i));
-        }
-        
-        return pattern1.length() > pattern2.length() ? pattern1.toString() : input;
+    public static boolean isSeparator(char c) {
+        return c < 128 && SEPARATOR_TABLE[c];
     }
     
-    // Confidence Score
-    public static double calculateObfuscationScore(String original, String deobfuscated) {
-        if (original.equals(deobfuscated)) return 0.0;
-        
-        double lengthRatio = (double) deobfuscated.length() / original.length();
-        double separatorCount = countSeparators(original);
-        double repeatCount = countRepeatedChars(original);
+    // How much of the original token was separators, repeats or otherwise removed
+    static double obfuscationScore(int originalLength, int deobfuscatedLength, int separators, int repeats) {
+        double lengthRatio = (double) deobfuscatedLength / originalLength;
+        double separatorCount = Math.min(1.0, (double) separators / originalLength);
+        double repeatCount = Math.min(1.0, (double) repeats / originalLength);
         
         return Math.min(1.0, (separatorCount + repeatCount + (1 - lengthRatio)) / 3);
     }
-    
-    private static double countSeparators(String input) {
-        long count = input.chars().mapToObj(c -> (char) c)
-            .filter(COMMON_SEPARATORS::contains).count();
-        return Math.min(1.0, (double) count / input.length());
-    }
-    
-    private static double countRepeatedChars(String input) {
-        int repeatedCount = 0;
-        for (int i = 1; i < input.length(); i++) {
-            if (input.charAt(i) == input.charAt(i - 1)) {
-                repeatedCount++;
-            }
-        }
-        return Math.min(1.0, (double) repeatedCount / input.length());
-    }
-    
-    // Obfuscation Variants
-    public static Set<String> generateObfuscationVariants(String word) {
-        Set<String> variants = new HashSet<>();
-        variants.add(word);
-        
-        for (char sep : List.of('.', '-', '*', '_')) {
-            variants.add(insertSeparators(word, sep));
-        }
-        
-        variants.add(addRandomRepeats(word));
-        
-        variants.add(toLeetSpeak(word));
-        
-        return variants;
-    }
-    
-    private static String insertSeparators(String word, char separator) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < word.length(); i++) {
-            result.append(word.charAt(i));
-            if (i < word.length() - 1) result.append(separator);
-        }
-        return result.toString();
-    }
-    
-    private static String addRandomRepeats(String word) {
-        StringBuilder result = new StringBuilder();
-        Random random = new Random();
-        for (char c : word.toCharArray()) {
-            result.append(c);
-            if (random.nextBoolean()) result.append(c);
-        }
-        return result.toString();
-    }
-    
-    private static String toLeetSpeak(String word) {
-        return word.replace('a', '@')
-                  .replace('e', '3')
-                  .replace('i', '1')
-                  .replace('o', '0')
-                  .replace('s', '$')
-                  .replace('t', '7');
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,322 @@
+package com.moderation.sentinel.util.algorithm.noise;
+
+import com.moderation.sentinel.util.algorithm.image.ImageInput;
+import com.moderation.sentinel.util.algorithm.image.ImageOutput;
+import com.moderation.sentinel.util.algorithm.normalization.TextNormalizer;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import com.moderation.sentinel.util.algorithm.storage.StringTable;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.*;
+
+/**
+ * Obfuscated spellings of dictionary terms, indexed once when the dictionary is built.
+ * Every term is keyed by its canonical form: lower-cased, separators dropped, leet digits and
+ * accented letters folded to plain letters, and runs collapsed to one character. All separator,
+ * leet and repeat variants of a term share that key, so one entry per term covers every
+ * combination of them. A token is folded the same way in a single pass and matched with one
+ * hash probe, then verified character by character; a repeat run may be longer than the term's
+ * own run but never shorter, so "fuuuck" matches "fuck" while "as" does not match "ass".
+ */
+public class VariantIndex {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int NO_WORD = -1;
+
+    public enum Family {
+        SEPARATOR, LEET, REPEAT, UNICODE, INSERTION;
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final ThreadLocal<Canonical> SCRATCH = ThreadLocal.withInitial(Canonical::new);
+
+    private final StringTable terms;
+    private final StringTable forms;       // each term folded but not collapsed, checked against tokens
+    private final LongBuffer tableHashes;  // canonical hash per slot; terms sharing a hash take nearby slots
+    private final IntBuffer tableWords;    // term index per slot, or -1 when empty
+    private final VariantIndex pending;    // terms added since this index was built, or null
+
+    private VariantIndex(StringTable terms, StringTable forms, LongBuffer tableHashes, IntBuffer tableWords,
+                         VariantIndex pending) {
+        this.terms = terms;
+        this.forms = forms;
+        this.tableHashes = tableHashes;
+        this.tableWords = tableWords;
+        this.pending = pending;
+    }
+
+    public static VariantIndex build(Collection<String> dictionary) {
+        return build(dictionary, ArrayStorage.HEAP);
+    }
+
+    public static VariantIndex build(Collection<String> dictionary, ArrayStorage storage) {
+        String[] terms = dictionary.stream()
+            .filter(term -> term != null && !term.isEmpty())
+            .distinct()
+            .sorted()
+            .toArray(String[]::new);
+        return withTable(terms, storage);
+    }
+
+    // Forms and table are written too, so a loaded index reads them in place instead of refolding every term
+    public void writeTo(ImageOutput out) throws IOException {
+        out.writeStrings(terms);
+        out.writeStrings(forms);
+        out.writeLongArray(tableHashes);
+        out.writeIntArray(tableWords);
+    }
+
+    public static VariantIndex readFrom(ImageInput in, ArrayStorage storage) {
+        return new VariantIndex(in.readStrings(storage), in.readStrings(storage), storage.longs(in.readLongs()),
+            storage.ints(in.readInts()), null);
+    }
+
+    private static VariantIndex withTable(String[] terms, ArrayStorage storage) {
+        int capacity = Integer.highestOneBit(Math.max(1, terms.length * 4 / 3)) << 1;
+        long[] tableHashes = new long[capacity];
+        int[] tableWords = new int[capacity];
+        Arrays.fill(tableWords, NO_WORD);
+        String[] forms = new String[terms.length];
+
+        Canonical canonical = new Canonical();
+        for (int id = 0; id < terms.length; id++) {
+            canonical.fold(terms[id]);
+            forms[id] = canonical.expanded();
+            if (canonical.length == 0) continue;
+            int slot = slotOf(canonical.hash, capacity);
+            while (tableWords[slot] != NO_WORD) slot = (slot + 1) & (capacity - 1);
+            tableHashes[slot] = canonical.hash;
+            tableWords[slot] = id;
+        }
+        return new VariantIndex(storage.strings(terms), storage.strings(forms), storage.longs(tableHashes),
+            storage.ints(tableWords), null);
+    }
+
+    /**
+     * Returns this index with {@code pending}, an index over terms added since it was built, consulted
+     * when this one has no match. The arrays of both are shared rather than copied.
+     */
+    public VariantIndex withPending(VariantIndex pending) {
+        return new VariantIndex(terms, forms, tableHashes, tableWords, pending);
+    }
+
+    /**
+     * Finds the dictionary term that {@code token} is an obfuscated spelling of. Returns null when
+     * there is none, or when the token is the term itself with nothing to undo.
+     * When the folded token does not match, has an odd length of three or more and every second
+     * character was typed as a digit or symbol, those characters are tried as inserted fillers, as in
+     * {@code "f1u2c3k"}. Letters are never taken as fillers, since ordinary words often hold a term
+     * at alternating positions.
+     */
+    public Match lookup(CharSequence token) {
+        if (token == null || token.length() == 0) return null;
+        Match match = match(token);
+        if (pending != null) {
+            // As one index would: a direct match beats a filler match, then the first term in order wins
+            Match other = pending.match(token);
+            if (other != null && (match == null || rank(other) < rank(match)
+                    || (rank(other) == rank(match) && other.term.compareTo(match.term) < 0))) {
+                match = other;
+            }
+        }
+        return match == null || match.families.isEmpty() ? null : match;
+    }
+
+    public int size() {
+        return terms.size() + (pending == null ? 0 : pending.size());
+    }
+
+    private static int rank(Match match) {
+        return match.families.contains(Family.INSERTION) ? 1 : 0;
+    }
+
+    // The match before the check for nothing to undo, which leaves its families empty
+    private Match match(CharSequence token) {
+        if (terms.size() == 0) return null;
+
+        Canonical canonical = SCRATCH.get();
+        canonical.fold(token);
+        if (canonical.length == 0) return null;
+
+        int word = find(canonical, canonical.hash, 1);
+        boolean inserted = false;
+        if (word == NO_WORD && canonical.length >= 3 && canonical.length % 2 == 1 && canonical.symbolFillers()) {
+            word = find(canonical, canonical.evenHash, 2);
+            inserted = word != NO_WORD;
+        }
+        if (word == NO_WORD) return null;
+
+        EnumSet<Family> families = EnumSet.noneOf(Family.class);
+        if (canonical.separators > 0) families.add(Family.SEPARATOR);
+        if (canonical.leet > 0) families.add(Family.LEET);
+        if (canonical.unicode > 0) families.add(Family.UNICODE);
+        if (inserted) families.add(Family.INSERTION);
+        if (hasLongerRun(canonical, word, inserted ? 2 : 1)) families.add(Family.REPEAT);
+
+        double score = NoiseDetector.obfuscationScore(token.length(), forms.length(word),
+            canonical.separators, canonical.rawRepeats);
+        return new Match(terms.get(word), Collections.unmodifiableSet(families), score);
+    }
+
+    // Probes the slots holding hash and returns the first word whose canonical form matches the token's
+    private int find(Canonical token, long hash, int stride) {
+        int mask = tableWords.limit() - 1;
+        for (int slot = slotOf(hash, tableWords.limit()); ; slot = (slot + 1) & mask) {
+            int word = tableWords.get(slot);
+            if (word == NO_WORD) return NO_WORD;
+            if (tableHashes.get(slot) == hash && matches(token, word, stride)) return word;
+        }
+    }
+
+    // Walks the term's runs against the token's canonical chars taken every stride positions
+    private boolean matches(Canonical token, int word, int stride) {
+        int length = forms.length(word);
+        int position = 0;
+        int i = 0;
+        while (i < length) {
+            char c = forms.charAt(word, i);
+            int run = 1;
+            while (i + run < length && forms.charAt(word, i + run) == c) run++;
+            i += run;
+
+            if (position >= token.length || token.chars[position] != c || token.runs[position] < run) return false;
+            position += stride;
+        }
+        return position >= token.length;
+    }
+
+    private boolean hasLongerRun(Canonical token, int word, int stride) {
+        int length = forms.length(word);
+        int position = 0;
+        for (int i = 0; i < length; position += stride) {
+            char c = forms.charAt(word, i);
+            int run = 1;
+            while (i + run < length && forms.charAt(word, i + run) == c) run++;
+            i += run;
+            if (token.runs[position] > run) return true;
+        }
+        return false;
+    }
+
+    private static int slotOf(long hash, int capacity) {
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+
+    public static class Match {
+        public final String term;
+        public final Set<Family> families;
+        public final double obfuscationScore;
+
+        public Match(String term, Set<Family> families, double obfuscationScore) {
+            this.term = term;
+            this.families = families;
+            this.obfuscationScore = obfuscationScore;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s%s", term, families);
+        }
+    }
+
+    /**
+     * Canonical form of one string: collapsed chars with the run length behind each and whether a
+     * letter was typed for it, the hashes of all and of every second collapsed char, and counts of
+     * what was undone to get there.
+     */
+    private static final class Canonical {
+        private char[] chars = new char[64];
+        private int[] runs = new int[64];
+        private boolean[] lettered = new boolean[64];
+        private int length;
+        private long hash;
+        private long evenHash;
+        private int separators;
+        private int leet;
+        private int unicode;
+        private int rawRepeats;
+
+        void fold(CharSequence input) {
+            length = 0;
+            hash = FNV_OFFSET;
+            evenHash = FNV_OFFSET;
+            separators = leet = unicode = rawRepeats = 0;
+
+            int previous = -1;
+            for (int i = 0; i < input.length(); ) {
+                int raw = Character.codePointAt(input, i);
+                i += Character.charCount(raw);
+                if (raw == previous) rawRepeats++;
+                previous = raw;
+
+                int c = Character.toLowerCase(raw);
+                if (c < 128) {
+                    foldAscii((char) c, Character.isLetter(c));
+                    continue;
+                }
+                // Decomposed as TextNormalizer does it, so math, fullwidth and enclosed letters fold alike
+                String stripped = TextNormalizer.withoutMarks(c);
+                if (stripped.length() != Character.charCount(c) || stripped.codePointAt(0) != c) unicode++;
+                boolean letter = Character.isLetter(c);
+                for (int k = 0; k < stripped.length(); k++) {
+                    char d = Character.toLowerCase(stripped.charAt(k));
+                    if (d < 128) {
+                        foldAscii(d, letter);
+                    } else {
+                        emit(d, letter);
+                    }
+                }
+            }
+        }
+
+        private void foldAscii(char c, boolean letter) {
+            if (NoiseDetector.isSeparator(c)) {
+                separators++;
+                return;
+            }
+            char plain = NoiseDetector.LEET_TABLE[c];
+            if (plain != c) leet++;
+            emit(plain, letter);
+        }
+
+        // Whether every second collapsed char, the candidate fillers, was typed as a digit or symbol
+        boolean symbolFillers() {
+            for (int i = 1; i < length; i += 2) {
+                if (lettered[i]) return false;
+            }
+            return true;
+        }
+
+        String expanded() {
+            StringBuilder form = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                for (int r = 0; r < runs[i]; r++) form.append(chars[i]);
+            }
+            return form.toString();
+        }
+
+        private void emit(char c, boolean letter) {
+            if (length > 0 && chars[length - 1] == c) {
+                runs[length - 1]++;
+                lettered[length - 1] |= letter;
+                return;
+            }
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, length * 2);
+                runs = Arrays.copyOf(runs, length * 2);
+                lettered = Arrays.copyOf(lettered, length * 2);
+            }
+            chars[length] = c;
+            runs[length] = 1;
+            lettered[length] = letter;
+            hash = (hash ^ c) * FNV_PRIME;
+            if (length % 2 == 0) evenHash = (evenHash ^ c) * FNV_PRIME;
+            length++;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.moderation.sentinel.util.algorithm.normalization;
 
 import java.text.Normalizer;
 import java.util.*;
-import java.util.regex.Pattern;
 
 public class TextNormalizer {
     private static final Map<String, Character> substitutionMap = new HashMap<>();
@@ -34,49 +33,263 @@ public class TextNormalizer {
         substitutionMap.put("2", 'z'); substitutionMap.put("ζ", 'z'); substitutionMap.put("ʐ", 'z'); substitutionMap.put("ž", 'z');
     }
     
+    // Compiled from substitutionMap: single-char keys index a char table, multi-char keys form a small trie
+    private static final char NO_SUBSTITUTION = '\0';
+    private static final char[] SINGLE_CHAR_TABLE = new char[Character.MAX_VALUE + 1];
+    private static final SubstitutionNode MULTI_CHAR_TRIE = new SubstitutionNode();
+    private static final int MAX_REPEATS = 2;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    // NFKD without marks of each code point in the BMP and the Supplementary Multilingual Plane, which
+    // holds the math alphanumerics, enclosed letters and emoji; filled lazily, racing writers store equal strings
+    private static final int CACHED_CODE_POINTS = 0x20000;
+    private static final String[] FOLDS = new String[CACHED_CODE_POINTS];
+
+    static {
+        for (Map.Entry<String, Character> entry : substitutionMap.entrySet()) {
+            String key = entry.getKey();
+            if (key.length() == 1) {
+                SINGLE_CHAR_TABLE[key.charAt(0)] = entry.getValue();
+            } else {
+                MULTI_CHAR_TRIE.add(key, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Lower-cases, strips diacritics, applies {@code substitutionMap}, drops {@code *} and {@code _}
+     * and caps character runs at two, all in one left-to-right pass. Overlapping keys resolve to the
+     * longest match and substituted output is never substituted again. Only non-ASCII characters
+     * go through NFKD, one code point at a time, so surrogate pairs such as math-bold letters fold
+     * as a whole.
+     */
     public static String normalize(String input) {
         if (input == null || input.isEmpty()) return "";
+        StringBuilder out = BUFFER.get();
+        normalizeInto(input, out, null);
+        return out.toString();
+    }
+
+    /**
+     * {@link #normalize(String)} that also records which range of {@code input} produced each
+     * normalized character.
+     */
+    public static Normalized normalizeWithOffsets(String input) {
+        if (input == null || input.isEmpty()) return new Normalized("", new int[0], new int[0]);
+        StringBuilder out = BUFFER.get();
+        SourceRanges ranges = new SourceRanges(input.length());
+        normalizeInto(input, out, ranges);
+        return new Normalized(out.toString(),
+            Arrays.copyOf(ranges.starts, out.length()),
+            Arrays.copyOf(ranges.ends, out.length()));
+    }
 
-        String result = input.toLowerCase();
-        result = Normalizer.normalize(result, Normalizer.Form.NFKD).replaceAll("\\p{M}", "");
+    private static void normalizeInto(String input, StringBuilder out, SourceRanges ranges) {
+        out.setLength(0);
+        int length = input.length();
+        for (int i = 0; i < length; ) {
+            char c = lower(input.charAt(i));
 
-        for (Map.Entry<String, Character> entry : substitutionMap.entrySet()) {
-            result = result.replaceAll(Pattern.quote(entry.getKey()), entry.getValue().toString());
+            if (c >= 128) {
+                // Decomposition output is only run through the single-char table
+                int codePoint = input.codePointAt(i);
+                int next = i + Character.charCount(codePoint);
+                String folded = withoutMarks(Character.toLowerCase(codePoint));
+                for (int k = 0; k < folded.length(); k++) {
+                    char d = lower(folded.charAt(k));
+                    char substitute = SINGLE_CHAR_TABLE[d];
+                    append(out, ranges, substitute != NO_SUBSTITUTION ? substitute : d, i, next);
+                }
+                i = next;
+                continue;
+            }
+
+            int match = MULTI_CHAR_TRIE.longestMatch(input, i);
+            if (match != 0) {
+                append(out, ranges, (char) match, i, i + (match >>> 16));
+                i += match >>> 16;
+            } else {
+                char substitute = SINGLE_CHAR_TABLE[c];
+                append(out, ranges, substitute != NO_SUBSTITUTION ? substitute : c, i, i + 1);
+                i++;
+            }
         }
+    }
 
-        result = result.replaceAll("[*#_]", "");
-        result = normalizeRepeatedCharacters(result, 2);
+    private static void append(StringBuilder out, SourceRanges ranges, char emitted, int sourceStart, int sourceEnd) {
+        if (emitted == '*' || emitted == '_') return;
 
-        return result;
+        int length = out.length();
+        if (length >= MAX_REPEATS) {
+            int same = 0;
+            while (same < MAX_REPEATS && out.charAt(length - 1 - same) == emitted) same++;
+            if (same == MAX_REPEATS) return;
+        }
+        out.append(emitted);
+        if (ranges != null) ranges.add(length, sourceStart, sourceEnd);
     }
 
     public static List<String> tokenize(String input) {
-        if (input == null || input.isBlank()) {
-            return List.of();
+        if (input == null) return List.of();
+        int[] spans = tokenizeSpans(input);
+        List<String> tokens = new ArrayList<>(spans.length / 2);
+        for (int k = 0; k < spans.length; k += 2) {
+            tokens.add(input.substring(spans[k], spans[k + 1]));
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits on whitespace and {@code _} without copying: token {@code t} spans
+     * {@code [spans[2t], spans[2t + 1])} of {@code text}.
+     */
+    public static int[] tokenizeSpans(CharSequence text) {
+        int length = text.length();
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (!isSeparator(text.charAt(i)) && (i == 0 || isSeparator(text.charAt(i - 1)))) count++;
+        }
+
+        int[] spans = new int[count * 2];
+        int k = 0;
+        for (int i = 0; i < length; ) {
+            while (i < length && isSeparator(text.charAt(i))) i++;
+            if (i == length) break;
+            spans[k++] = i;
+            while (i < length && !isSeparator(text.charAt(i))) i++;
+            spans[k++] = i;
+        }
+        return spans;
+    }
+
+    // The characters matched by \s, plus '_'
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '_' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * NFKD of one code point with combining marks dropped, as normalize folds it; may be empty or
+     * longer than one char, and is not lower-cased. Cached, so it allocates nothing after first use.
+     */
+    public static String withoutMarks(int codePoint) {
+        String folded = codePoint < CACHED_CODE_POINTS ? FOLDS[codePoint] : null;
+        if (folded != null) return folded;
+
+        String decomposed = Normalizer.normalize(Character.toString(codePoint), Normalizer.Form.NFKD);
+        StringBuilder kept = new StringBuilder(decomposed.length());
+        for (int k = 0; k < decomposed.length(); k++) {
+            if (!isMark(decomposed.charAt(k))) kept.append(decomposed.charAt(k));
         }
-        input = input.replace('_', ' ');
-        String[] tokens = input.trim().split("\\s+");
-        return Arrays.asList(tokens);
+        folded = kept.toString();
+        if (codePoint < CACHED_CODE_POINTS) FOLDS[codePoint] = folded;
+        return folded;
+    }
+
+    private static char lower(char c) {
+        if (c < 128) return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        return Character.toLowerCase(c);
+    }
+
+    private static boolean isMark(char c) {
+        if (c < 0x300) return false;
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK
+            || type == Character.ENCLOSING_MARK
+            || type == Character.COMBINING_SPACING_MARK;
     }
 
+    /**
+     * Normalized text plus, for every normalized character, the range of the original input it
+     * came from.
+     */
+    public static class Normalized {
+        public final String text;
+        private final int[] sourceStarts;
+        private final int[] sourceEnds;
+
+        Normalized(String text, int[] sourceStarts, int[] sourceEnds) {
+            this.text = text;
+            this.sourceStarts = sourceStarts;
+            this.sourceEnds = sourceEnds;
+        }
 
-    private static String normalizeRepeatedCharacters(String input, int maxRepeats) {
-        if (input.isEmpty()) return input;
-        StringBuilder result = new StringBuilder();
-        int count = 1;
-        result.append(input.charAt(0));
+        // Start offset in the original input of the normalized span [start, end)
+        public int sourceStart(int start, int end) {
+            return end > start ? sourceStarts[start] : 0;
+        }
 
-        for (int i = 1; i < input.length(); i++) {
-            if (input.charAt(i) == input.charAt(i - 1)) {
-                count++;
-                if (count <= maxRepeats) {
-                    result.append(input.charAt(i));
+        // End offset (exclusive) in the original input of the normalized span [start, end)
+        public int sourceEnd(int start, int end) {
+            return end > start ? sourceEnds[end - 1] : 0;
+        }
+    }
+
+    private static class SourceRanges {
+        int[] starts;
+        int[] ends;
+
+        SourceRanges(int capacity) {
+            starts = new int[Math.max(16, capacity)];
+            ends = new int[starts.length];
+        }
+
+        void add(int index, int start, int end) {
+            if (index == starts.length) {
+                starts = Arrays.copyOf(starts, index * 2);
+                ends = Arrays.copyOf(ends, index * 2);
+            }
+            starts[index] = start;
+            ends[index] = end;
+        }
+    }
+
+    private static class SubstitutionNode {
+        private char[] labels = new char[0];
+        private SubstitutionNode[] children = new SubstitutionNode[0];
+        private char output = NO_SUBSTITUTION;
+
+        void add(String key, char value) {
+            SubstitutionNode node = this;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+            }
+            node.output = value;
+        }
+
+        // Returns (matched length << 16 | output char), or 0 when no key starts at from
+        int longestMatch(CharSequence source, int from) {
+            SubstitutionNode node = this;
+            int best = 0;
+            for (int i = from; i < source.length(); i++) {
+                char c = lower(source.charAt(i));
+                SubstitutionNode next = node.child(c);
+                // Letter keys such as "ph" also match a symbol that substitutes to the letter ("p#")
+                if (next == null && i > from && Character.isLetter(SINGLE_CHAR_TABLE[c])) {
+                    next = node.child(SINGLE_CHAR_TABLE[c]);
+                }
+                node = next;
+                if (node == null) break;
+                if (node.output != NO_SUBSTITUTION) {
+                    best = (i - from + 1) << 16 | node.output;
                 }
-            } else {
-                count = 1;
-                result.append(input.charAt(i));
             }
+            return best;
+        }
+
+        private SubstitutionNode child(char c) {
+            for (int k = 0; k < labels.length; k++) {
+                if (labels[k] == c) return children[k];
+            }
+            return null;
+        }
+
+        private SubstitutionNode childOrCreate(char c) {
+            SubstitutionNode existing = child(c);
+            if (existing != null) return existing;
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = c;
+            children[children.length - 1] = new SubstitutionNode();
+            return children[children.length - 1];
         }
-        return result.toString();
     }
-}
\ No newline at end of file
+}
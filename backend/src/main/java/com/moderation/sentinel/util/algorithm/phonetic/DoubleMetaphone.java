@@ -0,0 +1,627 @@
+package com.moderation.sentinel.util.algorithm.phonetic;
+
+/**
+ * Lawrence Philips' Double Metaphone with both codes packed into one {@code int}.
+ * The primary code is in the high 16 bits and the alternate code in the low 16 bits. Each code
+ * holds up to four symbols, one per nibble, with the first symbol in the highest nibble. A symbol
+ * is its index plus one in {@link #SYMBOLS}, so a zero nibble ends the code.
+ * Encoding works on a per-thread upper-case copy of the input and allocates nothing once that
+ * buffer has grown to the longest word seen.
+ */
+public final class DoubleMetaphone {
+    public static final int NONE = 0;
+
+    private static final String SYMBOLS = " 0AFHJKLMNPRSTX";
+    private static final int MAX_LENGTH = 4;
+
+    private static final String[] SILENT_START = {"GN", "KN", "PN", "WR", "PS"};
+    private static final String[] L_R_N_M_B_H_F_V_W_SPACE = {"L", "R", "N", "M", "B", "H", "F", "V", "W", " "};
+    private static final String[] ES_EP_EB_EL_EY_IB_IL_IN_IE_EI_ER =
+        {"ES", "EP", "EB", "EL", "EY", "IB", "IL", "IN", "IE", "EI", "ER"};
+    private static final String[] L_T_K_S_N_M_B_Z = {"L", "T", "K", "S", "N", "M", "B", "Z"};
+    private static final String[] SC_H_ENDINGS = {"OO", "ER", "EN", "UY", "ED", "EM"};
+
+    private static final ThreadLocal<DoubleMetaphone> ENCODERS = ThreadLocal.withInitial(DoubleMetaphone::new);
+
+    private char[] value = new char[32];
+    private int length;
+    private int primary;
+    private int primaryLength;
+    private int alternate;
+    private int alternateLength;
+
+    private DoubleMetaphone() {
+    }
+
+    public static int encode(CharSequence text) {
+        return text == null ? NONE : encode(text, 0, text.length());
+    }
+
+    /**
+     * Encodes the span {@code [start, end)} of {@code text}; returns {@link #NONE} when it is blank.
+     */
+    public static int encode(CharSequence text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (start == end) return NONE;
+        return ENCODERS.get().run(text, start, end);
+    }
+
+    public static int primary(int code) {
+        return code >>> 16;
+    }
+
+    public static int alternate(int code) {
+        return code & 0xFFFF;
+    }
+
+    public static String toString(int packed) {
+        char[] chars = new char[MAX_LENGTH];
+        int length = 0;
+        for (int shift = 12; shift >= 0 && ((packed >>> shift) & 0xF) != 0; shift -= 4) {
+            chars[length++] = SYMBOLS.charAt(((packed >>> shift) & 0xF) - 1);
+        }
+        return new String(chars, 0, length);
+    }
+
+    private int run(CharSequence text, int start, int end) {
+        length = end - start;
+        if (value.length < length) value = new char[Math.max(length, value.length * 2)];
+        for (int i = 0; i < length; i++) {
+            value[i] = Character.toUpperCase(text.charAt(start + i));
+        }
+        primary = primaryLength = alternate = alternateLength = 0;
+
+        boolean slavoGermanic = isSlavoGermanic();
+        int index = contains(0, SILENT_START) ? 1 : 0;
+
+        while (!isComplete() && index <= length - 1) {
+            switch (value[index]) {
+                case 'A', 'E', 'I', 'O', 'U', 'Y' -> {
+                    if (index == 0) append('A');
+                    index++;
+                }
+                case 'B' -> {
+                    append('P');
+                    index = charAt(index + 1) == 'B' ? index + 2 : index + 1;
+                }
+                case '\u00C7' -> {
+                    append('S');
+                    index++;
+                }
+                case 'C' -> index = handleC(index);
+                case 'D' -> index = handleD(index);
+                case 'F' -> {
+                    append('F');
+                    index = charAt(index + 1) == 'F' ? index + 2 : index + 1;
+                }
+                case 'G' -> index = handleG(index, slavoGermanic);
+                case 'H' -> index = handleH(index);
+                case 'J' -> index = handleJ(index, slavoGermanic);
+                case 'K' -> {
+                    append('K');
+                    index = charAt(index + 1) == 'K' ? index + 2 : index + 1;
+                }
+                case 'L' -> index = handleL(index);
+                case 'M' -> {
+                    append('M');
+                    index = conditionM0(index) ? index + 2 : index + 1;
+                }
+                case 'N' -> {
+                    append('N');
+                    index = charAt(index + 1) == 'N' ? index + 2 : index + 1;
+                }
+                case '\u00D1' -> {
+                    append('N');
+                    index++;
+                }
+                case 'P' -> index = handleP(index);
+                case 'Q' -> {
+                    append('K');
+                    index = charAt(index + 1) == 'Q' ? index + 2 : index + 1;
+                }
+                case 'R' -> index = handleR(index, slavoGermanic);
+                case 'S' -> index = handleS(index, slavoGermanic);
+                case 'T' -> index = handleT(index);
+                case 'V' -> {
+                    append('F');
+                    index = charAt(index + 1) == 'V' ? index + 2 : index + 1;
+                }
+                case 'W' -> index = handleW(index);
+                case 'X' -> index = handleX(index);
+                case 'Z' -> index = handleZ(index, slavoGermanic);
+                default -> index++;
+            }
+        }
+        return primary << 16 | alternate;
+    }
+
+    private int handleC(int index) {
+        if (conditionC0(index)) {
+            append('K');
+            index += 2;
+        } else if (index == 0 && contains(index, "CAESAR")) {
+            append('S');
+            index += 2;
+        } else if (contains(index, "CH")) {
+            index = handleCH(index);
+        } else if (contains(index, "CZ") && !contains(index - 2, "WICZ")) {
+            // "Czerny"
+            append('S', 'X');
+            index += 2;
+        } else if (contains(index + 1, "CIA")) {
+            // "focaccia"
+            append('X');
+            index += 3;
+        } else if (contains(index, "CC") && !(index == 1 && charAt(0) == 'M')) {
+            // Double "cc" but not "McClelland"
+            return handleCC(index);
+        } else if (contains(index, "CK", "CG", "CQ")) {
+            append('K');
+            index += 2;
+        } else if (contains(index, "CI", "CE", "CY")) {
+            // Italian vs. English
+            if (contains(index, "CIO", "CIE", "CIA")) {
+                append('S', 'X');
+            } else {
+                append('S');
+            }
+            index += 2;
+        } else {
+            append('K');
+            if (contains(index + 1, " C", " Q", " G")) {
+                // "Mac Caffrey", "Mac Gregor"
+                index += 3;
+            } else if (contains(index + 1, "C", "K", "Q") && !contains(index + 1, "CE", "CI")) {
+                index += 2;
+            } else {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    private int handleCC(int index) {
+        if (contains(index + 2, "I", "E", "H") && !contains(index + 2, "HU")) {
+            // "bellocchio" but not "bacchus"
+            if ((index == 1 && charAt(index - 1) == 'A') || contains(index - 1, "UCCEE", "UCCES")) {
+                // "accident", "accede", "succeed"
+                append("KS", "KS");
+            } else {
+                // "bacci", "bertucci" and other Italian
+                append('X');
+            }
+            index += 3;
+        } else {
+            // Pierce's rule
+            append('K');
+            index += 2;
+        }
+        return index;
+    }
+
+    private int handleCH(int index) {
+        if (index > 0 && contains(index, "CHAE")) {
+            // "Michael"
+            append('K', 'X');
+        } else if (conditionCH0(index) || conditionCH1(index)) {
+            // Greek roots such as "chemistry" and "chorus", or Germanic 'ch' for 'kh'
+            append('K');
+        } else if (index > 0) {
+            if (contains(0, "MC")) {
+                append('K');
+            } else {
+                append('X', 'K');
+            }
+        } else {
+            append('X');
+        }
+        return index + 2;
+    }
+
+    private int handleD(int index) {
+        if (contains(index, "DG")) {
+            if (contains(index + 2, "I", "E", "Y")) {
+                // "edge"
+                append('J');
+                index += 3;
+            } else {
+                // "Edgar"
+                append("TK", "TK");
+                index += 2;
+            }
+        } else if (contains(index, "DT", "DD")) {
+            append('T');
+            index += 2;
+        } else {
+            append('T');
+            index++;
+        }
+        return index;
+    }
+
+    private int handleG(int index, boolean slavoGermanic) {
+        if (charAt(index + 1) == 'H') {
+            index = handleGH(index);
+        } else if (charAt(index + 1) == 'N') {
+            if (index == 1 && isVowel(charAt(0)) && !slavoGermanic) {
+                append("KN", "N");
+            } else if (!contains(index + 2, "EY") && charAt(index + 1) != 'Y' && !slavoGermanic) {
+                append("N", "KN");
+            } else {
+                append("KN", "KN");
+            }
+            index += 2;
+        } else if (contains(index + 1, "LI") && !slavoGermanic) {
+            append("KL", "L");
+            index += 2;
+        } else if (index == 0 && (charAt(index + 1) == 'Y' || contains(index + 1, ES_EP_EB_EL_EY_IB_IL_IN_IE_EI_ER))) {
+            // -ges-, -gep-, -gel-, -gie- at the beginning
+            append('K', 'J');
+            index += 2;
+        } else if ((contains(index + 1, "ER") || charAt(index + 1) == 'Y')
+                && !contains(0, "DANGER", "RANGER", "MANGER")
+                && !contains(index - 1, "E", "I")
+                && !contains(index - 1, "RGY", "OGY")) {
+            // -ger-, -gy-
+            append('K', 'J');
+            index += 2;
+        } else if (contains(index + 1, "E", "I", "Y") || contains(index - 1, "AGGI", "OGGI")) {
+            // Italian "biaggi"
+            if (contains(0, "VAN ", "VON ") || contains(0, "SCH") || contains(index + 1, "ET")) {
+                // Obviously Germanic
+                append('K');
+            } else if (contains(index + 1, "IER")) {
+                append('J');
+            } else {
+                append('J', 'K');
+            }
+            index += 2;
+        } else if (charAt(index + 1) == 'G') {
+            append('K');
+            index += 2;
+        } else {
+            append('K');
+            index++;
+        }
+        return index;
+    }
+
+    private int handleGH(int index) {
+        if (index > 0 && !isVowel(charAt(index - 1))) {
+            append('K');
+        } else if (index == 0) {
+            append(charAt(index + 2) == 'I' ? 'J' : 'K');
+        } else if ((index > 1 && contains(index - 2, "B", "H", "D"))
+                || (index > 2 && contains(index - 3, "B", "H", "D"))
+                || (index > 3 && contains(index - 4, "B", "H"))) {
+            // Parker's rule: "hugh"
+        } else if (index > 2 && charAt(index - 1) == 'U' && contains(index - 3, "C", "G", "L", "R", "T")) {
+            // "laugh", "McLaughlin", "cough", "gough", "rough", "tough"
+            append('F');
+        } else if (charAt(index - 1) != 'I') {
+            append('K');
+        }
+        return index + 2;
+    }
+
+    private int handleH(int index) {
+        // Only kept when first or between two vowels
+        if ((index == 0 || isVowel(charAt(index - 1))) && isVowel(charAt(index + 1))) {
+            append('H');
+            return index + 2;
+        }
+        return index + 1;
+    }
+
+    private int handleJ(int index, boolean slavoGermanic) {
+        if (contains(index, "JOSE") || contains(0, "SAN ")) {
+            // Obviously Spanish: "Jose", "San Jacinto"
+            if ((index == 0 && charAt(index + 4) == ' ') || length == 4 || contains(0, "SAN ")) {
+                append('H');
+            } else {
+                append('J', 'H');
+            }
+            return index + 1;
+        }
+
+        if (index == 0) {
+            append('J', 'A');
+        } else if (isVowel(charAt(index - 1)) && !slavoGermanic
+                && (charAt(index + 1) == 'A' || charAt(index + 1) == 'O')) {
+            append('J', 'H');
+        } else if (index == length - 1) {
+            append('J', ' ');
+        } else if (!contains(index + 1, L_T_K_S_N_M_B_Z) && !contains(index - 1, "S", "K", "L")) {
+            append('J');
+        }
+        return charAt(index + 1) == 'J' ? index + 2 : index + 1;
+    }
+
+    private int handleL(int index) {
+        if (charAt(index + 1) == 'L') {
+            if (conditionL0(index)) {
+                appendPrimary('L');
+            } else {
+                append('L');
+            }
+            return index + 2;
+        }
+        append('L');
+        return index + 1;
+    }
+
+    private int handleP(int index) {
+        if (charAt(index + 1) == 'H') {
+            append('F');
+            return index + 2;
+        }
+        append('P');
+        return contains(index + 1, "P", "B") ? index + 2 : index + 1;
+    }
+
+    private int handleR(int index, boolean slavoGermanic) {
+        if (index == length - 1 && !slavoGermanic && contains(index - 2, "IE") && !contains(index - 4, "ME", "MA")) {
+            appendAlternate('R');
+        } else {
+            append('R');
+        }
+        return charAt(index + 1) == 'R' ? index + 2 : index + 1;
+    }
+
+    private int handleS(int index, boolean slavoGermanic) {
+        if (contains(index - 1, "ISL", "YSL")) {
+            // "island", "isle", "carlisle", "carlysle"
+            index++;
+        } else if (index == 0 && contains(index, "SUGAR")) {
+            append('X', 'S');
+            index++;
+        } else if (contains(index, "SH")) {
+            if (contains(index + 1, "HEIM", "HOEK", "HOLM", "HOLZ")) {
+                // Germanic
+                append('S');
+            } else {
+                append('X');
+            }
+            index += 2;
+        } else if (contains(index, "SIO", "SIA") || contains(index, "SIAN")) {
+            // Italian and Armenian
+            if (slavoGermanic) {
+                append('S');
+            } else {
+                append('S', 'X');
+            }
+            index += 3;
+        } else if ((index == 0 && contains(index + 1, "M", "N", "L", "W")) || contains(index + 1, "Z")) {
+            // "smith" matches "schmidt", "snider" matches "schneider"; also Slavic -sz-
+            append('S', 'X');
+            index = contains(index + 1, "Z") ? index + 2 : index + 1;
+        } else if (contains(index, "SC")) {
+            index = handleSC(index);
+        } else {
+            if (index == length - 1 && contains(index - 2, "AI", "OI")) {
+                // French: "resnais", "artois"
+                appendAlternate('S');
+            } else {
+                append('S');
+            }
+            index = contains(index + 1, "S", "Z") ? index + 2 : index + 1;
+        }
+        return index;
+    }
+
+    private int handleSC(int index) {
+        if (charAt(index + 2) == 'H') {
+            // Schlesinger's rule
+            if (contains(index + 3, SC_H_ENDINGS)) {
+                // Dutch origin: "school", "schooner", "schermerhorn", "schenker"
+                if (contains(index + 3, "ER", "EN")) {
+                    append("X", "SK");
+                } else {
+                    append("SK", "SK");
+                }
+            } else if (index == 0 && !isVowel(charAt(3)) && charAt(3) != 'W') {
+                append('X', 'S');
+            } else {
+                append('X');
+            }
+        } else if (contains(index + 2, "I", "E", "Y")) {
+            append('S');
+        } else {
+            append("SK", "SK");
+        }
+        return index + 3;
+    }
+
+    private int handleT(int index) {
+        if (contains(index, "TION") || contains(index, "TIA", "TCH")) {
+            append('X');
+            return index + 3;
+        }
+        if (contains(index, "TH") || contains(index, "TTH")) {
+            if (contains(index + 2, "OM", "AM") || contains(0, "VAN ", "VON ") || contains(0, "SCH")) {
+                // "thomas", "thames" or Germanic
+                append('T');
+            } else {
+                append('0', 'T');
+            }
+            return index + 2;
+        }
+        append('T');
+        return contains(index + 1, "T", "D") ? index + 2 : index + 1;
+    }
+
+    private int handleW(int index) {
+        if (contains(index, "WR")) {
+            // Also in the middle of a word
+            append('R');
+            return index + 2;
+        }
+        if (index == 0 && (isVowel(charAt(index + 1)) || contains(index, "WH"))) {
+            if (isVowel(charAt(index + 1))) {
+                // "Wasserman" matches "Vasserman"
+                append('A', 'F');
+            } else {
+                // "Uomo" matches "Womo"
+                append('A');
+            }
+            return index + 1;
+        }
+        if ((index == length - 1 && isVowel(charAt(index - 1)))
+                || contains(index - 1, "EWSKI", "EWSKY", "OWSKI", "OWSKY")
+                || contains(0, "SCH")) {
+            // "Arnow" matches "Arnoff"
+            appendAlternate('F');
+            return index + 1;
+        }
+        if (contains(index, "WICZ", "WITZ")) {
+            // Polish: "filipowicz"
+            append("TS", "FX");
+            return index + 4;
+        }
+        return index + 1;
+    }
+
+    private int handleX(int index) {
+        if (index == 0) {
+            append('S');
+            return index + 1;
+        }
+        if (!(index == length - 1 && (contains(index - 3, "IAU", "EAU") || contains(index - 2, "AU", "OU")))) {
+            // Silent in French endings: "breaux"
+            append("KS", "KS");
+        }
+        return contains(index + 1, "C", "X") ? index + 2 : index + 1;
+    }
+
+    private int handleZ(int index, boolean slavoGermanic) {
+        if (charAt(index + 1) == 'H') {
+            // Chinese pinyin: "zhao"
+            append('J');
+            return index + 2;
+        }
+        if (contains(index + 1, "ZO", "ZI", "ZA") || (slavoGermanic && index > 0 && charAt(index - 1) != 'T')) {
+            append("S", "TS");
+        } else {
+            append('S');
+        }
+        return charAt(index + 1) == 'Z' ? index + 2 : index + 1;
+    }
+
+    private boolean conditionC0(int index) {
+        if (contains(index, "CHIA")) return true;
+        if (index <= 1) return false;
+        if (isVowel(charAt(index - 2))) return false;
+        if (!contains(index - 1, "ACH")) return false;
+        char c = charAt(index + 2);
+        return (c != 'I' && c != 'E') || contains(index - 2, "BACHER", "MACHER");
+    }
+
+    private boolean conditionCH0(int index) {
+        if (index != 0) return false;
+        if (!contains(index + 1, "HARAC", "HARIS") && !contains(index + 1, "HOR", "HYM", "HIA", "HEM")) return false;
+        return !contains(0, "CHORE");
+    }
+
+    private boolean conditionCH1(int index) {
+        return contains(0, "VAN ", "VON ") || contains(0, "SCH")
+            || contains(index - 2, "ORCHES", "ARCHIT", "ORCHID")
+            || contains(index + 2, "T", "S")
+            || ((contains(index - 1, "A", "O", "U", "E") || index == 0)
+                && (contains(index + 2, L_R_N_M_B_H_F_V_W_SPACE) || index + 1 == length - 1));
+    }
+
+    private boolean conditionL0(int index) {
+        if (index == length - 3 && contains(index - 1, "ILLO", "ILLA", "ALLE")) return true;
+        return (contains(length - 2, "AS", "OS") || contains(length - 1, "A", "O")) && contains(index - 1, "ALLE");
+    }
+
+    private boolean conditionM0(int index) {
+        if (charAt(index + 1) == 'M') return true;
+        return contains(index - 1, "UMB") && (index + 1 == length - 1 || contains(index + 2, "ER"));
+    }
+
+    private boolean isSlavoGermanic() {
+        for (int i = 0; i < length; i++) {
+            char c = value[i];
+            if (c == 'W' || c == 'K' || (c == 'C' && charAt(i + 1) == 'Z')) return true;
+        }
+        return false;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U' || c == 'Y';
+    }
+
+    private char charAt(int index) {
+        return index < 0 || index >= length ? Character.MIN_VALUE : value[index];
+    }
+
+    // True when the region starting at start equals one of the candidates; all candidates have the same length
+    private boolean contains(int start, String a) {
+        return matches(start, a);
+    }
+
+    private boolean contains(int start, String a, String b) {
+        return matches(start, a) || matches(start, b);
+    }
+
+    private boolean contains(int start, String a, String b, String c) {
+        return matches(start, a) || matches(start, b) || matches(start, c);
+    }
+
+    private boolean contains(int start, String a, String b, String c, String d) {
+        return matches(start, a) || matches(start, b) || matches(start, c) || matches(start, d);
+    }
+
+    private boolean contains(int start, String a, String b, String c, String d, String e) {
+        return matches(start, a) || matches(start, b) || matches(start, c) || matches(start, d) || matches(start, e);
+    }
+
+    private boolean contains(int start, String[] candidates) {
+        for (String candidate : candidates) {
+            if (matches(start, candidate)) return true;
+        }
+        return false;
+    }
+
+    private boolean matches(int start, String candidate) {
+        int n = candidate.length();
+        if (start < 0 || start + n > length) return false;
+        for (int i = 0; i < n; i++) {
+            if (value[start + i] != candidate.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private boolean isComplete() {
+        return primaryLength >= MAX_LENGTH && alternateLength >= MAX_LENGTH;
+    }
+
+    private void append(char both) {
+        appendPrimary(both);
+        appendAlternate(both);
+    }
+
+    private void append(char primarySymbol, char alternateSymbol) {
+        appendPrimary(primarySymbol);
+        appendAlternate(alternateSymbol);
+    }
+
+    private void append(String primarySymbols, String alternateSymbols) {
+        for (int i = 0; i < primarySymbols.length(); i++) appendPrimary(primarySymbols.charAt(i));
+        for (int i = 0; i < alternateSymbols.length(); i++) appendAlternate(alternateSymbols.charAt(i));
+    }
+
+    private void appendPrimary(char symbol) {
+        if (primaryLength < MAX_LENGTH) {
+            primary |= (SYMBOLS.indexOf(symbol) + 1) << (12 - 4 * primaryLength++);
+        }
+    }
+
+    private void appendAlternate(char symbol) {
+        if (alternateLength < MAX_LENGTH) {
+            alternate |= (SYMBOLS.indexOf(symbol) + 1) << (12 - 4 * alternateLength++);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.moderation.sentinel.util.algorithm.phonetic;
+
+import com.moderation.sentinel.util.algorithm.image.ImageInput;
+import com.moderation.sentinel.util.algorithm.image.ImageOutput;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+
+/**
+ * Open-addressing map from a packed phonetic code to the best term with that code.
+ * The winner for each code is chosen once at build time, so a lookup is a single probe sequence
+ * over two int arrays and does not allocate. Code 0 is reserved for empty slots.
+ */
+public class PhoneticIndex {
+    private static final int EMPTY = 0;
+
+    private final IntBuffer tableCodes;
+    private final IntBuffer tableTerms;
+
+    private PhoneticIndex(IntBuffer tableCodes, IntBuffer tableTerms) {
+        this.tableCodes = tableCodes;
+        this.tableTerms = tableTerms;
+    }
+
+    /**
+     * Indexes {@code terms[i]} under {@code codes[i]}. When several terms share a code the one with the
+     * highest {@code rank} wins, and among equal ranks the first one listed. Zero codes are skipped.
+     */
+    public static PhoneticIndex build(int[] codes, int[] terms, int[] rank, ArrayStorage storage) {
+        int capacity = Integer.highestOneBit(Math.max(1, codes.length * 4 / 3)) << 1;
+        int[] tableCodes = new int[capacity];
+        int[] tableTerms = new int[capacity];
+
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] == EMPTY) continue;
+            int slot = slotOf(codes[i], capacity);
+            while (tableCodes[slot] != EMPTY && tableCodes[slot] != codes[i]) slot = (slot + 1) & (capacity - 1);
+
+            if (tableCodes[slot] == EMPTY) {
+                tableCodes[slot] = codes[i];
+                tableTerms[slot] = terms[i];
+            } else if (rank[terms[i]] > rank[tableTerms[slot]]) {
+                tableTerms[slot] = terms[i];
+            }
+        }
+        return new PhoneticIndex(storage.ints(tableCodes), storage.ints(tableTerms));
+    }
+
+    public void writeTo(ImageOutput out) throws IOException {
+        out.writeIntArray(tableCodes);
+        out.writeIntArray(tableTerms);
+    }
+
+    public static PhoneticIndex readFrom(ImageInput in, ArrayStorage storage) {
+        return new PhoneticIndex(storage.ints(in.readInts()), storage.ints(in.readInts()));
+    }
+
+    /**
+     * Returns the term indexed under {@code code}, or -1.
+     */
+    public int lookup(int code) {
+        if (code == EMPTY) return -1;
+        int mask = tableCodes.limit() - 1;
+        for (int slot = slotOf(code, tableCodes.limit()); ; slot = (slot + 1) & mask) {
+            int stored = tableCodes.get(slot);
+            if (stored == code) return tableTerms.get(slot);
+            if (stored == EMPTY) return -1;
+        }
+    }
+
+    private static int slotOf(int code, int capacity) {
+        int h = code * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+}
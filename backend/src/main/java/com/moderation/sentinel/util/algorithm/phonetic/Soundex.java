@@ -0,0 +1,95 @@
+package com.moderation.sentinel.util.algorithm.phonetic;
+
+/**
+ * Soundex codes packed into an {@code int}: the first letter (1-26) in bits 12-16 and the three
+ * digits in the nibbles below it, so {@code "R163"} is {@code (18 << 12) | 0x163}. Characters
+ * other than ASCII letters are skipped, and 0 means the input has no letters at all.
+ * Encoding is a table lookup per character and does not allocate.
+ */
+public final class Soundex {
+    public static final int NONE = 0;
+
+    // Digit per letter; 0 marks the letters Soundex drops after the first (a, e, i, o, u, h, w, y)
+    private static final byte[] DIGITS = new byte[26];
+
+    static {
+        assign("bfpv", 1);
+        assign("cgjkqsxz", 2);
+        assign("dt", 3);
+        assign("l", 4);
+        assign("mn", 5);
+        assign("r", 6);
+    }
+
+    private Soundex() {
+    }
+
+    public static int encode(CharSequence text) {
+        return text == null ? NONE : encode(text, 0, text.length());
+    }
+
+    /**
+     * Encodes the span {@code [start, end)} of {@code text}.
+     */
+    public static int encode(CharSequence text, int start, int end) {
+        int code = NONE;
+        int digits = 0;
+        int previous = 0;
+        for (int i = start; i < end && digits < 3; i++) {
+            int letter = letterIndex(text.charAt(i));
+            if (letter < 0) continue;
+
+            if (code == NONE) {
+                code = (letter + 1) << 12;
+                continue;
+            }
+            int digit = DIGITS[letter];
+            if (digit != 0 && digit != previous) {
+                code |= digit << (8 - 4 * digits++);
+                previous = digit;
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Packs a code in the four-character form produced by {@link #toString(int)}, or returns
+     * {@link #NONE} when {@code code} is not in that form.
+     */
+    public static int parse(String code) {
+        if (code == null || code.length() != 4 || code.charAt(0) < 'A' || code.charAt(0) > 'Z') return NONE;
+        int packed = (code.charAt(0) - 'A' + 1) << 12;
+        for (int i = 1; i < 4; i++) {
+            int digit = code.charAt(i) - '0';
+            if (digit < 0 || digit > 6) return NONE;
+            packed |= digit << (12 - 4 * i);
+        }
+        return packed;
+    }
+
+    public static String toString(int code) {
+        if (code == NONE) return "";
+        char[] chars = {
+            (char) ('A' + (code >>> 12) - 1),
+            (char) ('0' + ((code >>> 8) & 0xF)),
+            (char) ('0' + ((code >>> 4) & 0xF)),
+            (char) ('0' + (code & 0xF))
+        };
+        return new String(chars);
+    }
+
+    private static int letterIndex(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        if (c < 128) return -1;
+        // Letters such as the Kelvin sign lower-case into ASCII
+        char lower = Character.toLowerCase(c);
+        return lower >= 'a' && lower <= 'z' ? lower - 'a' : -1;
+    }
+
+    private static void assign(String letters, int digit) {
+        for (int i = 0; i < letters.length(); i++) {
+            DIGITS[letters.charAt(i) - 'a'] = (byte) digit;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.moderation.sentinel.util.algorithm.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Where the read-only arrays behind the dictionary structures live.
+ * {@link #HEAP} wraps ordinary arrays. {@link #mapped(Path)} keeps every array in a memory-mapped
+ * file outside the Java heap, so dictionary size adds nothing for the garbage collector to trace,
+ * copy or compact. Structures only see {@link java.nio} buffers and read them with absolute gets.
+ */
+public abstract class ArrayStorage {
+    public static final ArrayStorage HEAP = new HeapStorage();
+
+    public static ArrayStorage mapped(Path directory) {
+        return new MappedStorage(directory);
+    }
+
+    /**
+     * Resolves the {@code application.dictionary.storage} setting: {@code heap} or {@code mapped}.
+     */
+    public static ArrayStorage forName(String name, Path mappedDirectory) {
+        return switch (name.trim().toLowerCase()) {
+            case "heap" -> HEAP;
+            case "mapped" -> mapped(mappedDirectory);
+            default -> throw new IllegalArgumentException("Unknown dictionary storage: " + name);
+        };
+    }
+
+    public abstract IntBuffer ints(int[] values);
+
+    /**
+     * A writable, zero-filled buffer of {@code length} ints, for builders that fill their arrays in place.
+     */
+    public abstract IntBuffer newInts(int length);
+
+    public abstract LongBuffer longs(long[] values);
+
+    public abstract CharBuffer chars(char[] values);
+
+    /**
+     * A writable, zero-filled region of {@code length} bytes, such as a decrypted dictionary image
+     * whose arrays are then taken over with the view overloads below.
+     */
+    public abstract ByteBuffer newBytes(int length);
+
+    /**
+     * Takes over a view into a region from {@link #newBytes}: off-heap storage keeps the view as it
+     * is, heap storage copies it into an array.
+     */
+    public IntBuffer ints(IntBuffer view) {
+        return view;
+    }
+
+    public LongBuffer longs(LongBuffer view) {
+        return view;
+    }
+
+    public CharBuffer chars(CharBuffer view) {
+        return view;
+    }
+
+    public StringTable strings(CharBuffer chars, IntBuffer offsets) {
+        return new StringTable(chars(chars), ints(offsets));
+    }
+
+    public StringTable strings(Collection<String> values) {
+        return strings(values.toArray(new String[0]));
+    }
+
+    public StringTable strings(String[] values) {
+        int[] offsets = new int[values.length + 1];
+        for (int i = 0; i < values.length; i++) {
+            offsets[i + 1] = offsets[i] + values[i].length();
+        }
+        char[] chars = new char[offsets[values.length]];
+        for (int i = 0; i < values.length; i++) {
+            values[i].getChars(0, values[i].length(), chars, offsets[i]);
+        }
+        return new StringTable(chars(chars), ints(offsets));
+    }
+
+    private static class HeapStorage extends ArrayStorage {
+        @Override
+        public IntBuffer ints(int[] values) {
+            return IntBuffer.wrap(values);
+        }
+
+        @Override
+        public IntBuffer newInts(int length) {
+            return IntBuffer.allocate(length);
+        }
+
+        @Override
+        public LongBuffer longs(long[] values) {
+            return LongBuffer.wrap(values);
+        }
+
+        @Override
+        public CharBuffer chars(char[] values) {
+            return CharBuffer.wrap(values);
+        }
+
+        @Override
+        public ByteBuffer newBytes(int length) {
+            return ByteBuffer.allocate(length);
+        }
+
+        @Override
+        public IntBuffer ints(IntBuffer view) {
+            int[] values = new int[view.limit()];
+            view.get(0, values);
+            return IntBuffer.wrap(values);
+        }
+
+        @Override
+        public LongBuffer longs(LongBuffer view) {
+            long[] values = new long[view.limit()];
+            view.get(0, values);
+            return LongBuffer.wrap(values);
+        }
+
+        @Override
+        public CharBuffer chars(CharBuffer view) {
+            char[] values = new char[view.limit()];
+            view.get(0, values);
+            return CharBuffer.wrap(values);
+        }
+
+        @Override
+        public StringTable strings(String[] values) {
+            return new StringTable(values);
+        }
+
+        @Override
+        public StringTable strings(CharBuffer chars, IntBuffer offsets) {
+            String[] values = new String[offsets.limit() - 1];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = chars.subSequence(offsets.get(i), offsets.get(i + 1)).toString();
+            }
+            return new StringTable(values);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.moderation.sentinel.util.algorithm.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copies each array into its own memory-mapped file, while a dictionary image is decrypted into a
+ * single mapping whose arrays are used in place. The file is unlinked as soon as it is mapped:
+ * the mapping keeps the pages alive until the buffer is collected, so superseded snapshots clean up
+ * after themselves and nothing is left behind in the directory after a crash.
+ */
+class MappedStorage extends ArrayStorage {
+    private final Path directory;
+
+    MappedStorage(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public IntBuffer ints(int[] values) {
+        if (values.length == 0) return IntBuffer.allocate(0);
+        IntBuffer buffer = map((long) values.length * Integer.BYTES).asIntBuffer();
+        buffer.put(values);
+        return buffer.clear();
+    }
+
+    @Override
+    public IntBuffer newInts(int length) {
+        if (length == 0) return IntBuffer.allocate(0);
+        return map((long) length * Integer.BYTES).asIntBuffer();
+    }
+
+    @Override
+    public LongBuffer longs(long[] values) {
+        if (values.length == 0) return LongBuffer.allocate(0);
+        LongBuffer buffer = map((long) values.length * Long.BYTES).asLongBuffer();
+        buffer.put(values);
+        return buffer.clear();
+    }
+
+    @Override
+    public CharBuffer chars(char[] values) {
+        if (values.length == 0) return CharBuffer.allocate(0);
+        CharBuffer buffer = map((long) values.length * Character.BYTES).asCharBuffer();
+        buffer.put(values);
+        return buffer.clear();
+    }
+
+    @Override
+    public ByteBuffer newBytes(int length) {
+        if (length == 0) return ByteBuffer.allocate(0);
+        return map(length);
+    }
+
+    private ByteBuffer map(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Array of " + bytes + " bytes exceeds a single mapping");
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "dictionary-", ".bin");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                return mapped.order(ByteOrder.nativeOrder());
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map dictionary storage in " + directory, e);
+        }
+    }
+}
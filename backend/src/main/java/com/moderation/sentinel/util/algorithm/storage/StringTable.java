@@ -0,0 +1,55 @@
+package com.moderation.sentinel.util.algorithm.storage;
+
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Read-only string array. On the heap it is a plain {@code String[]}; off the heap it is one char
+ * buffer plus offsets, where string {@code i} spans {@code [offsets[i], offsets[i + 1])} and
+ * {@link #get} materialises a String on demand.
+ */
+public final class StringTable {
+    private final String[] strings;
+    private final CharBuffer chars;
+    private final IntBuffer offsets;
+
+    StringTable(String[] strings) {
+        this.strings = strings;
+        this.chars = null;
+        this.offsets = null;
+    }
+
+    StringTable(CharBuffer chars, IntBuffer offsets) {
+        this.strings = null;
+        this.chars = chars;
+        this.offsets = offsets;
+    }
+
+    public int size() {
+        return strings != null ? strings.length : offsets.limit() - 1;
+    }
+
+    public int length(int index) {
+        if (strings != null) return strings[index].length();
+        return offsets.get(index + 1) - offsets.get(index);
+    }
+
+    public String get(int index) {
+        if (strings != null) return strings[index];
+        int start = offsets.get(index);
+        char[] value = new char[offsets.get(index + 1) - start];
+        chars.get(start, value);
+        return new String(value);
+    }
+
+    public char charAt(int index, int position) {
+        if (strings != null) return strings[index].charAt(position);
+        return chars.get(offsets.get(index) + position);
+    }
+
+    // View of a string without copying its chars
+    public CharSequence view(int index) {
+        if (strings != null) return strings[index];
+        return chars.subSequence(offsets.get(index), offsets.get(index + 1));
+    }
+}
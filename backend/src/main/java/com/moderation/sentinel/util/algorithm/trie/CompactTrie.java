@@ -0,0 +1,541 @@
+package com.moderation.sentinel.util.algorithm.trie;
+
+import com.moderation.sentinel.util.algorithm.budget.WorkBudget;
+import com.moderation.sentinel.util.algorithm.image.ImageInput;
+import com.moderation.sentinel.util.algorithm.image.ImageOutput;
+import com.moderation.sentinel.util.algorithm.phonetic.DoubleMetaphone;
+import com.moderation.sentinel.util.algorithm.phonetic.PhoneticIndex;
+import com.moderation.sentinel.util.algorithm.phonetic.Soundex;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable double-array trie built from a list of terms.
+ * A transition from state s on alphabet code c lands on t = base[s] + c and is valid when check[t] == s,
+ * so every lookup is plain int arithmetic with no boxed keys or per-node maps.
+ */
+public class CompactTrie implements WordDictionary {
+    private static final int FREE = -1;
+    private static final int ROOT = 0;
+
+    // Phonetic confidence by which codes agree; Soundex alone over-merges short words and never matches
+    private static final double PHONETIC_CONFIDENCE = 0.85;
+    private static final double METAPHONE_ONLY_CONFIDENCE = 0.75;
+
+    private final char[] alphabet;      // sorted; code of alphabet[i] is i + 1
+    private final IntBuffer base;
+    private final IntBuffer check;
+    private final IntBuffer termOf;     // term id ending at a state, or -1
+    private final IntBuffer termState;
+    private final IntBuffer termFrequency;
+    private final PhoneticIndex soundexIndex;     // most frequent term per Soundex code
+    private final PhoneticIndex metaphoneIndex;   // most frequent term per Double Metaphone code, primary or alternate
+    private final int maxWordLength;
+    private final CompactTrie pending;  // terms added since this trie was built, or null
+
+    private CompactTrie(char[] alphabet, IntBuffer base, IntBuffer check, IntBuffer termOf, IntBuffer termState,
+                        IntBuffer termFrequency, PhoneticIndex soundexIndex, PhoneticIndex metaphoneIndex,
+                        int maxWordLength, CompactTrie pending) {
+        this.alphabet = alphabet;
+        this.base = base;
+        this.check = check;
+        this.termOf = termOf;
+        this.termState = termState;
+        this.termFrequency = termFrequency;
+        this.soundexIndex = soundexIndex;
+        this.metaphoneIndex = metaphoneIndex;
+        this.maxWordLength = maxWordLength;
+        this.pending = pending;
+    }
+
+    public static CompactTrie build(Collection<String> terms) {
+        return build(terms, ArrayStorage.HEAP);
+    }
+
+    /**
+     * Builds the trie straight from the sorted terms into arrays allocated from {@code storage}, with no
+     * pointer-based trie in between. A term listed more than once gets that many as its frequency.
+     */
+    public static CompactTrie build(Collection<String> terms, ArrayStorage storage) {
+        return new Builder(terms, storage).build();
+    }
+
+    public void writeTo(ImageOutput out) throws IOException {
+        out.writeCharArray(alphabet);
+        out.writeIntArray(base);
+        out.writeIntArray(check);
+        out.writeIntArray(termOf);
+        out.writeIntArray(termState);
+        out.writeIntArray(termFrequency);
+        soundexIndex.writeTo(out);
+        metaphoneIndex.writeTo(out);
+        out.writeInt(maxWordLength);
+    }
+
+    public static CompactTrie readFrom(ImageInput in, ArrayStorage storage) {
+        char[] alphabet = in.readCharArray();
+        IntBuffer base = storage.ints(in.readInts());
+        IntBuffer check = storage.ints(in.readInts());
+        IntBuffer termOf = storage.ints(in.readInts());
+        IntBuffer termState = storage.ints(in.readInts());
+        IntBuffer termFrequency = storage.ints(in.readInts());
+        PhoneticIndex soundexIndex = PhoneticIndex.readFrom(in, storage);
+        PhoneticIndex metaphoneIndex = PhoneticIndex.readFrom(in, storage);
+        int maxWordLength = in.readInt();
+        return new CompactTrie(alphabet, base, check, termOf, termState, termFrequency, soundexIndex, metaphoneIndex,
+            maxWordLength, null);
+    }
+
+    /**
+     * Returns this trie with {@code pending}, a trie of terms added since it was built, answering
+     * alongside it as if both had been built from one list: a term in both counts the occurrences
+     * in each. The arrays of both are shared rather than copied.
+     */
+    public CompactTrie withPending(CompactTrie pending) {
+        return new CompactTrie(alphabet, base, check, termOf, termState, termFrequency, soundexIndex, metaphoneIndex,
+            maxWordLength, pending);
+    }
+
+    @Override
+    public Trie.DetectionResult contains(String word) {
+        if (word == null || word.isEmpty()) {
+            return new Trie.DetectionResult(false, 0.0, "Empty word");
+        }
+
+        int frequency = frequency(word, 0, word.length());
+        if (frequency > 0) {
+            return new Trie.DetectionResult(true, Trie.wordConfidence(frequency, word.length()), "Exact match");
+        }
+        return new Trie.DetectionResult(false, 0.0, "No match");
+    }
+
+    @Override
+    public double matchConfidence(CharSequence word) {
+        return word == null ? 0.0 : matchConfidence(word, 0, word.length());
+    }
+
+    @Override
+    public double matchConfidence(CharSequence text, int start, int end) {
+        if (end <= start) return 0.0;
+        int frequency = frequency(text, start, end);
+        return frequency > 0 ? Trie.wordConfidence(frequency, end - start) : 0.0;
+    }
+
+    @Override
+    public Trie.DetectionResult containsPhonetic(String phoneticCode) {
+        if (phoneticCode == null || phoneticCode.isEmpty()) {
+            return new Trie.DetectionResult(false, 0.0, "Empty phonetic code");
+        }
+
+        int best = soundexIndex.lookup(Soundex.parse(phoneticCode));
+        if (best != -1) {
+            return new Trie.DetectionResult(true, PHONETIC_CONFIDENCE, wordOf(best));
+        }
+        if (pending != null) return pending.containsPhonetic(phoneticCode);
+
+        return new Trie.DetectionResult(false, 0.0, "No phonetic match");
+    }
+
+    @Override
+    public double phoneticConfidence(CharSequence word) {
+        if (word == null || word.length() == 0) return 0.0;
+
+        int metaphoneCode = DoubleMetaphone.encode(word);
+        int primary = DoubleMetaphone.primary(metaphoneCode);
+        int alternate = DoubleMetaphone.alternate(metaphoneCode);
+        if (!hasMetaphone(primary, alternate)) return 0.0;
+        return hasSoundex(Soundex.encode(word)) ? PHONETIC_CONFIDENCE : METAPHONE_ONLY_CONFIDENCE;
+    }
+
+    private boolean hasMetaphone(int primary, int alternate) {
+        if (metaphoneIndex.lookup(primary) != -1 || (alternate != primary && metaphoneIndex.lookup(alternate) != -1)) {
+            return true;
+        }
+        return pending != null && pending.hasMetaphone(primary, alternate);
+    }
+
+    private boolean hasSoundex(int code) {
+        return soundexIndex.lookup(code) != -1 || (pending != null && pending.hasSoundex(code));
+    }
+
+    @Override
+    public List<String> findWordsWithPrefix(String prefix, int maxResults) {
+        List<String> results = new ArrayList<>();
+        int state = walk(prefix);
+        if (state != FREE) {
+            char[] buffer = new char[maxWordLength];
+            prefix.getChars(0, prefix.length(), buffer, 0);
+            collectWords(state, buffer, prefix.length(), results, maxResults);
+        }
+        if (pending == null) return results;
+
+        // Each trie lists its words in order, so the first maxResults of the merged lists are the answer
+        TreeSet<String> merged = new TreeSet<>(results);
+        merged.addAll(pending.findWordsWithPrefix(prefix, maxResults));
+        return merged.stream().limit(maxResults).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Trie.DetectionResult> fuzzySearch(String query, int maxDistance) {
+        return fuzzySearch(query, maxDistance, WorkBudget.unlimited());
+    }
+
+    @Override
+    public List<Trie.DetectionResult> fuzzySearch(String query, int maxDistance, WorkBudget budget) {
+        List<Trie.DetectionResult> results = new ArrayList<>();
+        int m = query.length();
+
+        // One DP row per trie depth, reused across siblings
+        int[][] rows = new int[maxWordLength + 1][m + 1];
+        for (int j = 0; j <= m; j++) rows[0][j] = j;
+        char[] buffer = new char[maxWordLength];
+
+        fuzzySearchHelper(ROOT, 0, query, maxDistance, rows, buffer, results, budget);
+
+        results.sort((r1, r2) -> Double.compare(r2.confidence, r1.confidence));
+        results = results.size() > 10 ? results.subList(0, 10) : results;
+        if (pending == null) return results;
+
+        // Ties were left in word order, which the merge keeps by breaking them on the word
+        Map<String, Trie.DetectionResult> merged = new HashMap<>();
+        for (Trie.DetectionResult result : results) merged.put(result.message, result);
+        for (Trie.DetectionResult result : pending.fuzzySearch(query, maxDistance, budget)) {
+            merged.putIfAbsent(result.message, result);
+        }
+        return merged.values().stream()
+            .sorted(Comparator.comparingDouble((Trie.DetectionResult result) -> -result.confidence)
+                .thenComparing(result -> result.message))
+            .limit(10)
+            .collect(Collectors.toList());
+    }
+
+    private void fuzzySearchHelper(int state, int depth, String query, int maxDistance,
+                                   int[][] rows, char[] buffer, List<Trie.DetectionResult> results,
+                                   WorkBudget budget) {
+        int m = query.length();
+        int[] prev = rows[depth];
+
+        if (termOf.get(state) != -1 && prev[m] <= maxDistance) {
+            double confidence = 1.0 - (double) prev[m] / Math.max(m, depth);
+            results.add(new Trie.DetectionResult(true, confidence, new String(buffer, 0, depth)));
+        }
+        if (depth == maxWordLength) return;
+
+        int b = base.get(state);
+        int[] row = rows[depth + 1];
+        for (int code = 1; code <= alphabet.length; code++) {
+            int child = b + code;
+            if (child >= check.limit() || check.get(child) != state) continue;
+
+            char c = alphabet[code - 1];
+            if (!budget.charge(m + 1)) return;
+            if (Trie.nextEditDistanceRow(query, c, depth + 1, prev, row) <= maxDistance) {
+                buffer[depth] = c;
+                fuzzySearchHelper(child, depth + 1, query, maxDistance, rows, buffer, results, budget);
+            }
+        }
+    }
+
+    @Override
+    public Set<String> getAllWords() {
+        Set<String> words = new HashSet<>();
+        for (int term = 0; term < termState.limit(); term++) {
+            words.add(wordOf(term));
+        }
+        if (pending != null) words.addAll(pending.getAllWords());
+        return words;
+    }
+
+    public int size() {
+        return pending == null ? termState.limit() : getAllWords().size();
+    }
+
+    // Occurrences of the span [start, end) in the term list, counting the pending trie as well
+    private int frequency(CharSequence text, int start, int end) {
+        int state = walk(text, start, end);
+        int frequency = state == FREE || termOf.get(state) == -1 ? 0 : termFrequency.get(termOf.get(state));
+        return pending == null ? frequency : frequency + pending.frequency(text, start, end);
+    }
+
+    private int walk(CharSequence word) {
+        return walk(word, 0, word.length());
+    }
+
+    private int walk(CharSequence text, int start, int end) {
+        int state = ROOT;
+        for (int i = start; i < end; i++) {
+            state = transition(state, text.charAt(i));
+            if (state == FREE) return FREE;
+        }
+        return state;
+    }
+
+    private int transition(int state, char c) {
+        int code = Arrays.binarySearch(alphabet, c) + 1;
+        if (code <= 0) return FREE;
+        int next = base.get(state) + code;
+        return next < check.limit() && check.get(next) == state ? next : FREE;
+    }
+
+    private String wordOf(int term) {
+        char[] buffer = new char[maxWordLength];
+        int length = 0;
+        for (int state = termState.get(term); state != ROOT; state = check.get(state)) {
+            buffer[length++] = alphabet[state - base.get(check.get(state)) - 1];
+        }
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            char tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return new String(buffer, 0, length);
+    }
+
+    private void collectWords(int state, char[] buffer, int depth, List<String> results, int maxResults) {
+        if (results.size() >= maxResults) return;
+
+        if (termOf.get(state) != -1) {
+            results.add(new String(buffer, 0, depth));
+        }
+
+        int b = base.get(state);
+        for (int code = 1; code <= alphabet.length && results.size() < maxResults; code++) {
+            int child = b + code;
+            if (child < check.limit() && check.get(child) == state) {
+                buffer[depth] = alphabet[code - 1];
+                collectWords(child, buffer, depth + 1, results, maxResults);
+            }
+        }
+    }
+
+    private static class Builder {
+        private final ArrayStorage storage;
+        private final String[] keys;    // sorted and distinct
+        private final int[] counts;     // occurrences of each key
+        private final char[] alphabet;
+        private IntBuffer base;
+        private IntBuffer check;
+        private IntBuffer termOf;
+
+        // Doubly linked list over free cells so base search skips occupied regions
+        private IntBuffer nextFreeCell;
+        private IntBuffer prevFreeCell;
+        private int freeHead = -1;
+        private int freeTail = -1;
+        private int capacity;
+        private int size = 1;
+
+        Builder(Collection<String> terms, ArrayStorage storage) {
+            this.storage = storage;
+            String[] sorted = terms.toArray(new String[0]);
+            Arrays.sort(sorted);
+
+            String[] distinct = new String[sorted.length];
+            int[] occurrences = new int[sorted.length];
+            int n = 0;
+            for (String term : sorted) {
+                if (term.isEmpty()) continue;
+                if (n > 0 && distinct[n - 1].equals(term)) {
+                    occurrences[n - 1]++;
+                } else {
+                    distinct[n] = term;
+                    occurrences[n++] = 1;
+                }
+            }
+            keys = Arrays.copyOf(distinct, n);
+            counts = Arrays.copyOf(occurrences, n);
+            alphabet = collectAlphabet(keys);
+
+            allocate(1024);
+            check.put(ROOT, ROOT);  // cell 0 is never on the free list
+            linkFreeCells(1, capacity);
+        }
+
+        CompactTrie build() {
+            int termCount = keys.length;
+            IntBuffer termState = storage.newInts(termCount);
+            IntBuffer termFrequency = storage.newInts(termCount);
+            int[] frequencies = new int[termCount];
+            int[] soundexCodes = new int[termCount];
+            int[] metaphoneCodes = new int[2 * termCount];
+            int[] terms = new int[2 * termCount];
+            int maxWordLength = 0;
+
+            // Breadth-first placement of (state, first key, end of keys, depth): the node at depth d
+            // owns the sorted keys [first, end) that share its d-char prefix
+            int[] queue = new int[4 * 64];
+            int tail = 0;
+            queue[tail++] = ROOT;
+            queue[tail++] = 0;
+            queue[tail++] = termCount;
+            queue[tail++] = 0;
+            int term = 0;
+
+            for (int head = 0; head < tail; head += 4) {
+                int state = queue[head];
+                int first = queue[head + 1];
+                int end = queue[head + 2];
+                int depth = queue[head + 3];
+
+                // The key that ends here sorts before every longer key with its prefix
+                if (first < end && keys[first].length() == depth) {
+                    String word = keys[first];
+                    termOf.put(state, term);
+                    termState.put(term, state);
+                    termFrequency.put(term, counts[first]);
+                    frequencies[term] = counts[first];
+                    int metaphone = DoubleMetaphone.encode(word);
+                    soundexCodes[term] = Soundex.encode(word);
+                    // Primary codes are listed first so they win ties against another term's alternate
+                    metaphoneCodes[term] = DoubleMetaphone.primary(metaphone);
+                    metaphoneCodes[termCount + term] = DoubleMetaphone.alternate(metaphone);
+                    terms[term] = term;
+                    terms[termCount + term] = term;
+                    term++;
+                    maxWordLength = Math.max(maxWordLength, depth);
+                    first++;
+                }
+                if (first == end) continue;
+
+                int childCount = 0;
+                for (int k = first; k < end; k++) {
+                    if (k == first || keys[k].charAt(depth) != keys[k - 1].charAt(depth)) childCount++;
+                }
+                int[] codes = new int[childCount];
+                int[] childFirst = new int[childCount + 1];
+                for (int k = first, c = 0; k < end; k++) {
+                    if (k == first || keys[k].charAt(depth) != keys[k - 1].charAt(depth)) {
+                        codes[c] = Arrays.binarySearch(alphabet, keys[k].charAt(depth)) + 1;
+                        childFirst[c++] = k;
+                    }
+                }
+                childFirst[childCount] = end;
+
+                int b = findBase(codes);
+                base.put(state, b);
+                if (tail + 4 * childCount > queue.length) {
+                    queue = Arrays.copyOf(queue, Math.max(queue.length * 2, tail + 4 * childCount));
+                }
+                for (int c = 0; c < childCount; c++) {
+                    int childState = b + codes[c];
+                    occupy(childState, state);
+                    queue[tail++] = childState;
+                    queue[tail++] = childFirst[c];
+                    queue[tail++] = childFirst[c + 1];
+                    queue[tail++] = depth + 1;
+                }
+            }
+
+            return new CompactTrie(
+                alphabet,
+                base.slice(0, size),
+                check.slice(0, size),
+                termOf.slice(0, size),
+                termState,
+                termFrequency,
+                PhoneticIndex.build(soundexCodes, terms, frequencies, storage),
+                PhoneticIndex.build(metaphoneCodes, terms, frequencies, storage),
+                maxWordLength,
+                null
+            );
+        }
+
+        private int findBase(int[] codes) {
+            int cell = freeHead;
+            while (true) {
+                if (cell == -1) {
+                    cell = capacity;
+                    ensureCapacity(capacity + 1);
+                }
+                int b = cell - codes[0];
+                if (b >= 1) {
+                    ensureCapacity(b + codes[codes.length - 1] + 1);
+                    boolean fits = true;
+                    for (int code : codes) {
+                        if (check.get(b + code) != FREE) {
+                            fits = false;
+                            break;
+                        }
+                    }
+                    if (fits) return b;
+                }
+                cell = nextFreeCell.get(cell);
+            }
+        }
+
+        private void occupy(int cell, int parent) {
+            check.put(cell, parent);
+            size = Math.max(size, cell + 1);
+            int prev = prevFreeCell.get(cell);
+            int next = nextFreeCell.get(cell);
+            if (prev != -1) nextFreeCell.put(prev, next);
+            else freeHead = next;
+            if (next != -1) prevFreeCell.put(next, prev);
+            else freeTail = prev;
+        }
+
+        // Grows every cell array into a fresh allocation from the storage
+        private void ensureCapacity(int required) {
+            if (required <= capacity) return;
+            IntBuffer oldBase = base;
+            IntBuffer oldCheck = check;
+            IntBuffer oldTermOf = termOf;
+            IntBuffer oldNext = nextFreeCell;
+            IntBuffer oldPrev = prevFreeCell;
+            int oldCapacity = capacity;
+
+            allocate(Math.max(required, capacity * 2));
+            base.put(0, oldBase, 0, oldCapacity);
+            check.put(0, oldCheck, 0, oldCapacity);
+            termOf.put(0, oldTermOf, 0, oldCapacity);
+            nextFreeCell.put(0, oldNext, 0, oldCapacity);
+            prevFreeCell.put(0, oldPrev, 0, oldCapacity);
+            linkFreeCells(oldCapacity, capacity);
+        }
+
+        private void allocate(int newCapacity) {
+            base = storage.newInts(newCapacity);
+            check = storage.newInts(newCapacity);
+            termOf = storage.newInts(newCapacity);
+            nextFreeCell = storage.newInts(newCapacity);
+            prevFreeCell = storage.newInts(newCapacity);
+            for (int cell = capacity; cell < newCapacity; cell++) {
+                check.put(cell, FREE);
+                termOf.put(cell, -1);
+            }
+            capacity = newCapacity;
+        }
+
+        private void linkFreeCells(int from, int to) {
+            for (int cell = from; cell < to; cell++) {
+                prevFreeCell.put(cell, freeTail);
+                nextFreeCell.put(cell, -1);
+                if (freeTail != -1) nextFreeCell.put(freeTail, cell);
+                else freeHead = cell;
+                freeTail = cell;
+            }
+        }
+
+        private static char[] collectAlphabet(String[] keys) {
+            boolean[] seen = new boolean[Character.MAX_VALUE + 1];
+            int count = 0;
+            for (String key : keys) {
+                for (int i = 0; i < key.length(); i++) {
+                    if (!seen[key.charAt(i)]) {
+                        seen[key.charAt(i)] = true;
+                        count++;
+                    }
+                }
+            }
+            char[] result = new char[count];
+            for (int c = 0, i = 0; i < count; c++) {
+                if (seen[c]) result[i++] = (char) c;
+            }
+            return result;
+        }
+    }
+}
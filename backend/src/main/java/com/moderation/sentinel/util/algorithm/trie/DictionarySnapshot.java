@@ -0,0 +1,234 @@
+package com.moderation.sentinel.util.algorithm.trie;
+
+import com.moderation.sentinel.util.algorithm.ahocorasick.AhoCorasick;
+import com.moderation.sentinel.util.algorithm.filter.DictionaryPrefilter;
+import com.moderation.sentinel.util.algorithm.image.ImageInput;
+import com.moderation.sentinel.util.algorithm.image.ImageOutput;
+import com.moderation.sentinel.util.algorithm.levenshtein.DeletionIndex;
+import com.moderation.sentinel.util.algorithm.noise.VariantIndex;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import com.moderation.sentinel.util.algorithm.storage.StringTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable, versioned dictionaries together with every index derived from them.
+ * A snapshot is complete before it is published, so a reader that takes one snapshot per request
+ * sees a single dictionary version throughout. Changes produce a new snapshot with a higher version.
+ * An added term does not rebuild the snapshot: it goes into small pending layers, kept on the heap,
+ * that every structure consults alongside its own arrays, and the whole snapshot is rebuilt only
+ * once {@link #MAX_PENDING_TERMS} terms have collected or it is written to an image.
+ */
+public class DictionarySnapshot {
+    private static final int MAX_INDEXED_EDIT_DISTANCE = 2;
+    private static final int MAX_PREFILTER_EDIT_DISTANCE = 3;
+    public static final double DEFAULT_PREFILTER_FALSE_POSITIVE_RATE = 0.01;
+    static final int MAX_PENDING_TERMS = 256;
+
+    public static final DictionarySnapshot EMPTY = build(0, List.of(), List.of());
+
+    private final long version;
+    private final ArrayStorage storage;
+    // Source terms in load order; repeats are kept because they raise a term's frequency
+    private final StringTable offensiveTerms;
+    private final StringTable safeTerms;
+    // Terms added since the structures were last built, in order; their layers are built from these
+    private final List<String> pendingTerms;
+    private final CompactTrie offensiveDictionary;
+    private final CompactTrie safeDictionary;
+    private final AhoCorasick offensiveScanner;
+    private final DeletionIndex offensiveDeletionIndex;
+    private final VariantIndex offensiveVariantIndex;
+    private final DictionaryPrefilter offensivePrefilter;
+
+    private DictionarySnapshot(long version, ArrayStorage storage, StringTable offensiveTerms, StringTable safeTerms,
+                               List<String> pendingTerms, CompactTrie offensiveDictionary, CompactTrie safeDictionary,
+                               AhoCorasick offensiveScanner, DeletionIndex offensiveDeletionIndex,
+                               VariantIndex offensiveVariantIndex, DictionaryPrefilter offensivePrefilter) {
+        this.version = version;
+        this.storage = storage;
+        this.offensiveTerms = offensiveTerms;
+        this.safeTerms = safeTerms;
+        this.pendingTerms = pendingTerms;
+        this.offensiveDictionary = offensiveDictionary;
+        this.safeDictionary = safeDictionary;
+        this.offensiveScanner = offensiveScanner;
+        this.offensiveDeletionIndex = offensiveDeletionIndex;
+        this.offensiveVariantIndex = offensiveVariantIndex;
+        this.offensivePrefilter = offensivePrefilter;
+    }
+
+    public static DictionarySnapshot build(long version, Collection<String> offensiveTerms, Collection<String> safeTerms) {
+        return build(version, offensiveTerms, safeTerms, ArrayStorage.HEAP);
+    }
+
+    /**
+     * Builds a snapshot whose structures keep their arrays in {@code storage}; later versions derived
+     * from it use the same storage.
+     */
+    public static DictionarySnapshot build(long version, Collection<String> offensiveTerms, Collection<String> safeTerms,
+                                           ArrayStorage storage) {
+        return build(version, offensiveTerms, safeTerms, storage, DEFAULT_PREFILTER_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Builds a snapshot whose prefilter passes about {@code prefilterFalsePositiveRate} of the tokens it
+     * could have ruled out.
+     */
+    public static DictionarySnapshot build(long version, Collection<String> offensiveTerms, Collection<String> safeTerms,
+                                           ArrayStorage storage, double prefilterFalsePositiveRate) {
+        CompactTrie offensiveDictionary = CompactTrie.build(offensiveTerms, storage);
+        Set<String> words = offensiveDictionary.getAllWords();
+
+        return new DictionarySnapshot(
+            version,
+            storage,
+            storage.strings(offensiveTerms),
+            storage.strings(safeTerms),
+            List.of(),
+            offensiveDictionary,
+            CompactTrie.build(safeTerms, storage),
+            AhoCorasick.build(words, storage),
+            DeletionIndex.build(words, MAX_INDEXED_EDIT_DISTANCE, storage),
+            VariantIndex.build(words, storage),
+            DictionaryPrefilter.build(words, MAX_PREFILTER_EDIT_DISTANCE, prefilterFalsePositiveRate, storage)
+        );
+    }
+
+    // An image holds no pending layers, so a snapshot that has them is rebuilt before it is written
+    public void writeTo(ImageOutput out) throws IOException {
+        if (!pendingTerms.isEmpty()) {
+            rebuild(version, pendingTerms, offensivePrefilter.getFalsePositiveRate()).writeTo(out);
+            return;
+        }
+        out.writeLong(version);
+        out.writeStrings(offensiveTerms);
+        out.writeStrings(safeTerms);
+        offensiveDictionary.writeTo(out);
+        safeDictionary.writeTo(out);
+        offensiveScanner.writeTo(out);
+        offensiveDeletionIndex.writeTo(out);
+        offensiveVariantIndex.writeTo(out);
+        offensivePrefilter.writeTo(out);
+    }
+
+    public static DictionarySnapshot readFrom(ImageInput in, ArrayStorage storage) {
+        return new DictionarySnapshot(
+            in.readLong(),
+            storage,
+            in.readStrings(storage),
+            in.readStrings(storage),
+            List.of(),
+            CompactTrie.readFrom(in, storage),
+            CompactTrie.readFrom(in, storage),
+            AhoCorasick.readFrom(in, storage),
+            DeletionIndex.readFrom(in, storage),
+            VariantIndex.readFrom(in, storage),
+            DictionaryPrefilter.readFrom(in, storage)
+        );
+    }
+
+    /**
+     * Returns the next version of this snapshot with {@code term} added to the offensive dictionary.
+     * Only the pending layers are rebuilt, from the terms added since the last full build; the
+     * structures themselves are shared with this snapshot until the pending terms are folded in.
+     */
+    public DictionarySnapshot withOffensiveTerm(String term) {
+        List<String> pending = new ArrayList<>(pendingTerms);
+        pending.add(term);
+        double falsePositiveRate = offensivePrefilter.getFalsePositiveRate();
+        if (pending.size() > MAX_PENDING_TERMS) return rebuild(version + 1, pending, falsePositiveRate);
+
+        // Words the full structures already hold only raise a frequency, which the pending trie covers
+        CompactTrie full = offensiveDictionary.withPending(null);
+        Set<String> words = new LinkedHashSet<>();
+        for (String added : pending) {
+            if (!added.isEmpty() && full.matchConfidence(added) == 0.0) words.add(added);
+        }
+        return new DictionarySnapshot(version + 1, storage, offensiveTerms, safeTerms, List.copyOf(pending),
+            offensiveDictionary.withPending(CompactTrie.build(pending, ArrayStorage.HEAP)),
+            safeDictionary,
+            offensiveScanner.withPending(AhoCorasick.build(words, ArrayStorage.HEAP)),
+            offensiveDeletionIndex.withPending(DeletionIndex.build(words, MAX_INDEXED_EDIT_DISTANCE, ArrayStorage.HEAP)),
+            offensiveVariantIndex.withPending(VariantIndex.build(words, ArrayStorage.HEAP)),
+            offensivePrefilter.withPending(DictionaryPrefilter.build(words, MAX_PREFILTER_EDIT_DISTANCE,
+                falsePositiveRate, ArrayStorage.HEAP)));
+    }
+
+    /**
+     * Returns this snapshot, at the same version, with its prefilter rebuilt for {@code falsePositiveRate},
+     * or this snapshot itself when the prefilter was already built for it.
+     */
+    public DictionarySnapshot withPrefilterFalsePositiveRate(double falsePositiveRate) {
+        if (falsePositiveRate == offensivePrefilter.getFalsePositiveRate()) return this;
+        if (!pendingTerms.isEmpty()) return rebuild(version, pendingTerms, falsePositiveRate);
+        return new DictionarySnapshot(version, storage, offensiveTerms, safeTerms, pendingTerms, offensiveDictionary,
+            safeDictionary, offensiveScanner, offensiveDeletionIndex, offensiveVariantIndex,
+            DictionaryPrefilter.build(offensiveDictionary.getAllWords(), MAX_PREFILTER_EDIT_DISTANCE, falsePositiveRate,
+                storage));
+    }
+
+    /**
+     * Returns this snapshot, at the same version, with {@code terms} added to its safe words, or this
+     * snapshot itself when it already holds all of them.
+     */
+    public DictionarySnapshot withSafeTerms(Collection<String> terms) {
+        List<String> merged = toList(safeTerms);
+        Set<String> known = new HashSet<>(merged);
+        for (String term : terms) {
+            if (known.add(term)) merged.add(term);
+        }
+        if (merged.size() == safeTerms.size()) return this;
+        return new DictionarySnapshot(version, storage, offensiveTerms, storage.strings(merged), pendingTerms,
+            offensiveDictionary,
+            CompactTrie.build(merged, storage), offensiveScanner, offensiveDeletionIndex, offensiveVariantIndex,
+            offensivePrefilter);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public CompactTrie getOffensiveDictionary() {
+        return offensiveDictionary;
+    }
+
+    public CompactTrie getSafeDictionary() {
+        return safeDictionary;
+    }
+
+    public AhoCorasick getOffensiveScanner() {
+        return offensiveScanner;
+    }
+
+    public DeletionIndex getOffensiveDeletionIndex() {
+        return offensiveDeletionIndex;
+    }
+
+    public VariantIndex getOffensiveVariantIndex() {
+        return offensiveVariantIndex;
+    }
+
+    public DictionaryPrefilter getOffensivePrefilter() {
+        return offensivePrefilter;
+    }
+
+    // Full build of this snapshot's terms followed by pending, with no pending layers left
+    private DictionarySnapshot rebuild(long version, List<String> pending, double falsePositiveRate) {
+        List<String> terms = toList(offensiveTerms);
+        terms.addAll(pending);
+        return build(version, terms, toList(safeTerms), storage, falsePositiveRate);
+    }
+
+    private static List<String> toList(StringTable table) {
+        List<String> strings = new ArrayList<>(table.size() + 1);
+        for (int i = 0; i < table.size(); i++) strings.add(table.get(i));
+        return strings;
+    }
+}
@@ -1,12 +1,15 @@
 package com.moderation.sentinel.util.algorithm.trie;
 
+import com.moderation.sentinel.util.algorithm.budget.WorkBudget;
+import com.moderation.sentinel.util.algorithm.phonetic.Soundex;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class Trie {
+public class Trie implements WordDictionary {
     private final TrieNode root;
-    private final Map<String, DetectionResult> cache = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> phoneticGroups = new ConcurrentHashMap<>();
+    // Most frequent word per phonetic code, kept current on insert
+    private final Map<String, String> phoneticBest = new ConcurrentHashMap<>();
 
     public Trie() {
         root = new TrieNode();
@@ -23,53 +26,59 @@ public class Trie {
         current.phoneticCode = phoneticCode;
         current.frequency++;
         
-        // This builds the phonetic groups
         if (!phoneticCode.isEmpty()) {
-            phoneticGroups.computeIfAbsent(phoneticCode, k -> ConcurrentHashMap.newKeySet()).add(word);
+            int frequency = current.frequency;
+            phoneticBest.merge(phoneticCode, word,
+                (best, candidate) -> frequency > getWordFrequency(best) ? candidate : best);
         }
     }
 
+    @Override
     public DetectionResult contains(String word) {
         if (word == null || word.isEmpty()) {
             return new DetectionResult(false, 0.0, "Empty word");
         }
         
-        if (cache.containsKey(word)) {
-            return cache.get(word);
-        }
-        
         TrieNode node = searchNode(word);
-        DetectionResult result;
-        
         if (node != null && node.isEndOfWord) {
             double confidence = calculateWordConfidence(node, word);
-            result = new DetectionResult(true, confidence, "Exact match");
-        } else {
-            result = new DetectionResult(false, 0.0, "No match");
+            return new DetectionResult(true, confidence, "Exact match");
         }
-        
-        cache.put(word, result);
-        return result;
+        return new DetectionResult(false, 0.0, "No match");
+    }
+
+    @Override
+    public double matchConfidence(CharSequence word) {
+        return word == null ? 0.0 : matchConfidence(word, 0, word.length());
     }
 
+    @Override
+    public double matchConfidence(CharSequence text, int start, int end) {
+        if (end <= start) return 0.0;
+        TrieNode node = searchNode(text, start, end);
+        return node != null && node.isEndOfWord ? wordConfidence(node.frequency, end - start) : 0.0;
+    }
+
+    @Override
     public DetectionResult containsPhonetic(String phoneticCode) {
         if (phoneticCode == null || phoneticCode.isEmpty()) {
             return new DetectionResult(false, 0.0, "Empty phonetic code");
         }
         
-        Set<String> phoneticMatches = phoneticGroups.get(phoneticCode);
-        if (phoneticMatches != null && !phoneticMatches.isEmpty()) {
-            // Return the most frequent match
-            String bestMatch = phoneticMatches.stream()
-                .max((w1, w2) -> Integer.compare(getWordFrequency(w1), getWordFrequency(w2)))
-                .orElse(phoneticMatches.iterator().next());
-            
+        String bestMatch = phoneticBest.get(phoneticCode);
+        if (bestMatch != null) {
             return new DetectionResult(true, 0.85, bestMatch);
         }
         
         return new DetectionResult(false, 0.0, "No phonetic match");
     }
+
+    @Override
+    public double phoneticConfidence(CharSequence word) {
+        return containsPhonetic(Soundex.toString(Soundex.encode(word))).confidence;
+    }
     
+    @Override
     public List<String> findWordsWithPrefix(String prefix, int maxResults) {
         List<String> results = new ArrayList<>();
         TrieNode prefixNode = searchNode(prefix);
@@ -81,66 +90,73 @@ public class Trie {
         return results;
     }
     
+    @Override
     public List<DetectionResult> fuzzySearch(String query, int maxDistance) {
+        return fuzzySearch(query, maxDistance, WorkBudget.unlimited());
+    }
+    
+    @Override
+    public List<DetectionResult> fuzzySearch(String query, int maxDistance, WorkBudget budget) {
         List<DetectionResult> results = new ArrayList<>();
-        fuzzySearchHelper(root, query, "", 0, maxDistance, results);
+        
+        // One DP row per depth, allocated once per depth and reused by every node at that depth
+        List<int[]> rows = new ArrayList<>();
+        int[] firstRow = new int[query.length() + 1];
+        for (int j = 0; j < firstRow.length; j++) firstRow[j] = j;
+        rows.add(firstRow);
+        
+        fuzzySearchHelper(root, query, new StringBuilder(), maxDistance, rows, results, budget);
         
         results.sort((r1, r2) -> Double.compare(r2.confidence, r1.confidence));
         return results.size() > 10 ? results.subList(0, 10) : results;
     }
     
-    private void fuzzySearchHelper(TrieNode node, String query, String currentWord, 
-                                 int currentDistance, int maxDistance, List<DetectionResult> results) {
-        if (currentDistance > maxDistance) return;
+    private void fuzzySearchHelper(TrieNode node, String query, StringBuilder currentWord,
+                                 int maxDistance, List<int[]> rows, List<DetectionResult> results,
+                                 WorkBudget budget) {
+        int depth = currentWord.length();
+        int[] prev = rows.get(depth);
+        int distance = prev[query.length()];
         
-        if (node.isEndOfWord && currentDistance <= maxDistance) {
-            double confidence = 1.0 - (double) currentDistance / Math.max(query.length(), currentWord.length());
-            results.add(new DetectionResult(true, confidence, currentWord));
+        if (node.isEndOfWord && distance <= maxDistance) {
+            double confidence = 1.0 - (double) distance / Math.max(query.length(), depth);
+            results.add(new DetectionResult(true, confidence, currentWord.toString()));
         }
         
+        if (rows.size() == depth + 1) rows.add(new int[query.length() + 1]);
+        int[] row = rows.get(depth + 1);
+        
         for (Map.Entry<Character, TrieNode> entry : node.children.entrySet()) {
             char c = entry.getKey();
-            TrieNode child = entry.getValue();
-            String newWord = currentWord + c;
-            
-            int newDistance = calculateEditDistance(query, newWord);
+            if (!budget.charge(query.length() + 1)) return;
             
-            if (newDistance <= maxDistance) {
-                fuzzySearchHelper(child, query, newWord, newDistance, maxDistance, results);
+            // Subtrees whose best achievable distance already exceeds the bound are pruned
+            if (nextEditDistanceRow(query, c, depth + 1, prev, row) <= maxDistance) {
+                currentWord.append(c);
+                fuzzySearchHelper(entry.getValue(), query, currentWord, maxDistance, rows, results, budget);
+                currentWord.setLength(depth);
             }
         }
     }
     
     /**
-     * Calculates the edit distance between two strings using dynamic programming.
-     * This implementation is optimized for performance and can handle larger strings.
+     * Fills {@code row} with the edit distances between every prefix of {@code query} and the
+     * trie path of length {@code depth} ending in {@code c}, given the row of its parent.
      *
-     * @param s1 First string
-     * @param s2 Second string
-     * @return The edit distance between s1 and s2
+     * @return the minimum value in the row, a lower bound for every word below this node
      */
-    private int calculateEditDistance(String s1, String s2) {
-        int m = s1.length();
-        int n = s2.length();
-        
-        int[][] dp = new int[m + 1][n + 1];
-        
-        for (int i = 0; i <= m; i++) dp[i][0] = i;
-        for (int j = 0; j <= n; j++) dp[0][j] = j;
-        
-        for (int i = 1; i <= m; i++) {
-            for (int j = 1; j <= n; j++) {
-                if (s1.charAt(i - 1) == s2.charAt(j - 1)) {
-                    dp[i][j] = dp[i - 1][j - 1];
-                } else {
-                    dp[i][j] = 1 + Math.min(dp[i - 1][j], Math.min(dp[i][j - 1], dp[i - 1][j - 1]));
-                }
-            }
+    static int nextEditDistanceRow(String query, char c, int depth, int[] prev, int[] row) {
+        row[0] = depth;
+        int rowMin = depth;
+        for (int j = 1; j <= query.length(); j++) {
+            int cost = query.charAt(j - 1) == c ? 0 : 1;
+            row[j] = Math.min(Math.min(row[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            rowMin = Math.min(rowMin, row[j]);
         }
-        
-        return dp[m][n];
+        return rowMin;
     }
 
+    @Override
     public Set<String> getAllWords() {
         Set<String> words = new HashSet<>();
         collectWords(root, new StringBuilder(), words);
@@ -161,10 +177,14 @@ public class Trie {
         }
     }
 
-    private TrieNode searchNode(String word) {
+    private TrieNode searchNode(CharSequence word) {
+        return searchNode(word, 0, word.length());
+    }
+
+    private TrieNode searchNode(CharSequence text, int start, int end) {
         TrieNode current = root;
-        for (char c : word.toCharArray()) {
-            current = current.children.get(c);
+        for (int i = start; i < end; i++) {
+            current = current.children.get(text.charAt(i));
             if (current == null) {
                 return null;
             }
@@ -184,9 +204,13 @@ public class Trie {
     }
     
     private double calculateWordConfidence(TrieNode node, String word) {
+        return wordConfidence(node.frequency, word.length());
+    }
+    
+    static double wordConfidence(int frequency, int length) {
         double baseConfidence = 0.8;
-        double frequencyBonus = Math.min(0.2, node.frequency * 0.01);
-        double lengthPenalty = word.length() < 3 ? 0.1 : 0.0;
+        double frequencyBonus = Math.min(0.2, frequency * 0.01);
+        double lengthPenalty = length < 3 ? 0.1 : 0.0;
         
         return Math.min(1.0, baseConfidence + frequencyBonus - lengthPenalty);
     }
@@ -1,21 +1,36 @@
 package com.moderation.sentinel.util.algorithm.trie;
 
 import com.moderation.sentinel.util.algorithm.normalization.TextNormalizer;
+import com.moderation.sentinel.util.algorithm.image.DictionaryImage;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import com.moderation.sentinel.util.algorithm.phonetic.Soundex;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
 import javax.crypto.spec.SecretKeySpec;
 import javax.crypto.spec.IvParameterSpec;
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
 import java.util.logging.Logger;
 
 @Component
@@ -28,136 +43,213 @@ public class TrieInitializer {
     @Value("${application.init-vector}")
     private String initVector;
 
-    private final Trie offensiveTrie = new Trie();
-    private final Trie safeTrie = new Trie();
+    // Precompiled image from DictionaryImageCompiler; the wordlist is compiled at startup when unset or unusable
+    @Value("${application.dictionary.image-path:}")
+    private String dictionaryImagePath;
+
+    // "heap" keeps dictionary arrays on the Java heap, "mapped" moves them into memory-mapped files
+    @Value("${application.dictionary.storage:heap}")
+    private String dictionaryStorage;
+
+    @Value("${application.dictionary.mapped-dir:${java.io.tmpdir}/sentinel-dictionary}")
+    private String mappedDirectory;
+
+    // Allow-list merged with the bundled safe_words.txt, and into a loaded image; safe words are never flagged
+    @Value("${application.dictionary.safe-words-path:}")
+    private String safeWordsPath;
+
+    // Share of clean tokens the prefilter may wrongly pass on to the phonetic and fuzzy stages
+    @Value("${application.dictionary.prefilter.false-positive-rate:0.01}")
+    private double prefilterFalsePositiveRate;
+
+    // Snapshots are only built on this thread, so updates apply one at a time to the latest snapshot
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dictionary-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile DictionarySnapshot snapshot = DictionarySnapshot.EMPTY;
+
+    /**
+     * The current dictionaries. Callers should read this once per request and use that snapshot throughout.
+     */
+    public DictionarySnapshot getSnapshot() {
+        return snapshot;
+    }
 
-    public Trie getOffensiveTrie() {
-        return offensiveTrie;
+    @PostConstruct
+    public void init() throws Exception {
+        ArrayStorage storage = ArrayStorage.forName(dictionaryStorage, Path.of(mappedDirectory));
+        if (!dictionaryImagePath.isBlank() && loadImage(Path.of(dictionaryImagePath), storage)) {
+            // The image holds the safe words it was compiled with; the configured list may have changed since
+            snapshot = snapshot.withPrefilterFalsePositiveRate(prefilterFalsePositiveRate)
+                .withSafeTerms(readSafeWords(safeWordsPath));
+            return;
+        }
+
+        Map<String, List<String>> terms = initializeFromClasspath("offensive_words.dat");
+        snapshot = DictionarySnapshot.build(1, terms.get("offensive"), terms.get("safe"), storage,
+            prefilterFalsePositiveRate);
     }
 
-    public Trie getSafeTrie() {
-        return safeTrie;
+    private boolean loadImage(Path image, ArrayStorage storage) {
+        if (!Files.isReadable(image)) {
+            logger.warning("Dictionary image " + image + " not found, compiling wordlist instead");
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
+            snapshot = DictionaryImage.read(image, key, storage);
+            logger.info("Loaded dictionary image " + image + " (version " + snapshot.getVersion() + ") in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        } catch (Exception e) {
+            logger.warning("Dictionary image " + image + " is unusable, compiling wordlist instead: " + e.getMessage());
+            return false;
+        }
     }
 
-    @PostConstruct
-    public void init() throws Exception {
-        Map<String, Trie> tries = initializeFromClasspath("offensive_words.dat");
-        offensiveTrie.getRoot().children.putAll(tries.get("offensive").getRoot().children);
-        safeTrie.getRoot().children.putAll(tries.get("safe").getRoot().children);
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+    }
+
+    /**
+     * Builds {@code update(current snapshot)} on the reload thread and publishes it in one volatile write.
+     * Readers keep using the previous snapshot until then.
+     */
+    public CompletableFuture<DictionarySnapshot> updateSnapshot(UnaryOperator<DictionarySnapshot> update) {
+        return CompletableFuture.supplyAsync(() -> publish(update), reloadExecutor);
     }
 
-    public Map<String, Trie> initializeFromClasspath(String resourceName) throws Exception {
+    // Only called on the reload thread
+    private DictionarySnapshot publish(UnaryOperator<DictionarySnapshot> update) {
+        DictionarySnapshot next = update.apply(snapshot);
+        snapshot = next;
+        logger.info("Published dictionary snapshot version " + next.getVersion());
+        return next;
+    }
+
+    public Map<String, List<String>> initializeFromClasspath(String resourceName) throws Exception {
         try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourceName)) {
             if (inputStream == null) {
                 throw new FileNotFoundException(resourceName + " not found in classpath");
             }
 
-            byte[] encryptedBytes = inputStream.readAllBytes();
+            Map<String, List<String>> terms = readEncryptedWordlist(inputStream, secretKey, initVector);
+            terms.put("safe", readSafeWords(safeWordsPath));
+            logger.info("Loaded " + terms.get("offensive").size() + " terms and " + terms.get("safe").size()
+                + " safe words into content filter");
+            return terms;
+        }
+    }
 
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
-            IvParameterSpec iv = new IvParameterSpec(initVector.getBytes(StandardCharsets.UTF_8));
-            cipher.init(Cipher.DECRYPT_MODE, key, iv);
-
-            String decryptedContent = new String(cipher.doFinal(encryptedBytes), StandardCharsets.UTF_8);
-            List<String> words = List.of(decryptedContent.split("\\R"));
-
-            Map<String, Trie> tries = new HashMap<>();
-
-            Trie offensiveTrie = new Trie();
-            int wordCount = 0;
-            for (String word : words) {
-                String trimmedWord = word.trim().toLowerCase();
-                if (!trimmedWord.isEmpty() && !trimmedWord.startsWith("#")) {
-                    String phoneticCode = computeSoundex(trimmedWord);
-                    offensiveTrie.insert(trimmedWord, phoneticCode);
-                    wordCount++;
-                }
+    /**
+     * The bundled {@code safe_words.txt} followed by the wordlist at {@code extraPath}, when it is not blank.
+     */
+    public static List<String> readSafeWords(String extraPath) throws IOException {
+        List<String> safeWords = new ArrayList<>();
+        try (InputStream inputStream = TrieInitializer.class.getClassLoader().getResourceAsStream("safe_words.txt")) {
+            if (inputStream != null) safeWords.addAll(readWordlist(inputStream));
+        }
+        if (extraPath != null && !extraPath.isBlank()) {
+            try (InputStream inputStream = Files.newInputStream(Path.of(extraPath))) {
+                safeWords.addAll(readWordlist(inputStream));
             }
+        }
+        return safeWords;
+    }
+
+    /**
+     * Reads a plain UTF-8 wordlist: one term per line, lower-cased, with blank lines and {@code #} comments skipped.
+     */
+    public static List<String> readWordlist(InputStream inputStream) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            return readTerms(reader);
+        }
+    }
 
-            logger.info("Loaded " + wordCount + " terms into content filter");
-            tries.put("offensive", offensiveTrie);
+    /**
+     * Decrypts an AES-CBC wordlist line by line as it streams in, so neither the ciphertext nor
+     * the plaintext is held in memory as a whole.
+     */
+    public static Map<String, List<String>> readEncryptedWordlist(InputStream inputStream, String secretKey,
+                                                                  String initVector) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
+        IvParameterSpec iv = new IvParameterSpec(initVector.getBytes(StandardCharsets.UTF_8));
+        cipher.init(Cipher.DECRYPT_MODE, key, iv);
+
+        List<String> offensiveTerms;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new CipherInputStream(inputStream, cipher), StandardCharsets.UTF_8))) {
+            offensiveTerms = readTerms(reader);
+        }
 
-            Trie safeTrie = new Trie();
-            tries.put("safe", safeTrie);
+        Map<String, List<String>> terms = new HashMap<>();
+        terms.put("offensive", offensiveTerms);
+        terms.put("safe", List.of());
+        return terms;
+    }
 
-            return tries;
+    private static List<String> readTerms(BufferedReader reader) throws IOException {
+        List<String> terms = new ArrayList<>();
+        String word;
+        while ((word = reader.readLine()) != null) {
+            String trimmedWord = word.trim().toLowerCase();
+            if (!trimmedWord.isEmpty() && !trimmedWord.startsWith("#")) {
+                terms.add(trimmedWord);
+            }
         }
+        return terms;
     }
 
 
-    public void addTermToEncryptedFile(String encryptedFilePath, String term) throws Exception {
+    /**
+     * Appends {@code term} to the encrypted dictionary file and schedules a snapshot that includes it.
+     * The file update runs on the reload thread too, so concurrent additions cannot overwrite each other.
+     * The returned future completes once the new snapshot is live.
+     */
+    public CompletableFuture<DictionarySnapshot> addTermToEncryptedFile(String encryptedFilePath, String term) {
         Path path = Path.of(encryptedFilePath);
         if (!Files.exists(path)) {
             throw new IllegalArgumentException("Encrypted file does not exist");
         }
 
+        String trimmedTerm = term.trim().toLowerCase();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (!appendTerm(path, trimmedTerm)) {
+                    logger.info("Term already exists in database");
+                    return snapshot;
+                }
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            return publish(current -> current.withOffensiveTerm(trimmedTerm));
+        }, reloadExecutor);
+    }
+
+    // Rewrites the file with term appended; false when the file already lists term
+    private boolean appendTerm(Path path, String term) throws Exception {
         Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
         SecretKeySpec keySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
         IvParameterSpec ivSpec = new IvParameterSpec(initVector.getBytes(StandardCharsets.UTF_8));
         
         cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-        byte[] encryptedBytes = Files.readAllBytes(path);
-        String decryptedContent = new String(cipher.doFinal(encryptedBytes), StandardCharsets.UTF_8);
-
-        String trimmedTerm = term.trim().toLowerCase();
-        if (decryptedContent.contains(trimmedTerm)) {
-            logger.info("Term already exists in database");
-            return;
+        String decryptedContent = new String(cipher.doFinal(Files.readAllBytes(path)), StandardCharsets.UTF_8);
+        if (readTerms(new BufferedReader(new StringReader(decryptedContent))).contains(term)) {
+            return false;
         }
 
-
-        String updatedContent = decryptedContent + System.lineSeparator() + trimmedTerm;
+        String updatedContent = decryptedContent + System.lineSeparator() + term;
         cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
-        byte[] updatedEncryptedBytes = cipher.doFinal(updatedContent.getBytes(StandardCharsets.UTF_8));
-        Files.write(path, updatedEncryptedBytes);
-
-        String phoneticCode = computeSoundex(trimmedTerm);
-        offensiveTrie.insert(trimmedTerm, phoneticCode);
-        
+        Files.write(path, cipher.doFinal(updatedContent.getBytes(StandardCharsets.UTF_8)));
+        return true;
     }
 
     public static String computeSoundex(String input) {
-        if (input == null || input.isEmpty()) return "";
-
-        StringBuilder code = new StringBuilder();
-        input = input.toLowerCase().replaceAll("[^a-z]", "");
-        if (input.isEmpty()) return "";
-
-        code.append(Character.toUpperCase(input.charAt(0)));
-
-        Map<Character, Character> soundexMap = getSoundexMappings();
-
-        char prevCode = '0';
-        for (int i = 1; i < input.length() && code.length() < 4; i++) {
-            char c = input.charAt(i);
-            if ("aeiouhwy".indexOf(c) == -1) {
-                char digit = soundexMap.getOrDefault(c, '0');
-                if (digit != '0' && digit != prevCode) {
-                    code.append(digit);
-                    prevCode = digit;
-                }
-            }
-        }
-
-        // Padding with zeroes
-        while (code.length() < 4) {
-            code.append('0');
-        }
-        
-        return code.length() > 4 ? code.substring(0, 4) : code.toString();
-    }
-
-    private static Map<Character, Character> getSoundexMappings() {
-        Map<Character, Character> soundexMap = new HashMap<>();
-        // Soundex mapping groups
-        soundexMap.put('b', '1'); soundexMap.put('f', '1'); soundexMap.put('p', '1'); soundexMap.put('v', '1');
-        soundexMap.put('c', '2'); soundexMap.put('g', '2'); soundexMap.put('j', '2'); soundexMap.put('k', '2');
-        soundexMap.put('q', '2'); soundexMap.put('s', '2'); soundexMap.put('x', '2'); soundexMap.put('z', '2');
-        soundexMap.put('d', '3'); soundexMap.put('t', '3');
-        soundexMap.put('l', '4');
-        soundexMap.put('m', '5'); soundexMap.put('n', '5');
-        soundexMap.put('r', '6');
-        return soundexMap;
+        return Soundex.toString(Soundex.encode(input));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package com.moderation.sentinel.util.algorithm.trie;
+
+import com.moderation.sentinel.util.algorithm.budget.WorkBudget;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-side view of a term dictionary, implemented by the mutable {@link Trie}
+ * and the immutable {@link CompactTrie}.
+ */
+public interface WordDictionary {
+
+    Trie.DetectionResult contains(String word);
+
+    /**
+     * Confidence of an exact match for {@code word}, or 0.0 when it is absent. Does not allocate.
+     */
+    double matchConfidence(CharSequence word);
+
+    /**
+     * {@link #matchConfidence(CharSequence)} for the span {@code [start, end)} of {@code text}.
+     */
+    double matchConfidence(CharSequence text, int start, int end);
+
+    Trie.DetectionResult containsPhonetic(String phoneticCode);
+
+    /**
+     * Confidence that {@code word} sounds like a dictionary term, or 0.0 when no phonetic code matches.
+     */
+    double phoneticConfidence(CharSequence word);
+
+    List<String> findWordsWithPrefix(String prefix, int maxResults);
+
+    List<Trie.DetectionResult> fuzzySearch(String query, int maxDistance);
+
+    /**
+     * {@link #fuzzySearch(String, int)} that charges {@code budget} one unit per edit-distance cell
+     * and returns what it has found so far once the budget is spent.
+     */
+    List<Trie.DetectionResult> fuzzySearch(String query, int maxDistance, WorkBudget budget);
+
+    Set<String> getAllWords();
+}
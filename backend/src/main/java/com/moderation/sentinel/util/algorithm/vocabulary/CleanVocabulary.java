@@ -0,0 +1,106 @@
+package com.moderation.sentinel.util.algorithm.vocabulary;
+
+import com.moderation.sentinel.util.algorithm.filter.StaticStringSet;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import com.moderation.sentinel.util.algorithm.trie.DictionarySnapshot;
+import com.moderation.sentinel.util.algorithm.trie.TrieInitializer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Common words known to be clean, one list per language, compiled into a {@link StaticStringSet}
+ * per dictionary version. A token found here needs no detection stage beyond the dictionary scan.
+ * Words that are dictionary terms, lie within edit distance 2 of one or share its phonetic code are
+ * left out of each version's set, so the list never hides a near spelling of a term. The lists are
+ * generated by {@code scripts/clean-vocabulary.py}.
+ */
+@Component
+public class CleanVocabulary {
+    private static final Logger logger = Logger.getLogger(CleanVocabulary.class.getName());
+
+    // Comma-separated language codes; each loads vocabulary/clean-<code>.txt from the classpath
+    @Value("${application.moderation.clean-vocabulary.languages:en}")
+    private String languages;
+
+    private static final int EXCLUDED_EDIT_DISTANCE = 2;
+
+    private volatile List<String> loaded = List.of();
+    private volatile Filtered filtered = new Filtered(-1, StaticStringSet.build(List.of(), ArrayStorage.HEAP));
+
+    @PostConstruct
+    public void init() throws IOException {
+        List<String> loaded = new ArrayList<>();
+        for (String language : languages.split(",")) {
+            if (language.isBlank()) continue;
+            String resourceName = "vocabulary/clean-" + language.trim().toLowerCase() + ".txt";
+            int before = loaded.size();
+            if (!readWords(resourceName, loaded)) {
+                logger.warning("Clean vocabulary " + resourceName + " not found in classpath");
+                continue;
+            }
+            logger.info("Loaded " + (loaded.size() - before) + " clean words from " + resourceName);
+        }
+        this.loaded = loaded;
+    }
+
+    /**
+     * True when {@code text[start, end)} is a clean word for {@code dictionary}. A snapshot older than
+     * the latest one seen gets no clean words, so its tokens go through the stages.
+     */
+    public boolean contains(CharSequence text, int start, int end, DictionarySnapshot dictionary) {
+        Filtered current = filtered;
+        if (current.version != dictionary.getVersion()) {
+            if (current.version > dictionary.getVersion()) return false;
+            current = filterFor(dictionary);
+        }
+        return current.words.contains(text, start, end);
+    }
+
+    public int size() {
+        return loaded.size();
+    }
+
+    private synchronized Filtered filterFor(DictionarySnapshot dictionary) {
+        if (filtered.version >= dictionary.getVersion()) return filtered;
+
+        List<String> kept = new ArrayList<>(loaded.size());
+        for (String word : loaded) {
+            if (!nearTerm(word, dictionary)) kept.add(word);
+        }
+        filtered = new Filtered(dictionary.getVersion(), StaticStringSet.build(kept, ArrayStorage.HEAP));
+        logger.info("Kept " + kept.size() + " of " + loaded.size() + " clean words for dictionary version "
+            + dictionary.getVersion());
+        return filtered;
+    }
+
+    private static boolean nearTerm(String word, DictionarySnapshot dictionary) {
+        if (dictionary.getOffensiveDictionary().phoneticConfidence(word) > 0.0) return true;
+        return dictionary.getOffensivePrefilter().mayBeWithin(word, EXCLUDED_EDIT_DISTANCE)
+            && !dictionary.getOffensiveDeletionIndex().lookup(word, EXCLUDED_EDIT_DISTANCE).isEmpty();
+    }
+
+    private boolean readWords(String resourceName, List<String> out) throws IOException {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourceName)) {
+            if (inputStream == null) return false;
+            out.addAll(TrieInitializer.readWordlist(inputStream));
+            return true;
+        }
+    }
+
+    private static class Filtered {
+        final long version;
+        final StaticStringSet words;
+
+        Filtered(long version, StaticStringSet words) {
+            this.version = version;
+            this.words = words;
+        }
+    }
+}
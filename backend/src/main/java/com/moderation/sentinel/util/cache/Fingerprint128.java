@@ -0,0 +1,89 @@
+package com.moderation.sentinel.util.cache;
+
+/**
+ * 128-bit fingerprint of a string: MurmurHash3 x64_128 (seed 0) over its UTF-16LE bytes.
+ * Long enough that distinct texts standing in for one another as cache keys is not a practical
+ * concern, and the key holds two longs instead of the text itself.
+ */
+public final class Fingerprint128 {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    public final long high;
+    public final long low;
+
+    private Fingerprint128(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static Fingerprint128 of(CharSequence text) {
+        int length = text.length();
+        long h1 = 0;
+        long h2 = 0;
+
+        // Eight chars make one 16-byte block
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            h1 ^= mixK1(pack(text, i, 4));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(pack(text, i + 4, 4));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        int rest = length - i;
+        if (rest > 4) h2 ^= mixK2(pack(text, i + 4, rest - 4));
+        if (rest > 0) h1 ^= mixK1(pack(text, i, Math.min(4, rest)));
+
+        h1 ^= 2L * length;
+        h2 ^= 2L * length;
+        h1 += h2;
+        h2 += h1;
+        h1 = finalMix(h1);
+        h2 = finalMix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new Fingerprint128(h1, h2);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Fingerprint128 that && high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    // Up to four chars, little-endian, as the 8 bytes they occupy in UTF-16LE
+    private static long pack(CharSequence text, int from, int count) {
+        long k = 0;
+        for (int j = count - 1; j >= 0; j--) {
+            k = (k << 16) | text.charAt(from + j);
+        }
+        return k;
+    }
+
+    private static long mixK1(long k) {
+        return Long.rotateLeft(k * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k) {
+        return Long.rotateLeft(k * C2, 33) * C1;
+    }
+
+    private static long finalMix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        return k ^ (k >>> 33);
+    }
+}
@@ -0,0 +1,356 @@
+package com.moderation.sentinel.util.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Size-bounded cache with W-TinyLFU admission and eviction.
+ * New entries land in a small LRU window; when the window overflows its victim only enters the
+ * segmented-LRU main region if a frequency sketch says it is used more often than the main
+ * region's own victim. A flood of one-off keys therefore churns the window but cannot push out
+ * frequently used entries.
+ *
+ * Reads are lock-free map lookups. Recency and frequency bookkeeping is applied under a lock
+ * that readers only try to take, so bookkeeping for a read may be dropped under contention.
+ * Entries may also expire a fixed time after they were written; an expired entry reads as a miss
+ * and is dropped by the read that finds it.
+ */
+public class TinyLfuCache<K, V> {
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.80;
+    private static final int MIN_ENTRY_WEIGHT = 64;
+
+    private enum Region { WINDOW, PROBATION, PROTECTED }
+
+    private final String name;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final ToLongBiFunction<K, V> weigher;
+    private final long expireAfterWriteNanos;
+
+    private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Node<K, V> window = Node.sentinel();
+    private final Node<K, V> probation = Node.sentinel();
+    private final Node<K, V> protectedRegion = Node.sentinel();
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+
+    public TinyLfuCache(String name, long maximumWeight, ToLongBiFunction<K, V> weigher) {
+        this(name, maximumWeight, weigher, 0);
+    }
+
+    // Entries expire expireAfterWriteNanos after they were last written; 0 keeps them until evicted
+    public TinyLfuCache(String name, long maximumWeight, ToLongBiFunction<K, V> weigher, long expireAfterWriteNanos) {
+        this.name = name;
+        this.expireAfterWriteNanos = Math.max(0, expireAfterWriteNanos);
+        this.maximumWeight = Math.max(MIN_ENTRY_WEIGHT, maximumWeight);
+        this.windowMaximum = Math.max(MIN_ENTRY_WEIGHT, (long) (this.maximumWeight * WINDOW_RATIO));
+        this.protectedMaximum = (long) ((this.maximumWeight - windowMaximum) * PROTECTED_RATIO);
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 24, this.maximumWeight / MIN_ENTRY_WEIGHT));
+    }
+
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node != null && isExpired(node)) {
+            expire(node);
+            node = null;
+        }
+        if (node == null) {
+            misses.increment();
+            if (lock.tryLock()) {
+                try {
+                    sketch.increment(key.hashCode());
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return null;
+        }
+
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(key.hashCode());
+                if (node.region != null) onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        long weight = Math.max(1, weigher.applyAsLong(key, value));
+        puts.increment();
+
+        lock.lock();
+        try {
+            sketch.increment(key.hashCode());
+            Node<K, V> existing = data.get(key);
+            if (existing != null) {
+                existing.value = value;
+                existing.writtenAt = System.nanoTime();
+                adjustWeight(existing, weight - existing.weight);
+                existing.weight = weight;
+                onAccess(existing);
+            } else {
+                if (weight > maximumWeight) return;
+                Node<K, V> node = new Node<>(key, value, weight);
+                data.put(key, node);
+                link(window, node, Region.WINDOW);
+                windowWeight += weight;
+            }
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            data.clear();
+            window.prev = window.next = window;
+            probation.prev = probation.next = probation;
+            protectedRegion.prev = protectedRegion.next = protectedRegion;
+            windowWeight = probationWeight = protectedWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public long weightedSize() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    public double hitRatio() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return requests == 0 ? 0.0 : (double) hitCount / requests;
+    }
+
+    private boolean isExpired(Node<K, V> node) {
+        return expireAfterWriteNanos > 0 && System.nanoTime() - node.writtenAt >= expireAfterWriteNanos;
+    }
+
+    // Drops an expired entry unless a concurrent write already replaced or refreshed it
+    private void expire(Node<K, V> node) {
+        lock.lock();
+        try {
+            if (node.region == null || data.get(node.key) != node || !isExpired(node)) return;
+            unlink(node);
+            adjustWeight(node, -node.weight);
+            remove(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        switch (node.region) {
+            case WINDOW -> moveToFront(window, node);
+            case PROBATION -> {
+                // A second hit promotes the entry into the protected segment
+                unlink(node);
+                probationWeight -= node.weight;
+                link(protectedRegion, node, Region.PROTECTED);
+                protectedWeight += node.weight;
+                while (protectedWeight > protectedMaximum && protectedRegion.prev != node) {
+                    Node<K, V> demoted = protectedRegion.prev;
+                    unlink(demoted);
+                    protectedWeight -= demoted.weight;
+                    link(probation, demoted, Region.PROBATION);
+                    probationWeight += demoted.weight;
+                }
+            }
+            case PROTECTED -> moveToFront(protectedRegion, node);
+        }
+    }
+
+    private void evict() {
+        // Window overflow moves its LRU entries into probation as admission candidates
+        while (windowWeight > windowMaximum && window.prev != window) {
+            Node<K, V> candidate = window.prev;
+            unlink(candidate);
+            windowWeight -= candidate.weight;
+
+            boolean mainFull = windowWeight + probationWeight + protectedWeight + candidate.weight > maximumWeight;
+            if (mainFull && !admit(candidate)) {
+                remove(candidate);
+                continue;
+            }
+            link(probation, candidate, Region.PROBATION);
+            probationWeight += candidate.weight;
+        }
+
+        while (weightedSize() > maximumWeight) {
+            Node<K, V> victim = probation.prev != probation ? probation.prev
+                : protectedRegion.prev != protectedRegion ? protectedRegion.prev
+                : window.prev;
+            if (victim == window) break;
+            unlink(victim);
+            adjustWeight(victim, -victim.weight);
+            remove(victim);
+        }
+    }
+
+    // TinyLFU admission: the candidate must be seen more often than the entry it would displace
+    private boolean admit(Node<K, V> candidate) {
+        Node<K, V> victim = probation.prev != probation ? probation.prev : protectedRegion.prev;
+        if (victim == protectedRegion) return true;
+        return sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode());
+    }
+
+    private void remove(Node<K, V> node) {
+        node.region = null;
+        data.remove(node.key, node);
+        evictions.increment();
+    }
+
+    private void adjustWeight(Node<K, V> node, long delta) {
+        if (node.region == null) return;
+        switch (node.region) {
+            case WINDOW -> windowWeight += delta;
+            case PROBATION -> probationWeight += delta;
+            case PROTECTED -> protectedWeight += delta;
+        }
+    }
+
+    private void moveToFront(Node<K, V> head, Node<K, V> node) {
+        Region region = node.region;
+        unlink(node);
+        link(head, node, region);
+    }
+
+    private static <K, V> void link(Node<K, V> head, Node<K, V> node, Region region) {
+        node.region = region;
+        node.next = head.next;
+        node.prev = head;
+        head.next.prev = node;
+        head.next = node;
+    }
+
+    private static <K, V> void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = node.next = null;
+    }
+
+    private static class Node<K, V> {
+        final K key;
+        volatile V value;
+        volatile long writtenAt = System.nanoTime();
+        long weight;
+        Region region;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        static <K, V> Node<K, V> sentinel() {
+            Node<K, V> node = new Node<>(null, null, 0);
+            node.prev = node;
+            node.next = node;
+            return node;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, four per key. All counters are halved once the number
+     * of increments reaches ten times the table size, so old popularity decays.
+     */
+    private static class FrequencySketch {
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int size = Integer.highestOneBit(Math.max(64, expectedEntries) - 1) << 1;
+            this.table = new long[size / 16 * 4];   // 16 counters per long
+            this.sampleSize = 10 * size;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int counter = indexOf(hash, i);
+                int word = counter >>> 4;
+                int shift = (counter & 15) << 2;
+                if (((table[word] >>> shift) & 0xfL) < 15) {
+                    table[word] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int min = 15;
+            for (int i = 0; i < 4; i++) {
+                int counter = indexOf(hash, i);
+                min = Math.min(min, (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xfL));
+            }
+            return min;
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h ^= h >>> 32;
+            return (int) h & (table.length * 16 - 1);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.moderation.sentinel.util.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Publishes {@link TinyLfuCache} statistics under the standard {@code cache.*} meters.
+ */
+public class TinyLfuCacheMetrics extends CacheMeterBinder<TinyLfuCache<?, ?>> {
+
+    public TinyLfuCacheMetrics(TinyLfuCache<?, ?> cache, Iterable<Tag> tags) {
+        super(cache, cache.getName(), tags);
+    }
+
+    @Override
+    protected Long size() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? 0L : cache.hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.evictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? 0L : cache.putCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        Gauge.builder("cache.weighted.size", this, metrics -> {
+                TinyLfuCache<?, ?> cache = metrics.getCache();
+                return cache == null ? 0 : cache.weightedSize();
+            })
+            .tags(getTagsWithCacheName())
+            .description("Estimated bytes retained by cache entries")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("cache.hit.ratio", this, metrics -> {
+                TinyLfuCache<?, ?> cache = metrics.getCache();
+                return cache == null ? 0.0 : cache.hitRatio();
+            })
+            .tags(getTagsWithCacheName())
+            .description("Fraction of lookups answered from the cache")
+            .register(registry);
+    }
+}
@@ -0,0 +1,137 @@
+package com.moderation.sentinel.util.concurrent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Named fork-join pool for the moderation engine's parallel work, so requests never spread onto
+ * the JVM-wide common pool. It has a fixed number of workers, at most {@code maxRequests} callers
+ * may have work in it at once, and each caller should split its work into no more than
+ * {@link #getRequestParallelism()} pieces. A caller that finds the pool full runs its work itself,
+ * sequentially, rather than queueing behind other requests.
+ */
+public class ComputePool {
+    private final String name;
+    private final int threads;
+    private final int maxRequests;
+    private final int requestParallelism;
+    private final ForkJoinPool pool;
+    private final Semaphore admissions;
+    private final LongAdder callerRuns = new LongAdder();
+
+    public ComputePool(String name, int threads, int maxRequests, int requestParallelism) {
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        this.maxRequests = Math.max(1, maxRequests);
+        this.requestParallelism = Math.max(1, requestParallelism);
+        this.admissions = new Semaphore(this.maxRequests);
+        this.pool = new ForkJoinPool(this.threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("moderation-" + name + "-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * CPUs this process may use: the cgroup CPU quota when one is set (v2 {@code cpu.max}, else the
+     * v1 CFS quota and period), rounded up, and never more than the JVM reports.
+     */
+    public static int availableCpus() {
+        int jvmCpus = Runtime.getRuntime().availableProcessors();
+        double quota = cgroupCpuQuota();
+        return quota > 0 ? Math.max(1, Math.min(jvmCpus, (int) Math.ceil(quota))) : jvmCpus;
+    }
+
+    /**
+     * Runs {@code task} in the pool and returns its result, or runs {@code sequential} on the calling
+     * thread when the pool already holds its maximum number of callers. Work started from one of
+     * the pool's own workers is joined in place.
+     */
+    public <T> T invoke(ForkJoinTask<T> task, Supplier<T> sequential) {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == pool) {
+            return task.invoke();
+        }
+        if (!admissions.tryAcquire()) {
+            callerRuns.increment();
+            return sequential.get();
+        }
+        try {
+            return pool.invoke(task);
+        } finally {
+            admissions.release();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getRequestParallelism() {
+        return requestParallelism;
+    }
+
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("moderation.executor.threads", pool, ForkJoinPool::getPoolSize)
+            .tags("pool", name)
+            .description("Worker threads currently started in the compute pool")
+            .register(meterRegistry);
+        Gauge.builder("moderation.executor.active", pool, ForkJoinPool::getActiveThreadCount)
+            .tags("pool", name)
+            .description("Workers currently running or stealing tasks")
+            .register(meterRegistry);
+        Gauge.builder("moderation.executor.queued", pool, forkJoinPool -> forkJoinPool.getQueuedTaskCount()
+                + forkJoinPool.getQueuedSubmissionCount())
+            .tags("pool", name)
+            .description("Tasks waiting in the compute pool's queues")
+            .register(meterRegistry);
+        Gauge.builder("moderation.executor.requests", admissions, semaphore -> maxRequests - semaphore.availablePermits())
+            .tags("pool", name)
+            .description("Callers with work in the compute pool")
+            .register(meterRegistry);
+        FunctionCounter.builder("moderation.executor.caller.runs", callerRuns, LongAdder::sum)
+            .tags("pool", name)
+            .description("Callers that found the compute pool full and ran their work themselves")
+            .register(meterRegistry);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static double cgroupCpuQuota() {
+        try {
+            Path cpuMax = Path.of("/sys/fs/cgroup/cpu.max");
+            if (Files.isReadable(cpuMax)) {
+                // "<quota> <period>", or "max <period>" when unlimited
+                String[] fields = Files.readString(cpuMax).trim().split("\\s+");
+                return fields.length == 2 && !fields[0].equals("max")
+                    ? Double.parseDouble(fields[0]) / Double.parseDouble(fields[1]) : -1;
+            }
+            Path quota = Path.of("/sys/fs/cgroup/cpu/cpu.cfs_quota_us");
+            Path period = Path.of("/sys/fs/cgroup/cpu/cpu.cfs_period_us");
+            if (Files.isReadable(quota) && Files.isReadable(period)) {
+                long quotaMicros = Long.parseLong(Files.readString(quota).trim());
+                long periodMicros = Long.parseLong(Files.readString(period).trim());
+                return quotaMicros > 0 && periodMicros > 0 ? (double) quotaMicros / periodMicros : -1;
+            }
+        } catch (IOException | NumberFormatException e) {
+            // No usable quota; the JVM's own count stands
+        }
+        return -1;
+    }
+}
@@ -24,9 +24,13 @@ CREATE TABLE IF NOT EXISTS api_keys (
     is_active BOOLEAN NOT NULL DEFAULT TRUE,
     last_used TIMESTAMP,
     usage_count BIGINT NOT NULL DEFAULT 0,
+    analysis_budget_ms BIGINT,
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
 );
 
+-- Added after the first release; brings existing api_keys tables up to date
+ALTER TABLE api_keys ADD COLUMN IF NOT EXISTS analysis_budget_ms BIGINT;
+
 -- Rate Limits table (FIXED: api_key_id changed to UUID)
 CREATE TABLE IF NOT EXISTS rate_limits (
     rate_limit_id BIGSERIAL PRIMARY KEY,
@@ -0,0 +1,86 @@
+package com.moderation.sentinel.service.moderation;
+
+import com.moderation.sentinel.util.algorithm.normalization.TextNormalizer;
+import com.moderation.sentinel.util.algorithm.trie.CompactTrie;
+import com.moderation.sentinel.util.algorithm.trie.WordDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextFeaturesTests {
+
+    private static final WordDictionary SAFE_WORDS = CompactTrie.build(List.of("scunthorpe", "cocktail", "classic"));
+    private static final List<String> NEGATIONS = List.of(
+        "not", "never", "without", "except", "but", "neither", "nor", "hardly", "barely");
+
+    @Test
+    void negationReachesTwoTokensAfterItAndOneBefore() {
+        //                   0     1    2   3     4     5     6
+        byte[] context = features("you are not a complete idiot today");
+
+        assertThat(negated(context)).containsExactly(false, true, true, true, true, false, false);
+        assertThat(context[2] & ModerationService.NEGATION_WORD).isNotZero();
+    }
+
+    @Test
+    void onlyTheSafeWordItselfIsMarked() {
+        byte[] context = features("fuck scunthorpe classic rock");
+
+        assertThat(context[0] & ModerationService.SAFE_WORD).isZero();
+        assertThat(context[1] & ModerationService.SAFE_WORD).isNotZero();
+        assertThat(context[2] & ModerationService.SAFE_WORD).isNotZero();
+        assertThat(context[3] & ModerationService.SAFE_WORD).isZero();
+    }
+
+    @Test
+    void windowsAtTheEdgesOfTheMessage() {
+        assertThat(negated(features("not"))).containsExactly(true);
+        assertThat(negated(features("idiot but"))).containsExactly(true, true);
+        assertThat(negated(features("a b c d never"))).containsExactly(false, false, false, true, true);
+        assertThat(features("")).isEmpty();
+    }
+
+    @Test
+    void matchesTheWindowScansItReplacedOnRandomMessages() {
+        Random random = new Random(19);
+        List<String> vocabulary = new ArrayList<>(NEGATIONS);
+        vocabulary.addAll(List.of("idiot", "moron", "cocktail", "classic", "the", "a", "you", "nothing", "butt"));
+
+        for (int i = 0; i < 5000; i++) {
+            List<String> tokens = new ArrayList<>();
+            for (int t = random.nextInt(30); t > 0; t--) tokens.add(vocabulary.get(random.nextInt(vocabulary.size())));
+            byte[] context = features(String.join(" ", tokens));
+
+            assertThat(context).hasSize(tokens.size());
+            for (int index = 0; index < tokens.size(); index++) {
+                String message = tokens + " @ " + index;
+                assertThat((context[index] & ModerationService.NEGATED) != 0).as(message)
+                    .isEqualTo(previousNegativeContext(tokens, index));
+                assertThat((context[index] & ModerationService.SAFE_WORD) != 0).as(message)
+                    .isEqualTo(SAFE_WORDS.contains(tokens.get(index)).isOffensive);
+            }
+        }
+    }
+
+    private static byte[] features(String text) {
+        return ModerationService.contextFeatures(text, TextNormalizer.tokenizeSpans(text), SAFE_WORDS);
+    }
+
+    private static Boolean[] negated(byte[] context) {
+        Boolean[] negated = new Boolean[context.length];
+        for (int i = 0; i < context.length; i++) negated[i] = (context[i] & ModerationService.NEGATED) != 0;
+        return negated;
+    }
+
+    // hasNegativeContext before the single pass: a negation among tokens [index - 2, index + 2)
+    private static boolean previousNegativeContext(List<String> tokens, int index) {
+        for (int i = Math.max(0, index - 2); i < Math.min(tokens.size(), index + 2); i++) {
+            if (NEGATIONS.contains(tokens.get(i).toLowerCase())) return true;
+        }
+        return false;
+    }
+}
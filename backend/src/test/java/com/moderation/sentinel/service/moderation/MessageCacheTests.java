@@ -0,0 +1,151 @@
+package com.moderation.sentinel.service.moderation;
+
+import com.moderation.sentinel.model.ModerationResponse;
+import com.moderation.sentinel.model.ModerationVerdict;
+import com.moderation.sentinel.service.moderation.stage.DetectionPipeline;
+import com.moderation.sentinel.service.moderation.stage.DictionaryStage;
+import com.moderation.sentinel.service.moderation.stage.FuzzyStage;
+import com.moderation.sentinel.service.moderation.stage.LevenshteinStage;
+import com.moderation.sentinel.service.moderation.stage.PhoneticStage;
+import com.moderation.sentinel.service.moderation.stage.VariantStage;
+import com.moderation.sentinel.util.algorithm.trie.DictionarySnapshot;
+import com.moderation.sentinel.util.algorithm.trie.TrieInitializer;
+import com.moderation.sentinel.util.algorithm.vocabulary.CleanVocabulary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageCacheTests {
+
+    private static final List<String> OFFENSIVE = List.of("idiot", "moron", "fuck", "stupid", "loser");
+    private static final List<String> SAFE = List.of("scunthorpe");
+
+    private TrieInitializer dictionary;
+    private MeterRegistry registry;
+    private ModerationService service;
+
+    @BeforeEach
+    void startService() {
+        dictionary = new TrieInitializer();
+        dictionary.updateSnapshot(current -> DictionarySnapshot.build(1, OFFENSIVE, SAFE)).join();
+        registry = new SimpleMeterRegistry();
+        service = service(registry, 32 << 20, 0);
+    }
+
+    @Test
+    void cachedResponsesEqualFreshAnalyses() {
+        // Responses and verdicts weigh more than a 1-byte cache, so this service never stores one
+        ModerationService uncached = service(new SimpleMeterRegistry(), 1, 0);
+        Random random = new Random(25);
+        String[] words = {"you", "are", "an", "IDIOT", "id1ot", "m o r o n", "not", "stupid", "nice", "Scunthorpe", "f*ck"};
+
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int w = 1 + random.nextInt(4); w > 0; w--) {
+                message.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "  ");
+            }
+            String input = message.toString();
+            assertThat(render(service.analyze(input))).as(input).isEqualTo(render(uncached.analyze(input)));
+            assertThat(render(service.verdict(input, 0.5))).as(input).isEqualTo(render(uncached.verdict(input, 0.5)));
+        }
+        assertThat(hits()).isGreaterThan(1000);
+    }
+
+    @Test
+    void inputsThatNormalizeAlikeShareAnEntryWithTheirOwnOffsets() {
+        // Normalization caps the run of spaces at two, so both give "you are an  idiot"
+        ModerationResponse first = service.analyze("you are an  idiot");
+        ModerationResponse second = service.analyze("YOU ARE AN    Idiot");
+
+        assertThat(hits()).isEqualTo(1);
+        assertThat(second.confidence).isEqualTo(first.confidence);
+        assertThat(first.matches).singleElement().satisfies(match -> assertThat(match.start).isEqualTo(12));
+        assertThat(second.matches).singleElement().satisfies(match -> {
+            assertThat(match.start).isEqualTo(14);
+            assertThat(match.end).isEqualTo(19);
+        });
+
+        // A single space normalizes differently, so it is a separate entry
+        service.analyze("you are an idiot");
+        assertThat(hits()).isEqualTo(1);
+    }
+
+    @Test
+    void differentlyTypedSpellingsAreCachedApart() {
+        service.analyze("you idiot");
+        ModerationResponse leet = service.analyze("you id1ot");
+
+        assertThat(hits()).isZero();
+        assertThat(leet.matches).singleElement().satisfies(match -> assertThat(match.obfuscation).contains("leet"));
+    }
+
+    @Test
+    void newDictionaryVersionMissesTheCache() {
+        assertThat(service.analyze("what a twit").isOffensive).isFalse();
+        dictionary.updateSnapshot(current -> current.withOffensiveTerm("twit")).join();
+
+        assertThat(service.analyze("what a twit").isOffensive).isTrue();
+        assertThat(hits()).isZero();
+    }
+
+    @Test
+    void analysesAndVerdictsAtEachThresholdAreKeptApart() {
+        service.analyze("you moron");
+        ModerationVerdict strict = service.verdict("you moron", 0.99);
+        ModerationVerdict loose = service.verdict("you moron", 0.1);
+        assertThat(hits()).isZero();
+
+        assertThat(service.verdict("you moron", 0.99).isOffensive).isEqualTo(strict.isOffensive);
+        assertThat(service.verdict("you moron", 0.1).isOffensive).isEqualTo(loose.isOffensive);
+        assertThat(hits("moderation.verdict")).isEqualTo(2);
+        service.analyze("you moron");
+        assertThat(hits("moderation.message")).isEqualTo(1);
+    }
+
+    @Test
+    void degradedResultsAreNotCached() {
+        MeterRegistry limitedRegistry = new SimpleMeterRegistry();
+        ModerationService limited = service(limitedRegistry, 32 << 20, 1);
+
+        // A near miss reaches the fuzzy stages, which spend the one-unit budget at once
+        assertThat(limited.analyze("you mxron").degraded).isTrue();
+        assertThat(limited.analyze("you mxron").degraded).isTrue();
+        assertThat(limitedRegistry.get("cache.gets").tags("cache", "moderation.message", "result", "hit")
+            .functionCounter().count()).isZero();
+    }
+
+    private ModerationService service(MeterRegistry meterRegistry, long messageCacheBytes, long budgetUnits) {
+        DetectionPipeline pipeline = new DetectionPipeline(List.of(new DictionaryStage(), new PhoneticStage(),
+            new VariantStage(), new LevenshteinStage(), new FuzzyStage()), meterRegistry,
+            "dictionary,phonetic,variant,levenshtein,fuzzy", 4096, 0);
+        return new ModerationService(dictionary, new CleanVocabulary(), pipeline, new ModerationExecutors(meterRegistry, 1, 0, 0),
+            meterRegistry, 1 << 20, messageCacheBytes, messageCacheBytes, 600, 2, 0, 0, budgetUnits, 2000, 256);
+    }
+
+    private double hits() {
+        return hits("moderation.message") + hits("moderation.verdict");
+    }
+
+    private double hits(String cache) {
+        return registry.get("cache.gets").tags("cache", cache, "result", "hit").functionCounter().count();
+    }
+
+    private static String render(ModerationResponse response) {
+        StringBuilder rendered = new StringBuilder(response.toString());
+        for (ModerationResponse.TermMatch match : response.matches) {
+            rendered.append(String.format(" %s[%d, %d) %s %s", match.term, match.start, match.end, match.confidence,
+                match.obfuscation));
+        }
+        return rendered.toString();
+    }
+
+    private static String render(ModerationVerdict verdict) {
+        return verdict.isOffensive + " " + verdict.confidence + " " + verdict.degraded;
+    }
+}
@@ -0,0 +1,104 @@
+package com.moderation.sentinel.service.moderation;
+
+import com.moderation.sentinel.model.ModerationResponse;
+import com.moderation.sentinel.model.ModerationVerdict;
+import com.moderation.sentinel.service.moderation.stage.DetectionPipeline;
+import com.moderation.sentinel.service.moderation.stage.DictionaryStage;
+import com.moderation.sentinel.service.moderation.stage.FuzzyStage;
+import com.moderation.sentinel.service.moderation.stage.LevenshteinStage;
+import com.moderation.sentinel.service.moderation.stage.PhoneticStage;
+import com.moderation.sentinel.service.moderation.stage.VariantStage;
+import com.moderation.sentinel.util.algorithm.trie.DictionarySnapshot;
+import com.moderation.sentinel.util.algorithm.trie.TrieInitializer;
+import com.moderation.sentinel.util.algorithm.vocabulary.CleanVocabulary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerdictTests {
+
+    private static final List<String> OFFENSIVE = List.of("idiot", "moron", "fuck", "stupid", "loser");
+    private static final List<String> SAFE = List.of("scunthorpe");
+
+    private TrieInitializer dictionary;
+    private CleanVocabulary cleanVocabulary;
+
+    @BeforeEach
+    void loadDictionaries() throws IOException {
+        dictionary = new TrieInitializer();
+        dictionary.updateSnapshot(current -> DictionarySnapshot.build(1, OFFENSIVE, SAFE)).join();
+        cleanVocabulary = new CleanVocabulary();
+        ReflectionTestUtils.setField(cleanVocabulary, "languages", "en");
+        cleanVocabulary.init();
+    }
+
+    @Test
+    void agreesWithAnalyzeOnTheFlagAndTheConfidence() {
+        ModerationService service = service(0);
+        Random random = new Random(20);
+        String[] words = {"you", "are", "really", "and", "the", "what", "an", "a", "not", "kevin", "idiot", "id1ot",
+            "m o r o n", "stupid", "stoopid", "loser", "Scunthorpe", "f*ck", "mxron"};
+        double[] thresholds = {0.1, 0.5, 0.7, 0.9, 1.0};
+
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int w = 1 + random.nextInt(8); w > 0; w--) message.append(words[random.nextInt(words.length)]).append(' ');
+            String input = message.toString();
+            double threshold = thresholds[random.nextInt(thresholds.length)];
+
+            ModerationResponse analysis = service.analyze(input);
+            ModerationVerdict verdict = service.verdict(input, threshold);
+            String described = input + " @ " + threshold;
+            assertThat(verdict.isOffensive).as(described)
+                .isEqualTo(analysis.confidence > 0.0 && analysis.confidence >= threshold);
+            if (verdict.isOffensive) {
+                // An early exit carries a lower bound that already meets the threshold
+                assertThat(verdict.confidence).as(described).isBetween(threshold, analysis.confidence);
+            } else {
+                assertThat(verdict.confidence).as(described).isEqualTo(analysis.confidence);
+            }
+        }
+    }
+
+    @Test
+    void stopsBeforeTheUnknownTokenOnceTheHitsDecide() {
+        // The near miss spends the one-unit budget in the fuzzy stages; the clean words are never pending
+        ModerationService service = service(1);
+        String input = "you are really stupid and an idiot mxron";
+
+        ModerationResponse analysis = service.analyze(input);
+        assertThat(analysis.degraded).isTrue();
+
+        ModerationVerdict verdict = service.verdict(input, 0.5);
+        assertThat(verdict.isOffensive).isTrue();
+        assertThat(verdict.degraded).isFalse();
+        assertThat(verdict.confidence).isBetween(0.5, analysis.confidence);
+    }
+
+    @Test
+    void scoresEveryTokenWhenTheBoundFallsShort() {
+        ModerationService service = service(1);
+        ModerationVerdict verdict = service.verdict("you are really stupid and an idiot mxron", 0.9);
+
+        assertThat(verdict.isOffensive).isTrue();
+        assertThat(verdict.degraded).isTrue();
+    }
+
+    private ModerationService service(long budgetUnits) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DetectionPipeline pipeline = new DetectionPipeline(List.of(new DictionaryStage(), new PhoneticStage(),
+            new VariantStage(), new LevenshteinStage(), new FuzzyStage()), meterRegistry,
+            "dictionary,phonetic,variant,levenshtein,fuzzy", 4096, 0);
+        // One-byte message and verdict caches store nothing, so every call is scored
+        return new ModerationService(dictionary, cleanVocabulary, pipeline, new ModerationExecutors(meterRegistry, 1, 0, 0),
+            meterRegistry, 1 << 20, 1, 1, 600, 2, 0, 0, budgetUnits, 2000, 256);
+    }
+}
@@ -0,0 +1,172 @@
+package com.moderation.sentinel.service.moderation.stage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DetectionPipelineTests {
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void newRegistry() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void givesTheFixedCascadeResultWhateverTheOrder() {
+        Random random = new Random(22);
+        List<FakeStage> stages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int divisor = 2 + random.nextInt(6);
+            int remainder = random.nextInt(divisor);
+            stages.add(new FakeStage("stage" + i, i * 10, 100 * (5 - i),
+                token -> token.hashCode() % 3 != 0, token -> Math.floorMod(token.hashCode(), divisor) == remainder));
+        }
+        DetectionPipeline pipeline = pipeline(stages, "stage0,stage1,stage2,stage3,stage4", 7, 0);
+
+        for (int i = 0; i < 20_000; i++) {
+            String token = Integer.toString(random.nextInt(100_000), 36);
+            StageMatch match = pipeline.detect(input(token));
+            assertThat(match == null ? null : match.confidence).as(token).isEqualTo(cascade(stages, token));
+        }
+    }
+
+    @Test
+    void movesTheCheapestStagePerHitToTheFront() {
+        FakeStage slow = new FakeStage("slow", 0, 1000, token -> true, token -> false).spinning(50_000);
+        FakeStage fast = new FakeStage("fast", 1, 1000, token -> true, token -> true);
+        DetectionPipeline pipeline = pipeline(List.of(slow, fast), "slow,fast", 256, 0);
+        assertThat(pipeline.currentOrder()).containsExactly("slow", "fast");
+
+        for (int i = 0; i < 1024; i++) pipeline.detect(input("t" + i));
+        assertThat(pipeline.currentOrder()).containsExactly("fast", "slow");
+        // The slow stage still runs after the fast one matched, since it takes precedence
+        assertThat(slow.runs.get()).isEqualTo(1024);
+    }
+
+    @Test
+    void stagesThatCannotWinAreNotRun() {
+        FakeStage first = new FakeStage("first", 0, 1, token -> true, token -> true);
+        FakeStage second = new FakeStage("second", 5, 2, token -> true, token -> true);
+        DetectionPipeline pipeline = pipeline(List.of(second, first), "first,second", 1_000_000, 0);
+
+        for (int i = 0; i < 100; i++) assertThat(pipeline.detect(input("t" + i)).confidence).isEqualTo(0.0);
+        assertThat(second.runs.get()).isZero();
+    }
+
+    @Test
+    void countsTokensAStageDoesNotApplyToAsSkipped() {
+        FakeStage gated = new FakeStage("gated", 0, 1, token -> token.length() > 3, token -> token.startsWith("bad"));
+        DetectionPipeline pipeline = pipeline(List.of(gated), "gated", 4096, 0);
+
+        for (String token : List.of("bad", "badly", "good", "ok", "badge")) pipeline.detect(input(token));
+        assertThat(count("gated", "skipped")).isEqualTo(2);
+        assertThat(count("gated", "hit")).isEqualTo(2);
+        assertThat(count("gated", "miss")).isEqualTo(1);
+        assertThat(gated.runs.get()).isEqualTo(3);
+    }
+
+    @Test
+    void runsOnlyTheEnabledStagesThatExist() {
+        FakeStage enabled = new FakeStage("enabled", 1, 1, token -> true, token -> false);
+        FakeStage disabled = new FakeStage("disabled", 0, 1, token -> true, token -> true);
+        DetectionPipeline pipeline = pipeline(List.of(enabled, disabled), " enabled , missing,,", 4096, 0);
+
+        assertThat(pipeline.currentOrder()).containsExactly("enabled");
+        assertThat(pipeline.detect(input("token"))).isNull();
+        assertThat(disabled.runs.get()).isZero();
+    }
+
+    @Test
+    void demotesAStageBelowTheMinimumHitRateToOccasionalProbes() {
+        FakeStage barren = new FakeStage("barren", 0, 1, token -> true, token -> false);
+        DetectionPipeline pipeline = pipeline(List.of(barren), "barren", 4096, 0.01);
+
+        for (int i = 0; i < 30_000; i++) pipeline.detect(input("t" + i));
+        // 10,000 runs to measure the rate, then about one in 64 of the remaining 20,000
+        assertThat(barren.runs.get()).isBetween(10_200, 10_700);
+        assertThat(count("barren", "skipped")).isEqualTo(30_000 - barren.runs.get());
+    }
+
+    private DetectionPipeline pipeline(List<? extends DetectionStage> stages, String enabled, long reorderInterval,
+                                       double minHitRate) {
+        return new DetectionPipeline(new ArrayList<>(stages), registry, enabled, reorderInterval, minHitRate);
+    }
+
+    private double count(String stage, String outcome) {
+        return registry.get("moderation.stage.tokens").tags("stage", stage, "outcome", outcome).functionCounter().count();
+    }
+
+    private static DetectionInput input(String token) {
+        return new DetectionInput(token, null, null, null);
+    }
+
+    // The first stage in priority order that applies and matches, as ModerationService ran them before the pipeline
+    private static Double cascade(List<FakeStage> stages, String token) {
+        for (FakeStage stage : stages) {
+            if (stage.applies.test(token) && stage.matches.test(token)) return (double) stage.priority;
+        }
+        return null;
+    }
+
+    // Matches with its own priority as the confidence, so the winning stage is visible in the result
+    private static final class FakeStage implements DetectionStage {
+        final String name;
+        final int priority;
+        final double cost;
+        final Predicate<String> applies;
+        final Predicate<String> matches;
+        final AtomicInteger runs = new AtomicInteger();
+        long spinNanos;
+
+        FakeStage(String name, int priority, double cost, Predicate<String> applies, Predicate<String> matches) {
+            this.name = name;
+            this.priority = priority;
+            this.cost = cost;
+            this.applies = applies;
+            this.matches = matches;
+        }
+
+        FakeStage spinning(long nanos) {
+            spinNanos = nanos;
+            return this;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int priority() {
+            return priority;
+        }
+
+        @Override
+        public double estimatedCost() {
+            return cost;
+        }
+
+        @Override
+        public boolean appliesTo(DetectionInput input) {
+            return applies.test(input.token);
+        }
+
+        @Override
+        public StageMatch detect(DetectionInput input) {
+            runs.incrementAndGet();
+            for (long start = System.nanoTime(); System.nanoTime() - start < spinNanos; ) Thread.onSpinWait();
+            return matches.test(input.token) ? new StageMatch(priority) : null;
+        }
+    }
+}
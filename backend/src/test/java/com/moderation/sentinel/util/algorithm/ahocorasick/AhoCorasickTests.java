@@ -0,0 +1,89 @@
+package com.moderation.sentinel.util.algorithm.ahocorasick;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AhoCorasickTests {
+
+    private static final IntPredicate SEPARATOR = c -> c == ' ' || c == '.' || c == '-';
+
+    private final AhoCorasick scanner = AhoCorasick.build(List.of("fuck", "uck", "ass", "asshat", "a.b"));
+
+    @Test
+    void reportsOverlappingTermsInEndOrderLongestFirst() {
+        assertThat(render(scanner.scan("asshat fuck"))).containsExactly(
+            "ass[0, 3)", "asshat[0, 6)", "fuck[7, 11)", "uck[8, 11)");
+    }
+
+    @Test
+    void stepsOverSeparatorRunsUpToTheGap() {
+        assertThat(render(scanner.scan("f u-c k", 2, SEPARATOR))).contains("fuck[0, 7)");
+        assertThat(render(scanner.scan("f  u c k", 2, SEPARATOR))).contains("fuck[0, 8)");
+        assertThat(render(scanner.scan("f   u c k", 2, SEPARATOR))).doesNotContain("fuck[0, 9)");
+    }
+
+    @Test
+    void gapOfZeroFindsOnlyContiguousTerms() {
+        assertThat(scanner.scan("f u c k", 0, SEPARATOR)).isEmpty();
+    }
+
+    @Test
+    void splitMatchMustStartAndEndOnWordBoundaries() {
+        // "class s" would assemble "ass" from the tail of one word and the head of the next
+        assertThat(render(scanner.scan("cla s s", 2, SEPARATOR))).isEmpty();
+        assertThat(render(scanner.scan("a s s!", 2, SEPARATOR))).isEmpty();
+        assertThat(render(scanner.scan("a s s", 2, SEPARATOR))).containsExactly("ass[0, 5)");
+    }
+
+    @Test
+    void followsSeparatorsThatBelongToATerm() {
+        assertThat(render(scanner.scan("x a.b y", 2, SEPARATOR))).containsExactly("a.b[2, 5)");
+    }
+
+    @Test
+    void contiguousMatchesOfTheGapScanEqualThePlainScan() {
+        Random random = new Random(16);
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < 200; i++) terms.add(randomText(random, 2 + random.nextInt(5), "abcd"));
+        AhoCorasick automaton = AhoCorasick.build(terms);
+
+        for (int i = 0; i < 2000; i++) {
+            String text = randomText(random, random.nextInt(40), "abcd -");
+            List<String> contiguous = automaton.scan(text, 2, SEPARATOR).stream()
+                .filter(match -> match.end - match.start == match.term.length())
+                .map(AhoCorasick.Match::toString)
+                .collect(Collectors.toList());
+            assertThat(contiguous).as(text).isEqualTo(render(automaton.scan(text)));
+            assertThat(render(automaton.scan(text))).as(text).isEqualTo(bruteForce(terms, text));
+        }
+    }
+
+    // Every occurrence of every distinct term, ordered like the automaton reports them
+    private static List<String> bruteForce(List<String> terms, String text) {
+        List<String> found = new ArrayList<>();
+        for (int end = 1; end <= text.length(); end++) {
+            for (int start = 0; start < end; start++) {
+                String candidate = text.substring(start, end);
+                if (terms.contains(candidate)) found.add(candidate + "[" + start + ", " + end + ")");
+            }
+        }
+        return found;
+    }
+
+    private static String randomText(Random random, int length, String alphabet) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return text.toString();
+    }
+
+    private static List<String> render(List<AhoCorasick.Match> matches) {
+        return matches.stream().map(AhoCorasick.Match::toString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,115 @@
+package com.moderation.sentinel.util.algorithm.budget;
+
+import com.moderation.sentinel.util.algorithm.trie.CompactTrie;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkBudgetTests {
+
+    @Test
+    void refusesTheChargeThatGoesOverTheUnitsAndEveryOneAfter() {
+        WorkBudget budget = WorkBudget.of(0, 100);
+
+        assertThat(budget.charge(60)).isTrue();
+        assertThat(budget.charge(40)).isTrue();
+        assertThat(budget.isExhausted()).isFalse();
+        assertThat(budget.charge(1)).isFalse();
+        assertThat(budget.charge(0)).isFalse();
+        assertThat(budget.isExhausted()).isTrue();
+        assertThat(budget.getUsedUnits()).isEqualTo(101);
+    }
+
+    @Test
+    void passedDeadlineIsNoticedWithinOneClockInterval() throws InterruptedException {
+        WorkBudget budget = WorkBudget.of(1, 0);
+        Thread.sleep(5);
+
+        int charges = 0;
+        while (budget.charge(1)) charges++;
+        assertThat(charges).isLessThan(256);
+        assertThat(budget.isExhausted()).isTrue();
+    }
+
+    @Test
+    void noLimitsMeansTheSharedUnlimitedBudget() {
+        assertThat(WorkBudget.of(0, 0)).isSameAs(WorkBudget.unlimited());
+        assertThat(WorkBudget.of(-5, -5)).isSameAs(WorkBudget.unlimited());
+
+        WorkBudget unlimited = WorkBudget.unlimited();
+        assertThat(unlimited.charge(Long.MAX_VALUE)).isTrue();
+        assertThat(unlimited.getUsedUnits()).isZero();
+        assertThat(unlimited.share(8)).isSameAs(unlimited);
+        unlimited.absorb(WorkBudget.of(0, 1));
+        assertThat(unlimited.isExhausted()).isFalse();
+    }
+
+    @Test
+    void sharesSplitTheUnitsLeftAndAreAbsorbedBack() {
+        WorkBudget budget = WorkBudget.of(0, 1000);
+        budget.charge(200);
+
+        WorkBudget first = budget.share(4);
+        WorkBudget second = budget.share(4);
+        assertThat(first.charge(200)).isTrue();
+        assertThat(first.charge(1)).isFalse();
+        assertThat(second.charge(150)).isTrue();
+
+        budget.absorb(second);
+        assertThat(budget.getUsedUnits()).isEqualTo(350);
+        assertThat(budget.isExhausted()).isFalse();
+        budget.absorb(first);
+        assertThat(budget.getUsedUnits()).isEqualTo(551);
+        assertThat(budget.isExhausted()).isTrue();
+    }
+
+    @Test
+    void shareOfASpentBudgetRefusesAnyWork() {
+        WorkBudget budget = WorkBudget.of(0, 10);
+        budget.charge(11);
+
+        WorkBudget share = budget.share(2);
+        assertThat(share.charge(1)).isFalse();
+        assertThat(share.isExhausted()).isTrue();
+    }
+
+    @Test
+    void sharesAreChargedOnTheirOwnThreads() {
+        WorkBudget budget = WorkBudget.of(60_000, 4000);
+        List<WorkBudget> shares = new ArrayList<>();
+        List<CompletableFuture<Integer>> pieces = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            WorkBudget share = budget.share(4);
+            shares.add(share);
+            pieces.add(CompletableFuture.supplyAsync(() -> {
+                int accepted = 0;
+                while (share.charge(1)) accepted++;
+                return accepted;
+            }));
+        }
+
+        int accepted = pieces.stream().mapToInt(CompletableFuture::join).sum();
+        shares.forEach(budget::absorb);
+        assertThat(accepted).isEqualTo(4000);
+        assertThat(budget.getUsedUnits()).isEqualTo(4004);
+        assertThat(budget.isExhausted()).isTrue();
+    }
+
+    @Test
+    void spentBudgetCutsAFuzzySearchShort() {
+        List<String> words = new ArrayList<>();
+        for (char a = 'a'; a <= 'z'; a++) {
+            for (char b = 'a'; b <= 'z'; b++) words.add("st" + a + b);
+        }
+        CompactTrie trie = CompactTrie.build(words);
+        WorkBudget budget = WorkBudget.of(0, 50);
+
+        assertThat(trie.fuzzySearch("stxx", 1, budget)).hasSizeLessThan(trie.fuzzySearch("stxx", 1).size());
+        assertThat(budget.isExhausted()).isTrue();
+        assertThat(trie.fuzzySearch("stxx", 1, WorkBudget.of(0, 50_000))).hasSameSizeAs(trie.fuzzySearch("stxx", 1));
+    }
+}
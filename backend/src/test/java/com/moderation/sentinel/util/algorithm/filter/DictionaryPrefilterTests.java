@@ -0,0 +1,132 @@
+package com.moderation.sentinel.util.algorithm.filter;
+
+import com.moderation.sentinel.util.algorithm.levenshtein.LevenshteinDistance;
+import com.moderation.sentinel.util.algorithm.phonetic.DoubleMetaphone;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DictionaryPrefilterTests {
+
+    @Test
+    void neverRejectsATokenWithinTheDistance() {
+        Random random = new Random(170);
+        List<String> words = words(random, 500);
+        DictionaryPrefilter prefilter = DictionaryPrefilter.build(words, 3, 0.01, ArrayStorage.HEAP);
+
+        int rejected = 0;
+        for (int i = 0; i < 5000; i++) {
+            String token = i % 2 == 0 ? edit(words.get(random.nextInt(words.size())), random) : word(random);
+            for (int distance = 0; distance <= 3; distance++) {
+                boolean near = nearest(words, token) <= distance;
+                boolean passed = prefilter.mayBeWithin(token, distance);
+                if (near) assertThat(passed).as("%s within %d", token, distance).isTrue();
+                if (!passed) rejected++;
+            }
+        }
+        // The check must also do its job, not just pass everything
+        assertThat(rejected).isGreaterThan(5000);
+    }
+
+    @Test
+    void distancesBeyondTheBuiltOnePassEverything() {
+        DictionaryPrefilter prefilter = DictionaryPrefilter.build(List.of("moron"), 1, 0.01, ArrayStorage.HEAP);
+
+        assertThat(prefilter.mayBeWithin("moran", 1)).isTrue();
+        assertThat(prefilter.mayBeWithin("zzzzzzzzzzzz", 1)).isFalse();
+        assertThat(prefilter.mayBeWithin("zzzzzzzzzzzz", 2)).isTrue();
+    }
+
+    @Test
+    void neverRejectsATokenSharingAMetaphoneCode() {
+        List<String> words = List.of("fuck", "phuck", "shit", "bastard", "wanker", "knob");
+        DictionaryPrefilter prefilter = DictionaryPrefilter.build(words, 2, 0.01, ArrayStorage.HEAP);
+
+        for (String token : List.of("fuk", "phuk", "shyt", "basterd", "whanker", "nob", "fuck")) {
+            assertThat(sharesCode(words, token)).as(token).isTrue();
+            assertThat(prefilter.maySoundLike(token)).as(token).isTrue();
+        }
+        assertThat(prefilter.maySoundLike("lovely")).isFalse();
+    }
+
+    @Test
+    void pendingFilterPassesItsOwnWords() {
+        DictionaryPrefilter base = DictionaryPrefilter.build(List.of("idiot"), 2, 0.01, ArrayStorage.HEAP);
+        DictionaryPrefilter layered = base.withPending(
+            DictionaryPrefilter.build(List.of("cretin"), 2, 0.01, ArrayStorage.HEAP));
+
+        assertThat(base.mayBeWithin("cretn", 1)).isFalse();
+        assertThat(layered.mayBeWithin("cretn", 1)).isTrue();
+        assertThat(layered.mayBeWithin("idiots", 1)).isTrue();
+        assertThat(layered.maySoundLike("kretin")).isTrue();
+        assertThat(layered.getFalsePositiveRate()).isEqualTo(base.getFalsePositiveRate());
+    }
+
+    @Test
+    void widerFingerprintsForLowerRates() {
+        List<String> words = words(new Random(171), 200);
+
+        int loose = DictionaryPrefilter.build(words, 2, 0.1, ArrayStorage.HEAP).getFingerprintBits();
+        int strict = DictionaryPrefilter.build(words, 2, 0.001, ArrayStorage.HEAP).getFingerprintBits();
+        assertThat(strict).isGreaterThan(loose);
+    }
+
+    @Test
+    void emptyDictionaryRejectsEveryToken() {
+        DictionaryPrefilter empty = DictionaryPrefilter.build(List.of(), 2, 0.01, ArrayStorage.HEAP);
+
+        assertThat(empty.mayBeWithin("anything", 2)).isFalse();
+        assertThat(empty.mayBeWithin("", 0)).isFalse();
+    }
+
+    private static int nearest(List<String> words, String token) {
+        int best = Integer.MAX_VALUE;
+        for (String word : words) best = Math.min(best, LevenshteinDistance.computeDistance(token, word, 4));
+        return best;
+    }
+
+    private static boolean sharesCode(List<String> words, String token) {
+        int code = DoubleMetaphone.encode(token);
+        for (String word : words) {
+            int other = DoubleMetaphone.encode(word);
+            for (int a : new int[] {DoubleMetaphone.primary(code), DoubleMetaphone.alternate(code)}) {
+                if (a != DoubleMetaphone.NONE
+                        && (a == DoubleMetaphone.primary(other) || a == DoubleMetaphone.alternate(other))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<String> words(Random random, int count) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) words.add(word(random));
+        return words;
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 3 + random.nextInt(7); i > 0; i--) word.append((char) ('a' + random.nextInt(10)));
+        return word.toString();
+    }
+
+    // Up to three substitutions, insertions or deletions
+    private static String edit(String word, Random random) {
+        StringBuilder out = new StringBuilder(word);
+        for (int e = random.nextInt(4); e > 0 && out.length() > 1; e--) {
+            int position = random.nextInt(out.length());
+            switch (random.nextInt(3)) {
+                case 0 -> out.setCharAt(position, (char) ('a' + random.nextInt(12)));
+                case 1 -> out.insert(position, (char) ('a' + random.nextInt(12)));
+                default -> out.deleteCharAt(position);
+            }
+        }
+        return out.toString();
+    }
+}
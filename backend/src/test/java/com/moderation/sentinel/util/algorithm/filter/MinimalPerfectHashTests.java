@@ -0,0 +1,69 @@
+package com.moderation.sentinel.util.algorithm.filter;
+
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinimalPerfectHashTests {
+
+    @Test
+    void mapsTheKeysOneToOneOntoTheirCount() {
+        Random random = new Random(18);
+        for (int size : new int[] {1, 2, 3, 31, 32, 33, 1000, 100_000}) {
+            long[] keys = Hypergraph.distinct(random.longs(size).toArray());
+            MinimalPerfectHash hash = MinimalPerfectHash.build(keys, ArrayStorage.HEAP);
+
+            boolean[] taken = new boolean[keys.length];
+            for (long key : keys) {
+                int index = hash.indexOf(key);
+                assertThat(index).as("%d keys", keys.length).isBetween(0, keys.length - 1);
+                assertThat(taken[index]).as("index %d of %d taken twice", index, keys.length).isFalse();
+                taken[index] = true;
+            }
+            assertThat(hash.size()).isEqualTo(keys.length);
+        }
+    }
+
+    @Test
+    void otherKeysMapToMinusOneOrAnIndexInRange() {
+        Random random = new Random(19);
+        long[] keys = Hypergraph.distinct(random.longs(10_000).toArray());
+        MinimalPerfectHash hash = MinimalPerfectHash.build(keys, ArrayStorage.HEAP);
+
+        int unowned = 0;
+        for (int i = 0; i < 100_000; i++) {
+            int index = hash.indexOf(random.nextLong());
+            assertThat(index).isBetween(-1, keys.length - 1);
+            if (index == -1) unowned++;
+        }
+        // About one slot in five is owned by nobody
+        assertThat(unowned).isGreaterThan(10_000);
+    }
+
+    @Test
+    void keysThatDifferInOneBitStillGetTheirOwnIndex() {
+        long[] keys = new long[64];
+        for (int bit = 0; bit < 64; bit++) keys[bit] = 1L << bit;
+        MinimalPerfectHash hash = MinimalPerfectHash.build(keys, ArrayStorage.HEAP);
+
+        int[] indexes = Arrays.stream(keys).mapToInt(hash::indexOf).sorted().toArray();
+        assertThat(indexes).containsExactly(IntStream.range(0, 64).toArray());
+    }
+
+    @Test
+    void emptyKeySetHasNoIndexes() {
+        MinimalPerfectHash hash = MinimalPerfectHash.build(new long[0], ArrayStorage.HEAP);
+
+        assertThat(hash.size()).isZero();
+        Set<Integer> seen = new HashSet<>();
+        for (long key = 0; key < 1000; key++) seen.add(hash.indexOf(key));
+        assertThat(seen).containsExactly(-1);
+    }
+}
@@ -0,0 +1,81 @@
+package com.moderation.sentinel.util.algorithm.filter;
+
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StaticStringSetTests {
+
+    @Test
+    void agreesWithAHashSetOnTheShippedCleanWords() throws IOException {
+        List<String> words;
+        try (InputStream in = getClass().getResourceAsStream("/vocabulary/clean-en.txt")) {
+            words = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                .map(String::strip).filter(line -> !line.isEmpty() && !line.startsWith("#")).toList();
+        }
+        Set<String> expected = new HashSet<>(words);
+        StaticStringSet set = StaticStringSet.build(words, ArrayStorage.HEAP);
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (String word : words) {
+            assertThat(set.contains(word)).as(word).isTrue();
+            for (String near : List.of(word + "s", word.substring(1), word.toUpperCase(), word + " ")) {
+                assertThat(set.contains(near)).as(near).isEqualTo(expected.contains(near));
+            }
+        }
+    }
+
+    @Test
+    void agreesWithAHashSetOnRandomStrings() {
+        Random random = new Random(180);
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) strings.add(randomString(random));
+        Set<String> expected = new HashSet<>(strings);
+        StaticStringSet set = StaticStringSet.build(strings, ArrayStorage.HEAP);
+
+        for (int i = 0; i < 200_000; i++) {
+            String probe = randomString(random);
+            assertThat(set.contains(probe)).as(probe).isEqualTo(expected.contains(probe));
+        }
+    }
+
+    @Test
+    void looksUpASpanWithoutCopyingIt() {
+        StaticStringSet set = StaticStringSet.build(List.of("class", "cocktail", "not"), ArrayStorage.HEAP);
+        String text = "this is not a cocktail class";
+
+        assertThat(set.contains(text, 8, 11)).isTrue();
+        assertThat(set.contains(text, 14, 22)).isTrue();
+        assertThat(set.contains(text, 23, 28)).isTrue();
+        assertThat(set.contains(text, 23, 26)).isFalse();
+        assertThat(set.contains(text, 0, 0)).isFalse();
+        assertThat(set.contains(new StringBuilder("not"))).isTrue();
+    }
+
+    @Test
+    void repeatedAndEmptyStringsAreStoredOnce() {
+        StaticStringSet set = StaticStringSet.build(List.of("a", "a", "", "b", ""), ArrayStorage.HEAP);
+
+        assertThat(set.size()).isEqualTo(3);
+        assertThat(set.contains("")).isTrue();
+        assertThat(set.contains("a")).isTrue();
+        assertThat(set.contains("c")).isFalse();
+        assertThat(StaticStringSet.build(List.of(), ArrayStorage.HEAP).contains("a")).isFalse();
+    }
+
+    private static String randomString(Random random) {
+        char[] chars = new char[1 + random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) chars[i] = (char) ('a' + random.nextInt(8));
+        return new String(chars);
+    }
+}
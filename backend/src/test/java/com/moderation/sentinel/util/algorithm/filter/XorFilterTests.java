@@ -0,0 +1,119 @@
+package com.moderation.sentinel.util.algorithm.filter;
+
+import com.moderation.sentinel.util.algorithm.image.ImageInput;
+import com.moderation.sentinel.util.algorithm.image.ImageOutput;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class XorFilterTests {
+
+    private static final int KEYS = 20_000;
+    private static final int PROBES = 200_000;
+
+    private Random random;
+    private long[] keys;
+    private Set<Long> keySet;
+
+    @BeforeEach
+    void generateKeys() {
+        random = new Random(17);
+        keys = new long[KEYS];
+        keySet = new HashSet<>();
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = random.nextLong();
+            keySet.add(keys[i]);
+        }
+    }
+
+    @Test
+    void reportsEveryAddedKeyAtEveryWidth() {
+        // Widths that do not divide 64 make fingerprints straddle two words
+        for (int bits = 1; bits <= 32; bits++) {
+            XorFilter filter = XorFilter.build(keys, bits, ArrayStorage.HEAP);
+            for (long key : keys) {
+                assertThat(filter.mayContain(key)).as("%d bits", bits).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void falsePositivesStayNearTheFingerprintRate() {
+        for (int bits : new int[] {4, 7, 10}) {
+            XorFilter filter = XorFilter.build(keys, bits, ArrayStorage.HEAP);
+            int falsePositives = 0;
+            for (int i = 0; i < PROBES; i++) {
+                long key = random.nextLong();
+                if (!keySet.contains(key) && filter.mayContain(key)) falsePositives++;
+            }
+            double rate = (double) falsePositives / PROBES;
+            assertThat(rate).as("%d bits", bits)
+                .isBetween(filter.falsePositiveRate() * 0.7, filter.falsePositiveRate() * 1.3);
+        }
+    }
+
+    @Test
+    void toleratesDuplicateKeys() {
+        long[] doubled = new long[KEYS * 2];
+        System.arraycopy(keys, 0, doubled, 0, KEYS);
+        System.arraycopy(keys, 0, doubled, KEYS, KEYS);
+
+        XorFilter filter = XorFilter.build(doubled, 8, ArrayStorage.HEAP);
+        for (long key : keys) assertThat(filter.mayContain(key)).isTrue();
+    }
+
+    @Test
+    void smallAndEmptyKeySetsBuild() {
+        XorFilter empty = XorFilter.build(new long[0], 8, ArrayStorage.HEAP);
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (empty.mayContain(random.nextLong())) falsePositives++;
+        }
+        assertThat(falsePositives).isLessThan(100);
+
+        XorFilter single = XorFilter.build(new long[] {42L}, 16, ArrayStorage.HEAP);
+        assertThat(single.mayContain(42L)).isTrue();
+        assertThat(single.mayContain(43L)).isFalse();
+    }
+
+    @Test
+    void readsBackWhatItWrote() throws IOException {
+        XorFilter filter = XorFilter.build(keys, 13, ArrayStorage.HEAP);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageOutput out = new ImageOutput(bytes);
+        filter.writeTo(out);
+        out.flush();
+
+        XorFilter read = XorFilter.readFrom(new ImageInput(ByteBuffer.wrap(bytes.toByteArray())), ArrayStorage.HEAP);
+        assertThat(read.getFingerprintBits()).isEqualTo(13);
+        for (int i = 0; i < PROBES; i++) {
+            long key = i < KEYS ? keys[i] : random.nextLong();
+            assertThat(read.mayContain(key)).isEqualTo(filter.mayContain(key));
+        }
+    }
+
+    @Test
+    void bitsForCoversTheRequestedRate() {
+        assertThat(XorFilter.bitsFor(0.5)).isEqualTo(1);
+        assertThat(XorFilter.bitsFor(0.01)).isEqualTo(7);
+        assertThat(XorFilter.bitsFor(1.0 / 1024)).isEqualTo(10);
+        assertThat(XorFilter.bitsFor(1e-12)).isEqualTo(32);
+        assertThat(XorFilter.bitsFor(0.999)).isEqualTo(1);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> XorFilter.bitsFor(0.0));
+        assertThatIllegalArgumentException().isThrownBy(() -> XorFilter.bitsFor(1.0));
+        assertThatIllegalArgumentException().isThrownBy(() -> XorFilter.bitsFor(Double.NaN));
+        assertThatIllegalArgumentException().isThrownBy(() -> XorFilter.build(keys, 33, ArrayStorage.HEAP));
+        assertThatIllegalArgumentException().isThrownBy(() -> XorFilter.build(keys, 0, ArrayStorage.HEAP));
+    }
+}
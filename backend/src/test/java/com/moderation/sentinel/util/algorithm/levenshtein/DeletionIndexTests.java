@@ -0,0 +1,123 @@
+package com.moderation.sentinel.util.algorithm.levenshtein;
+
+import com.moderation.sentinel.util.algorithm.budget.WorkBudget;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeletionIndexTests {
+
+    @Test
+    void findsWhatAScanOfTheWholeDictionaryFinds() {
+        Random random = new Random(4);
+        List<String> words = new ArrayList<>(randomWords(random, 5000));
+        DeletionIndex index = DeletionIndex.build(words, 2);
+
+        for (int i = 0; i < 1500; i++) {
+            String query = perturb(words.get(random.nextInt(words.size())), random);
+            for (int distance = 0; distance <= 2; distance++) {
+                assertThat(found(index.lookup(query, distance))).as("%s within %d", query, distance)
+                    .isEqualTo(scan(words, query, distance));
+            }
+        }
+    }
+
+    @Test
+    void listsCandidatesClosestFirst() {
+        DeletionIndex index = DeletionIndex.build(List.of("fuck", "fucker", "duck", "fuk"), 2);
+
+        List<DeletionIndex.Candidate> candidates = index.lookup("fuck", 2);
+        assertThat(candidates.get(0).word).isEqualTo("fuck");
+        assertThat(candidates.get(0).distance).isZero();
+        assertThat(candidates).extracting(candidate -> candidate.distance).isSorted();
+        assertThat(found(candidates)).containsExactlyInAnyOrder("fuck 0", "fucker 2", "duck 1", "fuk 1");
+    }
+
+    @Test
+    void clampsDistancesAboveTheIndexedOne() {
+        DeletionIndex index = DeletionIndex.build(List.of("moron"), 1);
+
+        assertThat(index.lookup("moran", 3)).extracting(candidate -> candidate.word).containsExactly("moron");
+        assertThat(index.lookup("mxran", 3)).isEmpty();
+    }
+
+    @Test
+    void suffixEditsBeyondTheIndexedPrefixAreStillVerified() {
+        // Both share the first seven chars, so only the full comparison tells them apart
+        DeletionIndex index = DeletionIndex.build(List.of("abcdefgxyz", "abcdefg"), 2);
+
+        assertThat(found(index.lookup("abcdefgxyq", 1))).containsExactly("abcdefgxyz 1");
+    }
+
+    @Test
+    void stopsVerifyingOnceTheBudgetIsSpent() {
+        List<String> words = List.of("aaaa", "aaab", "aaba", "abaa", "baaa");
+        DeletionIndex index = DeletionIndex.build(words, 2);
+        WorkBudget budget = WorkBudget.of(0, 2 * (2 * 2 + 1) * 4);
+
+        List<DeletionIndex.Candidate> partial = index.lookup("aaaa", 2, budget);
+        assertThat(partial).hasSize(2);
+        assertThat(budget.isExhausted()).isTrue();
+        assertThat(index.lookup("aaaa", 2)).hasSize(5);
+    }
+
+    @Test
+    void pendingIndexIsSearchedToo() {
+        DeletionIndex index = DeletionIndex.build(List.of("idiot", "moron"), 2)
+            .withPending(DeletionIndex.build(List.of("idiotic", "cretin"), 2));
+
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(found(index.lookup("idiots", 2))).containsExactly("idiot 1", "idiotic 2");
+        assertThat(found(index.lookup("cretn", 1))).containsExactly("cretin 1");
+    }
+
+    @Test
+    void emptyIndexAndEmptyQueryFindNothing() {
+        assertThat(DeletionIndex.build(List.of(), 2).lookup("anything", 2)).isEmpty();
+        assertThat(DeletionIndex.build(List.of("word"), 2).lookup("", 2)).isEmpty();
+    }
+
+    private static Set<String> scan(List<String> words, String query, int distance) {
+        Set<String> expected = new TreeSet<>();
+        for (String word : new LinkedHashSet<>(words)) {
+            int d = LevenshteinDistance.computeDistance(query, word, distance);
+            if (d <= distance) expected.add(word + " " + d);
+        }
+        return expected;
+    }
+
+    private static Set<String> found(List<DeletionIndex.Candidate> candidates) {
+        return candidates.stream().map(candidate -> candidate.word + " " + candidate.distance)
+            .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static Set<String> randomWords(Random random, int count) {
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < count) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int i = 0; i < length; i++) word.append((char) ('a' + random.nextInt(5)));
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    // Up to two random edits, placed anywhere including the first seven chars
+    private static String perturb(String word, Random random) {
+        StringBuilder out = new StringBuilder(word);
+        for (int e = random.nextInt(3); e > 0; e--) {
+            int position = random.nextInt(out.length() + 1);
+            if (position < out.length() && random.nextBoolean()) out.deleteCharAt(position);
+            else out.insert(position, (char) ('a' + random.nextInt(6)));
+        }
+        return out.length() == 0 ? word : out.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package com.moderation.sentinel.util.algorithm.levenshtein;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LevenshteinDistanceTests {
+
+    private static final String ALPHABET = "abcdé中";
+
+    @Test
+    void bitParallelDistanceMatchesTheMatrixDp() {
+        Random random = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomString(random, random.nextInt(12));
+            String b = random.nextBoolean() ? edit(a, random, random.nextInt(4)) : randomString(random, random.nextInt(12));
+            int expected = matrixDistance(a, b, false);
+
+            assertThat(LevenshteinDistance.computeDistance(a, b, 20)).as("%s / %s", a, b).isEqualTo(expected);
+            assertThat(LevenshteinDistance.computeDamerauDistance(a, b)).as("%s / %s", a, b)
+                .isEqualTo(matrixDistance(a, b, true));
+        }
+    }
+
+    @Test
+    void compiledQueryMatchesTheMatrixDpAcrossManyTexts() {
+        Random random = new Random(6);
+        for (int q = 0; q < 300; q++) {
+            String pattern = randomString(random, 1 + random.nextInt(20));
+            LevenshteinDistance.Query query = LevenshteinDistance.compile(pattern);
+            assertThat(query.length()).isEqualTo(pattern.length());
+
+            for (int t = 0; t < 50; t++) {
+                String text = edit(pattern, random, random.nextInt(5));
+                int bound = random.nextInt(4);
+                assertThat(query.distance(text, bound)).as("%s / %s <= %d", pattern, text, bound)
+                    .isEqualTo(Math.min(bound + 1, matrixDistance(pattern, text, false)));
+                assertThat(query.damerauDistance(text, bound)).as("%s / %s <= %d", pattern, text, bound)
+                    .isEqualTo(Math.min(bound + 1, matrixDistance(pattern, text, true)));
+            }
+        }
+    }
+
+    @Test
+    void returnsOneOverTheBoundOnceItIsExceeded() {
+        assertThat(LevenshteinDistance.computeDistance("kitten", "sitting", 3)).isEqualTo(3);
+        assertThat(LevenshteinDistance.computeDistance("kitten", "sitting", 2)).isEqualTo(3);
+        assertThat(LevenshteinDistance.computeDistance("a", "abcdef", 2)).isEqualTo(3);
+        assertThat(LevenshteinDistance.computeDistance("same", "same", 0)).isZero();
+    }
+
+    @Test
+    void damerauIsTheRestrictedOptimalStringAlignment() {
+        assertThat(LevenshteinDistance.computeDamerauDistance("fcuk", "fuck")).isEqualTo(1);
+        assertThat(LevenshteinDistance.computeDistance("fcuk", "fuck", 5)).isEqualTo(2);
+        // Unrestricted Damerau would give 2 by editing inside the transposed pair
+        assertThat(LevenshteinDistance.computeDamerauDistance("ca", "abc")).isEqualTo(3);
+    }
+
+    @Test
+    void patternsAtAndBeyondSixtyFourCharsAgreeWithTheDp() {
+        Random random = new Random(7);
+        for (int length : new int[] {63, 64, 65, 100}) {
+            for (int i = 0; i < 200; i++) {
+                String a = randomString(random, length);
+                String b = edit(a, random, random.nextInt(6));
+                assertThat(LevenshteinDistance.computeDistance(a, b, 10)).isEqualTo(
+                    Math.min(11, matrixDistance(a, b, false)));
+                assertThat(LevenshteinDistance.compile(a).damerauDistance(b, 10)).isEqualTo(
+                    Math.min(11, matrixDistance(a, b, true)));
+            }
+        }
+    }
+
+    @Test
+    void scratchQueryForgetsThePreviousPattern() {
+        // Both calls run on the same thread-local matcher
+        assertThat(LevenshteinDistance.computeDistance("zzzz", "zzzzzzzz", 10)).isEqualTo(4);
+        assertThat(LevenshteinDistance.computeDistance("abcd", "zzzz", 10)).isEqualTo(4);
+        assertThat(LevenshteinDistance.computeDistance("中中", "中中xx", 10)).isEqualTo(2);
+        assertThat(LevenshteinDistance.computeDistance("ab", "中中", 10)).isEqualTo(2);
+    }
+
+    @Test
+    void emptyStringsCostTheirLength() {
+        assertThat(LevenshteinDistance.computeDistance("", "abc", 5)).isEqualTo(3);
+        assertThat(LevenshteinDistance.computeDistance("abc", "", 5)).isEqualTo(3);
+        assertThat(LevenshteinDistance.compile("").distance("", 0)).isZero();
+        assertThat(LevenshteinDistance.computeSimilarity("", "")).isEqualTo(1.0);
+    }
+
+    // Full-matrix DP as LevenshteinDistance computed it before the bit-parallel kernel
+    private static int matrixDistance(String s1, String s2, boolean transpositions) {
+        int[][] d = new int[s1.length() + 1][s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= s2.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= s1.length(); i++) {
+            for (int j = 1; j <= s2.length(); j++) {
+                int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (transpositions && i > 1 && j > 1
+                        && s1.charAt(i - 1) == s2.charAt(j - 2) && s1.charAt(i - 2) == s2.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + cost);
+                }
+            }
+        }
+        return d[s1.length()][s2.length()];
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < length; i++) s.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        return s.toString();
+    }
+
+    // Applies random insertions, deletions, substitutions and adjacent swaps
+    private static String edit(String s, Random random, int edits) {
+        StringBuilder out = new StringBuilder(s);
+        for (int e = 0; e < edits; e++) {
+            int position = out.length() == 0 ? 0 : random.nextInt(out.length());
+            switch (out.length() == 0 ? 0 : random.nextInt(4)) {
+                case 0 -> out.insert(position, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                case 1 -> out.deleteCharAt(position);
+                case 2 -> out.setCharAt(position, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                default -> {
+                    if (position + 1 < out.length()) {
+                        char c = out.charAt(position);
+                        out.setCharAt(position, out.charAt(position + 1));
+                        out.setCharAt(position + 1, c);
+                    }
+                }
+            }
+        }
+        return out.toString();
+    }
+}
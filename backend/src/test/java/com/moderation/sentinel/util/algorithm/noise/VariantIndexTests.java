@@ -0,0 +1,154 @@
+package com.moderation.sentinel.util.algorithm.noise;
+
+import com.moderation.sentinel.util.algorithm.noise.VariantIndex.Family;
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VariantIndexTests {
+
+    private static final VariantIndex INDEX = VariantIndex.build(List.of("fuck", "ass", "shit", "moron"));
+
+    @Test
+    void reportsEachFamilyThatWasUndone() {
+        assertThat(families("f.u.c.k")).containsExactly(Family.SEPARATOR);
+        assertThat(families("sh1t")).containsExactly(Family.LEET);
+        assertThat(families("fuuuck")).containsExactly(Family.REPEAT);
+        assertThat(families("mörön")).containsExactly(Family.UNICODE);
+        assertThat(families("F-U-C-K")).containsExactly(Family.SEPARATOR);
+        assertThat(families("m 0 r 0 n n")).containsExactly(Family.SEPARATOR, Family.LEET, Family.REPEAT);
+        assertThat(INDEX.lookup("s.h.1.t").term).isEqualTo("shit");
+    }
+
+    @Test
+    void foldsLettersOutsideTheBmpLikeTheNormalizer() {
+        assertThat(families("𝐟𝐮𝐜𝐤")).containsExactly(Family.UNICODE);
+        assertThat(families("𝐅.𝐔.𝐂.𝐊")).containsExactly(Family.SEPARATOR, Family.UNICODE);
+        assertThat(INDEX.lookup("🅂🄷🄸🅃").term).isEqualTo("shit");
+        assertThat(INDEX.lookup("ｍ０ｒｏｎ").term).isEqualTo("moron");
+        // One repeated math letter is one repeat, not one per surrogate
+        assertThat(families("𝐟𝐮𝐮𝐮𝐜𝐤")).containsExactly(Family.REPEAT, Family.UNICODE);
+    }
+
+    @Test
+    void dropsFillersOnlyWhenTheyWereTypedAsDigitsOrSymbols() {
+        assertThat(INDEX.lookup("f1u2c3k").families).contains(Family.INSERTION);
+        assertThat(INDEX.lookup("f#u%c&k").term).isEqualTo("fuck");
+        assertThat(INDEX.lookup("fxuxcxk")).isNull();
+        // Even length: there is no alternating reading that ends on the term's last char
+        assertThat(INDEX.lookup("f1u2c3k4")).isNull();
+    }
+
+    @Test
+    void termAsTypedAndShorterRunsAreNotMatches() {
+        assertThat(INDEX.lookup("fuck")).isNull();
+        assertThat(INDEX.lookup("as")).isNull();
+        assertThat(INDEX.lookup("a.s")).isNull();
+        assertThat(INDEX.lookup("...")).isNull();
+        assertThat(INDEX.lookup("")).isNull();
+        assertThat(VariantIndex.build(List.of()).lookup("f.u.c.k")).isNull();
+    }
+
+    @Test
+    void findsEveryTokenTheReplacedDeobfuscationFound() {
+        Random random = new Random(15);
+        List<String> dictionary = new ArrayList<>();
+        for (int i = 0; i < 400; i++) dictionary.add(randomTerm(random));
+        Set<String> terms = new HashSet<>(dictionary);
+        VariantIndex index = VariantIndex.build(dictionary);
+
+        int compared = 0;
+        for (int i = 0; i < 20_000; i++) {
+            String term = dictionary.get(random.nextInt(dictionary.size()));
+            String token = obfuscate(term, random);
+            String previous = previousDeobfuscation(token);
+            if (token.equals(term) || previous == null || !terms.contains(previous)) continue;
+
+            compared++;
+            assertThat(index.lookup(token)).as("%s -> %s", token, previous).isNotNull();
+        }
+        assertThat(compared).isGreaterThan(1000);
+    }
+
+    @Test
+    void pendingIndexAnswersAsIfBuiltFromOneList() {
+        Random random = new Random(16);
+        List<String> base = new ArrayList<>();
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < 300; i++) base.add(randomTerm(random));
+        for (int i = 0; i < 60; i++) added.add(i % 4 == 0 ? base.get(random.nextInt(base.size())) : randomTerm(random));
+        List<String> combined = new ArrayList<>(base);
+        combined.addAll(added);
+
+        VariantIndex layered = VariantIndex.build(base).withPending(VariantIndex.build(added));
+        VariantIndex full = VariantIndex.build(combined);
+
+        for (int i = 0; i < 5000; i++) {
+            String token = obfuscate(combined.get(random.nextInt(combined.size())), random);
+            if (random.nextInt(4) == 0) token = withFillers(token, random);
+            assertThat(String.valueOf(layered.lookup(token))).as(token).isEqualTo(String.valueOf(full.lookup(token)));
+        }
+    }
+
+    private static Set<Family> families(String token) {
+        VariantIndex.Match match = INDEX.lookup(token);
+        assertThat(match).as(token).isNotNull();
+        return match.families;
+    }
+
+    // Letters that have leet and accented spellings, so every family turns up
+    private static String randomTerm(Random random) {
+        String letters = "abeiostmnr";
+        StringBuilder term = new StringBuilder();
+        for (int i = 2 + random.nextInt(5); i > 0; i--) term.append(letters.charAt(random.nextInt(letters.length())));
+        return term.toString();
+    }
+
+    private static String obfuscate(String term, Random random) {
+        Map<Character, String> spellings = Map.of('a', "4à", 'e', "3é", 'i', "1í", 'o', "0ö", 's', "5$", 't', "7", 'b', "8");
+        StringBuilder token = new StringBuilder();
+        for (char c : term.toCharArray()) {
+            String alternatives = spellings.get(c);
+            char typed = alternatives != null && random.nextInt(3) == 0
+                ? alternatives.charAt(random.nextInt(alternatives.length())) : c;
+            token.append(typed);
+            for (int r = random.nextInt(6) == 0 ? 1 + random.nextInt(3) : 0; r > 0; r--) token.append(typed);
+            if (random.nextInt(5) == 0) token.append(".-_ ".charAt(random.nextInt(4)));
+        }
+        return token.toString();
+    }
+
+    private static String withFillers(String token, Random random) {
+        StringBuilder filled = new StringBuilder();
+        for (int i = 0; i < token.length(); i++) {
+            if (i > 0) filled.append("29#%".charAt(random.nextInt(4)));
+            filled.append(token.charAt(i));
+        }
+        return filled.toString();
+    }
+
+    /**
+     * NoiseDetector.removeObfuscation as it stood before the variant index, or null where it dropped every
+     * second char. That fold now only applies to digit and symbol fillers, so those results are not compared.
+     */
+    private static String previousDeobfuscation(String input) {
+        String separators = ".-_*~`^|\\/+=!@#$%&()[]{}<>?:;\"', ";
+        StringBuilder kept = new StringBuilder();
+        for (char c : input.toLowerCase().toCharArray()) {
+            if (separators.indexOf(c) < 0) kept.append(c);
+        }
+        String result = kept.toString().replaceAll("(.)\\1{2,}", "$1$1");
+        String[][] leet = {{"0", "o"}, {"1", "i"}, {"3", "e"}, {"4", "a"}, {"5", "s"}, {"7", "t"}, {"8", "b"}};
+        for (String[] pair : leet) result = result.replace(pair[0], pair[1]);
+        result = Normalizer.normalize(result, Normalizer.Form.NFKD).replaceAll("\\p{M}", "");
+        return result.length() >= 3 && result.length() % 2 == 1 ? null : result;
+    }
+}
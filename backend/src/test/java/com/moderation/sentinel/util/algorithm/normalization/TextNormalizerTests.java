@@ -0,0 +1,147 @@
+package com.moderation.sentinel.util.algorithm.normalization;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextNormalizerTests {
+
+    // Letters, leet symbols, multi-char keys, accented and non-Latin letters, letters outside the BMP,
+    // runs and separators
+    private static final String[] PIECES = {
+        "a", "b", "c", "f", "h", "k", "p", "s", "u", "v", "A", "F", "K",
+        "@", "4", "$", "5", "1", "!", "0", "3", "#", "*", "+", "(", ")", "/", "\\", "^",
+        "ph", "vv", "()", "/\\", "^^", "\\/",
+        "é", "É", "ñ", "ü", "à", "ö", "ž", "ß", "α", "ω", "м", "ш", "中",
+        "𝐟", "𝐅", "𝓾", "𝕔", "🄺", "ⓕ", "ｆ", "😀",
+        "é", "aaaa", " ", "  ", "_", "\t", "\n"
+    };
+
+    @Test
+    void perCharacterDecompositionGivesTheSameTextAsWholeStringNfkd() {
+        Random random = new Random(10);
+        for (int i = 0; i < 50_000; i++) {
+            String input = randomInput(random);
+            // normalize used to run NFKD over the whole lower-cased input before its single pass
+            String decomposed = Normalizer.normalize(input.toLowerCase(), Normalizer.Form.NFKD);
+            assertThat(TextNormalizer.normalize(input)).as(input).isEqualTo(TextNormalizer.normalize(decomposed));
+        }
+    }
+
+    @Test
+    void offsetsTextIsTheNormalizedText() {
+        Random random = new Random(11);
+        for (int i = 0; i < 10_000; i++) {
+            String input = randomInput(random);
+            assertThat(TextNormalizer.normalizeWithOffsets(input).text).isEqualTo(TextNormalizer.normalize(input));
+        }
+    }
+
+    @Test
+    void everyTokenMapsBackToTheInputThatNormalizesToIt() {
+        Random random = new Random(12);
+        for (int i = 0; i < 20_000; i++) {
+            String input = randomInput(random);
+            TextNormalizer.Normalized normalized = TextNormalizer.normalizeWithOffsets(input);
+            int[] spans = TextNormalizer.tokenizeSpans(normalized.text);
+
+            int previousEnd = 0;
+            for (int t = 0; t < spans.length; t += 2) {
+                int from = normalized.sourceStart(spans[t], spans[t + 1]);
+                int to = normalized.sourceEnd(spans[t], spans[t + 1]);
+                assertThat(from).as(input).isBetween(previousEnd, to);
+                assertThat(to).as(input).isLessThanOrEqualTo(input.length());
+                assertThat(TextNormalizer.normalize(input.substring(from, to))).as("%s [%d, %d)", input, from, to)
+                    .isEqualTo(normalized.text.substring(spans[t], spans[t + 1]));
+                previousEnd = to;
+            }
+        }
+    }
+
+    @Test
+    void rangesCoverMultiCharKeysCappedRunsAndDecompositions() {
+        TextNormalizer.Normalized normalized = TextNormalizer.normalizeWithOffsets("Phuuuuck *yóu*");
+
+        assertThat(normalized.text).isEqualTo("fuuck you");
+        // "Ph" produced the f, and the dropped u's belong to no normalized char
+        assertThat(range(normalized, 0, 1)).containsExactly(0, 2);
+        assertThat(range(normalized, 2, 3)).containsExactly(3, 4);
+        assertThat(range(normalized, 4, 5)).containsExactly(7, 8);
+        // Stripping the accent keeps the source char's own position, and "*" is dropped from both ends
+        assertThat(range(normalized, 6, 9)).containsExactly(10, 13);
+        assertThat(range(normalized, 7, 8)).containsExactly(11, 12);
+    }
+
+    @Test
+    void oneSourceCharMayProduceSeveralNormalizedChars() {
+        // NFKD spreads the ligature and the fraction over several chars, all from one source position
+        TextNormalizer.Normalized normalized = TextNormalizer.normalizeWithOffsets("xﬁ½");
+
+        assertThat(normalized.text).isEqualTo("xfii⁄z");
+        assertThat(range(normalized, 1, 3)).containsExactly(1, 2);
+        assertThat(range(normalized, 3, 6)).containsExactly(2, 3);
+    }
+
+    @Test
+    void foldsMathFullwidthAndEnclosedLetters() {
+        assertThat(TextNormalizer.normalize("𝐟𝐮𝐜𝐤 you")).isEqualTo("fuck you");
+        assertThat(TextNormalizer.normalize("𝐅𝐔𝐂𝐊 𝑦𝑜𝑢")).isEqualTo("fuck you");
+        assertThat(TextNormalizer.normalize("𝓯𝓾𝓬𝓴 𝕪𝕠𝕦")).isEqualTo("fuck you");
+        assertThat(TextNormalizer.normalize("🄵🅄🄲🄺 ⓨⓞⓤ")).isEqualTo("fuck you");
+        assertThat(TextNormalizer.normalize("ｆｕｃｋ ｙｏｕ")).isEqualTo("fuck you");
+        assertThat(TextNormalizer.normalize("you 𝐢𝐝𝐢𝐨𝐭")).isEqualTo("you idiot");
+        // Code points without a decomposition pass through whole
+        assertThat(TextNormalizer.normalize("ok 😀")).isEqualTo("ok 😀");
+    }
+
+    @Test
+    void supplementaryLettersMapBackToBothSurrogates() {
+        TextNormalizer.Normalized normalized = TextNormalizer.normalizeWithOffsets("a 𝐟𝐮𝐜𝐤 x");
+
+        assertThat(normalized.text).isEqualTo("a fuck x");
+        assertThat(range(normalized, 2, 3)).containsExactly(2, 4);
+        assertThat(range(normalized, 2, 6)).containsExactly(2, 10);
+    }
+
+    @Test
+    void emptySpansAndEmptyInputMapToZero() {
+        TextNormalizer.Normalized empty = TextNormalizer.normalizeWithOffsets("");
+        assertThat(empty.text).isEmpty();
+        assertThat(range(empty, 0, 0)).containsExactly(0, 0);
+        assertThat(range(TextNormalizer.normalizeWithOffsets("abc"), 2, 2)).containsExactly(0, 0);
+        assertThat(TextNormalizer.normalizeWithOffsets(null).text).isEmpty();
+    }
+
+    @Test
+    void tokenizeSplitsLikeTheRegexItReplaced() {
+        Random random = new Random(13);
+        for (int i = 0; i < 20_000; i++) {
+            String input = randomInput(random);
+            assertThat(TextNormalizer.tokenize(input)).as(input).isEqualTo(regexTokenize(input));
+        }
+        assertThat(TextNormalizer.tokenizeSpans("  ab\tc_d  ")).containsExactly(2, 4, 5, 6, 7, 8);
+        assertThat(TextNormalizer.tokenizeSpans(" \n ")).isEmpty();
+    }
+
+    private static int[] range(TextNormalizer.Normalized normalized, int start, int end) {
+        return new int[] {normalized.sourceStart(start, end), normalized.sourceEnd(start, end)};
+    }
+
+    // The regex also returned one empty token for input of only underscores and whitespace, such as "_"
+    private static List<String> regexTokenize(String input) {
+        if (input == null || input.isBlank()) return List.of();
+        List<String> tokens = Arrays.asList(input.replace('_', ' ').trim().split("\\s+"));
+        return tokens.equals(List.of("")) ? List.of() : tokens;
+    }
+
+    private static String randomInput(Random random) {
+        StringBuilder input = new StringBuilder();
+        for (int i = random.nextInt(16); i > 0; i--) input.append(PIECES[random.nextInt(PIECES.length)]);
+        return input.toString();
+    }
+}
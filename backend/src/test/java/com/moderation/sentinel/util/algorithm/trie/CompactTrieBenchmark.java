@@ -0,0 +1,92 @@
+package com.moderation.sentinel.util.algorithm.trie;
+
+import com.moderation.sentinel.util.algorithm.phonetic.Soundex;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Footprint and {@code contains()} latency of the mutable {@link Trie} against {@link CompactTrie} on
+ * synthetic terms of 4-11 lower-case letters. Not a unit test; run it on its own heap:
+ * <pre>
+ * mvn -q test-compile
+ * java -Xmx2g -cp target/classes:target/test-classes \
+ *     com.moderation.sentinel.util.algorithm.trie.CompactTrieBenchmark [terms]
+ * </pre>
+ * Retained heap is the used heap after a full collection with the dictionary reachable, minus the same
+ * without it. Latency is the best of several timed rounds over one fixed mix of hits and misses.
+ */
+public class CompactTrieBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int TIMED_ROUNDS = 10;
+    private static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) {
+        int termCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Random random = new Random(42);
+        List<String> terms = new ArrayList<>(termCount);
+        for (int i = 0; i < termCount; i++) terms.add(word(random));
+
+        // Half the queries are dictionary terms, half random words that mostly miss
+        String[] queries = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            queries[i] = i % 2 == 0 ? terms.get(random.nextInt(termCount)) : word(random);
+        }
+
+        System.out.printf("%,d terms, %s %s%n", termCount, System.getProperty("java.vm.name"),
+            System.getProperty("java.version"));
+
+        long trieBytes = retainedBytes(() -> {
+            Trie trie = new Trie();
+            for (String term : terms) trie.insert(term, Soundex.toString(Soundex.encode(term)));
+            return trie;
+        });
+        long compactBytes = retainedBytes(() -> CompactTrie.build(terms));
+        System.out.printf("Retained heap: Trie %.1f MB, CompactTrie %.1f MB%n", trieBytes / 1e6, compactBytes / 1e6);
+
+        Trie trie = new Trie();
+        for (String term : terms) trie.insert(term, Soundex.toString(Soundex.encode(term)));
+        CompactTrie compact = CompactTrie.build(terms);
+        System.out.printf("contains(): Trie %.0f ns, CompactTrie %.0f ns per lookup%n",
+            nanosPerLookup(trie, queries), nanosPerLookup(compact, queries));
+    }
+
+    private static long retainedBytes(Supplier<Object> build) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedAfterGc(memory);
+        Object dictionary = build.get();
+        long after = usedAfterGc(memory);
+        if (dictionary.hashCode() == 42) System.out.print("");  // keeps the dictionary reachable
+        return after - before;
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static double nanosPerLookup(WordDictionary dictionary, String[] queries) {
+        long best = Long.MAX_VALUE;
+        int hits = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String query : queries) {
+                if (dictionary.contains(query).isOffensive) hits++;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) best = Math.min(best, elapsed);
+        }
+        if (hits == 0) throw new IllegalStateException("No lookup hit the dictionary");
+        return (double) best / queries.length;
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[4 + random.nextInt(8)];
+        for (int i = 0; i < chars.length; i++) chars[i] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+}
@@ -0,0 +1,187 @@
+package com.moderation.sentinel.util.algorithm.trie;
+
+import com.moderation.sentinel.util.algorithm.phonetic.Soundex;
+import com.moderation.sentinel.util.algorithm.storage.ArrayStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactTrieTests {
+
+    @TempDir
+    Path mappedDirectory;
+
+    @Test
+    void answersExactLookupsLikeTheMutableTrie() {
+        Random random = new Random(2);
+        List<String> terms = randomTerms(random, 3000);
+        Trie trie = mutableTrie(terms);
+        CompactTrie compact = CompactTrie.build(terms);
+
+        assertThat(compact.getAllWords()).isEqualTo(trie.getAllWords());
+        assertThat(compact.size()).isEqualTo(trie.getAllWords().size());
+        for (int i = 0; i < 5000; i++) {
+            String query = i % 2 == 0 ? terms.get(random.nextInt(terms.size())) : randomWord(random);
+            assertThat(compact.contains(query).toString()).as(query).isEqualTo(trie.contains(query).toString());
+            assertThat(compact.matchConfidence(query)).as(query).isEqualTo(trie.matchConfidence(query));
+
+            String prefix = query.substring(0, 1 + random.nextInt(2));
+            assertThat(new HashSet<>(compact.findWordsWithPrefix(prefix, Integer.MAX_VALUE)))
+                .as(prefix).isEqualTo(new HashSet<>(trie.findWordsWithPrefix(prefix, Integer.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void repeatedTermsRaiseTheirFrequency() {
+        CompactTrie once = CompactTrie.build(List.of("slur"));
+        CompactTrie thrice = CompactTrie.build(List.of("slur", "slur", "slur"));
+
+        assertThat(thrice.size()).isEqualTo(1);
+        assertThat(thrice.matchConfidence("slur")).isGreaterThan(once.matchConfidence("slur"));
+        assertThat(thrice.matchConfidence("xslurx", 1, 5)).isEqualTo(thrice.matchConfidence("slur"));
+        assertThat(thrice.matchConfidence("slu")).isZero();
+    }
+
+    @Test
+    void fuzzySearchFindsTheSameWordsAsTheMutableTrie() {
+        Random random = new Random(3);
+        List<String> terms = randomTerms(random, 1500);
+        Trie trie = mutableTrie(terms);
+        CompactTrie compact = CompactTrie.build(terms);
+
+        for (int i = 0; i < 500; i++) {
+            String query = mutate(terms.get(random.nextInt(terms.size())), random);
+            // Ties at the cut-off of ten may be broken differently, so compare the complete result sets
+            Set<String> expected = results(trie.fuzzySearch(query, 1));
+            if (expected.size() < 10) {
+                assertThat(results(compact.fuzzySearch(query, 1))).as(query).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void findsWordsWithPrefixInOrderUpToTheLimit() {
+        CompactTrie compact = CompactTrie.build(List.of("bitch", "bit", "bite", "bitten", "butt"));
+
+        assertThat(compact.findWordsWithPrefix("bit", 10)).containsExactly("bit", "bitch", "bite", "bitten");
+        assertThat(compact.findWordsWithPrefix("bit", 2)).containsExactly("bit", "bitch");
+        assertThat(compact.findWordsWithPrefix("x", 10)).isEmpty();
+    }
+
+    @Test
+    void phoneticMatchNeedsADoubleMetaphoneCode() {
+        CompactTrie compact = CompactTrie.build(List.of("damn", "phuck"));
+
+        // Both codes agree for "phuk"; only Double Metaphone does for "fuk", so it scores lower
+        assertThat(compact.phoneticConfidence("phuk")).isEqualTo(0.85);
+        assertThat(compact.phoneticConfidence("fuk")).isEqualTo(0.75);
+        // Same Soundex code as "damn" but a different Double Metaphone code
+        assertThat(Soundex.encode("denim")).isEqualTo(Soundex.encode("damn"));
+        assertThat(compact.phoneticConfidence("denim")).isZero();
+        assertThat(compact.phoneticConfidence("table")).isZero();
+    }
+
+    @Test
+    void containsPhoneticReturnsTheMostFrequentTermForASoundexCode() {
+        CompactTrie compact = CompactTrie.build(List.of("rupert", "robert", "robert"));
+
+        Trie.DetectionResult result = compact.containsPhonetic(Soundex.toString(Soundex.encode("rubbert")));
+        assertThat(result.isOffensive).isTrue();
+        assertThat(result.message).isEqualTo("robert");
+    }
+
+    @Test
+    void pendingTrieAnswersAsIfBuiltFromOneList() {
+        Random random = new Random(5);
+        List<String> terms = randomTerms(random, 800);
+        List<String> added = new ArrayList<>(terms.subList(0, 20));
+        added.addAll(randomTerms(random, 40));
+        List<String> combined = new ArrayList<>(terms);
+        combined.addAll(added);
+
+        CompactTrie layered = CompactTrie.build(terms).withPending(CompactTrie.build(added));
+        CompactTrie full = CompactTrie.build(combined);
+
+        assertThat(layered.getAllWords()).isEqualTo(full.getAllWords());
+        assertThat(layered.size()).isEqualTo(full.size());
+        for (String word : combined) {
+            assertThat(layered.matchConfidence(word)).as(word).isEqualTo(full.matchConfidence(word));
+            String query = mutate(word, random);
+            assertThat(layered.phoneticConfidence(query)).as(query).isEqualTo(full.phoneticConfidence(query));
+            assertThat(layered.fuzzySearch(query, 2).toString()).as(query).isEqualTo(full.fuzzySearch(query, 2).toString());
+            assertThat(layered.findWordsWithPrefix(query.substring(0, 1), 5))
+                .isEqualTo(full.findWordsWithPrefix(query.substring(0, 1), 5));
+        }
+    }
+
+    @Test
+    void mappedStorageHoldsTheSameTrie() {
+        List<String> terms = randomTerms(new Random(6), 2000);
+        CompactTrie heap = CompactTrie.build(terms);
+        CompactTrie mapped = CompactTrie.build(terms, ArrayStorage.mapped(mappedDirectory));
+
+        assertThat(mapped.getAllWords()).isEqualTo(heap.getAllWords());
+        for (String term : terms) {
+            assertThat(mapped.matchConfidence(term)).isEqualTo(heap.matchConfidence(term));
+        }
+        assertThat(mapped.fuzzySearch("abcde", 2).toString()).isEqualTo(heap.fuzzySearch("abcde", 2).toString());
+    }
+
+    @Test
+    void emptyDictionaryMatchesNothing() {
+        CompactTrie empty = CompactTrie.build(List.of());
+
+        assertThat(empty.size()).isZero();
+        assertThat(empty.contains("anything").isOffensive).isFalse();
+        assertThat(empty.fuzzySearch("anything", 2)).isEmpty();
+        assertThat(empty.phoneticConfidence("anything")).isZero();
+    }
+
+    private static Trie mutableTrie(List<String> terms) {
+        Trie trie = new Trie();
+        for (String term : terms) trie.insert(term, Soundex.toString(Soundex.encode(term)));
+        return trie;
+    }
+
+    private static Set<String> results(List<Trie.DetectionResult> results) {
+        return results.stream().map(Trie.DetectionResult::toString).collect(Collectors.toSet());
+    }
+
+    // Short words over a small alphabet so terms share prefixes, with a few repeats and accented letters
+    private static List<String> randomTerms(Random random, int count) {
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            terms.add(i > 0 && random.nextInt(20) == 0 ? terms.get(random.nextInt(i)) : randomWord(random));
+        }
+        return terms;
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 2 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            word.append(random.nextInt(50) == 0 ? 'é' : (char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+    }
+
+    private static String mutate(String word, Random random) {
+        StringBuilder mutated = new StringBuilder(word);
+        int position = random.nextInt(mutated.length());
+        switch (random.nextInt(3)) {
+            case 0 -> mutated.deleteCharAt(position);
+            case 1 -> mutated.insert(position, 'f');
+            default -> mutated.setCharAt(position, 'b');
+        }
+        return mutated.length() == 0 ? word : mutated.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.moderation.sentinel.util.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TinyLfuCacheTests {
+
+    private static final int ENTRY = 64;
+
+    @Test
+    void hotKeysSurviveAFloodOfOneOffKeys() {
+        TinyLfuCache<String, Integer> cache = cache(1000);
+        Map<String, Integer> lru = lru(1000);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 500; i++) {
+                String key = "hot" + i;
+                if (cache.get(key) == null) cache.put(key, i);
+                lru.put(key, i);
+            }
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            String key = "junk" + i;
+            if (cache.get(key) == null) cache.put(key, i);
+            lru.put(key, i);
+        }
+
+        int survivors = 0;
+        for (int i = 0; i < 500; i++) {
+            if (cache.get("hot" + i) != null) survivors++;
+        }
+        assertThat(survivors).isGreaterThan(450);
+        // A plain LRU of the same size, as an access-ordered LinkedHashMap would be, keeps none of them
+        assertThat(lru.keySet()).noneMatch(key -> key.startsWith("hot"));
+    }
+
+    @Test
+    void hitsAtLeastAsOftenAsLruOnASkewedWorkload() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>("zipf", 500L * ENTRY, (k, v) -> ENTRY);
+        Map<Integer, Integer> lru = lru(500);
+        Random random = new Random(6);
+        int lruHits = 0;
+        int requests = 200_000;
+
+        for (int i = 0; i < requests; i++) {
+            // Roughly Zipf-distributed over 50k keys
+            int key = (int) Math.floor(Math.pow(50_000, random.nextDouble()));
+            if (cache.get(key) == null) cache.put(key, key);
+            if (lru.get(key) != null) lruHits++;
+            else lru.put(key, key);
+        }
+
+        assertThat(cache.hitRatio()).isGreaterThanOrEqualTo((double) lruHits / requests);
+        assertThat(cache.hitCount() + cache.missCount()).isEqualTo(requests);
+    }
+
+    @Test
+    void staysWithinItsWeight() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>("weighted", 10_000, (k, v) -> ENTRY + v.length());
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            cache.put(random.nextInt(5000), "x".repeat(random.nextInt(500)));
+            assertThat(cache.weightedSize()).isLessThanOrEqualTo(cache.getMaximumWeight());
+        }
+        assertThat(cache.evictionCount()).isPositive();
+        assertThat(cache.putCount()).isEqualTo(50_000);
+    }
+
+    @Test
+    void replacingAValueUpdatesItsWeight() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>("replace", 10_000, (k, v) -> v.length());
+
+        cache.put("key", "a".repeat(100));
+        cache.put("key", "a".repeat(300));
+        assertThat(cache.get("key")).hasSize(300);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.weightedSize()).isEqualTo(300);
+    }
+
+    @Test
+    void entriesHeavierThanTheWholeCacheAreNotStored() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>("oversized", 1000, (k, v) -> v.length());
+
+        cache.put("big", "a".repeat(1001));
+        assertThat(cache.get("big")).isNull();
+        assertThat(cache.weightedSize()).isZero();
+    }
+
+    @Test
+    void expiredEntriesReadAsMissesAndAreDropped() throws InterruptedException {
+        TinyLfuCache<String, Integer> expiring = new TinyLfuCache<>("expiring", 10_000, (k, v) -> ENTRY,
+            TimeUnit.MILLISECONDS.toNanos(20));
+        TinyLfuCache<String, Integer> lasting = new TinyLfuCache<>("lasting", 10_000, (k, v) -> ENTRY,
+            TimeUnit.HOURS.toNanos(1));
+        expiring.put("key", 1);
+        lasting.put("key", 1);
+        assertThat(expiring.get("key")).isEqualTo(1);
+
+        Thread.sleep(40);
+        assertThat(expiring.get("key")).isNull();
+        assertThat(expiring.size()).isZero();
+        assertThat(expiring.weightedSize()).isZero();
+        assertThat(lasting.get("key")).isEqualTo(1);
+
+        // Writing again restarts the clock
+        expiring.put("key", 2);
+        assertThat(expiring.get("key")).isEqualTo(2);
+    }
+
+    @Test
+    void clearEmptiesEveryRegion() {
+        TinyLfuCache<String, Integer> cache = cache(100);
+        for (int i = 0; i < 300; i++) {
+            cache.put("k" + (i % 150), i);
+            cache.get("k" + (i % 150));
+        }
+
+        cache.clear();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.weightedSize()).isZero();
+        cache.put("after", 1);
+        assertThat(cache.get("after")).isEqualTo(1);
+    }
+
+    private static TinyLfuCache<String, Integer> cache(int entries) {
+        return new TinyLfuCache<>("test", (long) entries * ENTRY, (k, v) -> ENTRY);
+    }
+
+    private static <K, V> Map<K, V> lru(int entries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > entries;
+            }
+        };
+    }
+}